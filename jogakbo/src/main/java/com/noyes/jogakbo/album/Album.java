@@ -31,6 +31,7 @@ public class Album {
   // field to recognize image update
   @Builder.Default
   private String thumbnailOriginalName = "";
+  // field with initial layout, checkpoints are kept in AlbumLayoutCheckpoint
   @Builder.Default
   private List<List<AlbumImageInfo>> albumImages = List.of(new ArrayList<>());
   // field for album co-workers list
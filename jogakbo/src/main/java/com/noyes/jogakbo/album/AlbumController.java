@@ -1,19 +1,22 @@
 package com.noyes.jogakbo.album;
 
 import java.io.IOException;
+import java.net.URI;
 import java.security.Principal;
 import java.util.List;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
@@ -21,14 +24,19 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.noyes.jogakbo.album.DTO.AlbumCursorMessage;
 import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
 import com.noyes.jogakbo.album.DTO.AlbumDetailInfo;
 import com.noyes.jogakbo.album.DTO.AlbumEntryInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageUploadInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageUploadURL;
 import com.noyes.jogakbo.album.DTO.AlbumInitInfo;
 import com.noyes.jogakbo.album.DTO.AlbumInvitationMessage;
-import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
 import com.noyes.jogakbo.album.DTO.AlbumMemberInfo;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
 import com.noyes.jogakbo.global.SseEmitters;
+import com.noyes.jogakbo.global.websocket.WebSocketSessionHolder;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -43,7 +51,8 @@ import lombok.extern.slf4j.Slf4j;
 public class AlbumController {
 
   private final AlbumService albumService;
-  private final SimpMessagingTemplate simpMessageTemplate;
+  private final AlbumEditCoalescer albumEditCoalescer;
+  private final AlbumPresenceManager albumPresenceManager;
   private final SseEmitters sseEmitters;
 
   @Operation(description = "앨범 생성 API입니다.")
@@ -63,11 +72,24 @@ public class AlbumController {
     return ResponseEntity.ok(albumService.getAlbumEntryInfo(principal.getName(), albumUUID));
   }
 
-  @Operation(description = "앨범 입장 후, 앨범 상태 초기화 API입니다.")
+  @Operation(description = "앨범 입장 후, 앨범 상태 초기화 API입니다. pageSize 를 주면 fromPage 부터 pageSize 개 페이지만 반환합니다.")
   @GetMapping("/{albumUUID}/init")
-  public ResponseEntity<AlbumInitInfo> getAlbumInfo(@PathVariable String albumUUID, Principal principal) {
+  public ResponseEntity<AlbumInitInfo> getAlbumInfo(@PathVariable String albumUUID,
+      @RequestParam(required = false) Integer fromPage,
+      @RequestParam(required = false) Integer pageSize,
+      Principal principal) {
+
+    return ResponseEntity.ok(albumService.getEntryMessage(principal.getName(), albumUUID, fromPage, pageSize));
+  }
 
-    return ResponseEntity.ok(albumService.getEntryMessage(principal.getName(), albumUUID));
+  @Operation(description = "앨범 페이지 단위 조회 API입니다. 입장 시 받지 않은 페이지를 fromPage 부터 pageSize 개 반환합니다.")
+  @GetMapping("/{albumUUID}/pages")
+  public ResponseEntity<AlbumPagesInfo> getAlbumPages(@PathVariable String albumUUID,
+      @RequestParam(defaultValue = "0") int fromPage,
+      @RequestParam int pageSize,
+      Principal principal) {
+
+    return ResponseEntity.ok(albumService.getAlbumPages(principal.getName(), albumUUID, fromPage, pageSize));
   }
 
   @SuppressWarnings("null")
@@ -76,8 +98,7 @@ public class AlbumController {
   public ResponseEntity<String> createPage(@PathVariable String albumUUID, Principal principal)
       throws JsonMappingException {
 
-    List<List<AlbumImageInfo>> imagesInfo = albumService.addNewPage(albumUUID);
-    simpMessageTemplate.convertAndSend("/sub/edit/" + albumUUID, imagesInfo);
+    albumService.addNewPage(albumUUID);
     return ResponseEntity.ok("페이지를 성공적으로 추가했습니다.");
   }
 
@@ -88,32 +109,112 @@ public class AlbumController {
       @RequestPart List<MultipartFile> multipartFiles,
       @RequestParam String fileInfos) {
 
-    List<List<AlbumImageInfo>> imagesInfo = albumService.uploadImages(albumUUID, multipartFiles, fileInfos);
-    simpMessageTemplate.convertAndSend("/sub/edit/" + albumUUID, imagesInfo);
+    albumService.uploadImages(albumUUID, multipartFiles, fileInfos);
 
     return ResponseEntity.ok("사진을 성공적으로 등록했습니다.");
   }
 
+  @SuppressWarnings("null")
+  @Operation(description = "앨범 내부 사진을 S3 에 직접 올릴 수 있는 presigned URL 발급 API입니다. 업로드 시 요청한 Content-Type 과 x-amz-acl: public-read 헤더를 함께 보내야 합니다.")
+  @PostMapping("/{albumUUID}/image/upload-url")
+  public ResponseEntity<List<AlbumImageUploadURL>> createImageUploadURLs(@PathVariable String albumUUID,
+      @RequestBody List<AlbumImageUploadInfo> uploadInfos, Principal principal) {
+
+    return ResponseEntity.ok(albumService.createImageUploadURLs(principal.getName(), albumUUID, uploadInfos));
+  }
+
+  @SuppressWarnings("null")
+  @Operation(description = "presigned URL 로 업로드를 마친 사진들을 앨범에 등록하는 API입니다.")
+  @PostMapping("/{albumUUID}/image/complete")
+  public ResponseEntity<String> completeImageUploads(@PathVariable String albumUUID,
+      @RequestBody List<AlbumImageEditMessage> uploadedImages, Principal principal) {
+
+    albumService.completeImageUploads(principal.getName(), albumUUID, uploadedImages);
+
+    return ResponseEntity.ok("사진을 성공적으로 등록했습니다.");
+  }
+
+  @SuppressWarnings("null")
+  @Operation(description = "앨범 사진이나 썸네일을 요청한 크기(thumb, screen)로 받을 수 있는 주소로 이동하는 API입니다. 축소본이 아직 없다면 원본으로 이동합니다.")
+  @GetMapping("/{albumUUID}/image/{albumImageUUID}")
+  public ResponseEntity<Void> getImage(@PathVariable String albumUUID, @PathVariable String albumImageUUID,
+      @RequestParam(required = false) String size, Principal principal) {
+
+    String imageURL = albumService.getImageURL(principal.getName(), albumUUID, albumImageUUID, size);
+
+    return ResponseEntity.status(HttpStatus.FOUND)
+        .location(URI.create(imageURL))
+        .build();
+  }
+
   @SuppressWarnings("null")
   @Operation(description = "앨범 내부 사진 삭제 API입니다.")
   @DeleteMapping("/{albumUUID}/image/{albumImageUUID}")
   public ResponseEntity<String> unloadImage(@PathVariable String albumUUID,
       @PathVariable String albumImageUUID) {
 
-    List<List<AlbumImageInfo>> imagesInfo = albumService.unloadImage(albumUUID, albumImageUUID);
-    simpMessageTemplate.convertAndSend("/sub/edit/" + albumUUID, imagesInfo);
+    albumService.unloadImage(albumUUID, albumImageUUID);
 
     return ResponseEntity.ok("이미지를 성공적으로 제외했습니다.");
   }
 
-  @Operation(description = "공동 작업을 위한 웹소켓 API 입니다.")
+  @SuppressWarnings("null")
+  @Operation(description = "앨범의 가장 최근 이미지 업로드, 편집 작업을 되돌리는 API입니다.")
+  @PostMapping("/{albumUUID}/undo")
+  public ResponseEntity<String> undo(@PathVariable String albumUUID, Principal principal) {
+
+    albumService.undo(principal.getName(), albumUUID);
+
+    return ResponseEntity.ok("작업을 성공적으로 되돌렸습니다.");
+  }
+
+  @SuppressWarnings("null")
+  @Operation(description = "앨범에서 가장 최근에 되돌린 작업을 다시 실행하는 API입니다.")
+  @PostMapping("/{albumUUID}/redo")
+  public ResponseEntity<String> redo(@PathVariable String albumUUID, Principal principal) {
+
+    albumService.redo(principal.getName(), albumUUID);
+
+    return ResponseEntity.ok("작업을 성공적으로 다시 실행했습니다.");
+  }
+
+  @Operation(description = "공동 작업을 위한 웹소켓 API 입니다. 짧은 시간 동안의 편집을 이미지별로 모아 반영된 변경 사항만 DELTA 로 전송합니다.")
   @MessageMapping("/edit/{albumUUID}")
-  @SendTo("/sub/edit/{albumUUID}")
-  public List<List<AlbumImageInfo>> editImage(@DestinationVariable String albumUUID,
+  public void editImage(@DestinationVariable String albumUUID,
       List<AlbumImageEditMessage> payload)
       throws Exception {
 
-    return albumService.editImage(albumUUID, payload);
+    albumEditCoalescer.submit(albumUUID, payload);
+  }
+
+  @Operation(description = "앨범 접속자 커서 위치 웹소켓 API 입니다. 저장하지 않으며, 모아서 /sub/presence/{albumUUID} 로 전송합니다.")
+  @MessageMapping("/presence/{albumUUID}")
+  public void updatePresence(@DestinationVariable String albumUUID, AlbumCursorMessage payload,
+      SimpMessageHeaderAccessor headerAccessor, Principal principal) {
+
+    // 구독 시 권한을 확인했으므로, 앨범을 구독 중인 연결의 커서만 받음
+    String sessionID = headerAccessor.getSessionId();
+    if (!WebSocketSessionHolder.isSubscribing(sessionID, albumUUID))
+      return;
+
+    albumPresenceManager.update(albumUUID, sessionID, principal.getName(), payload);
+  }
+
+  @Operation(description = "앨범 레이아웃 SNAPSHOT 요청 웹소켓 API 입니다. 입장 시, 혹은 DELTA 의 sequence 를 놓쳤을 때 요청합니다.")
+  @MessageMapping("/snapshot/{albumUUID}")
+  @SendToUser(destinations = "/sub/snapshot/{albumUUID}", broadcast = false)
+  public AlbumLayoutMessage getLayoutSnapshot(@DestinationVariable String albumUUID, Principal principal) {
+
+    return albumService.getLayoutSnapshot(principal.getName(), albumUUID);
+  }
+
+  @Operation(description = "다시 연결한 편집자가 마지막으로 받은 sequence 이후의 DELTA 를 요청하는 웹소켓 API 입니다. 놓친 DELTA 를 모두 알 수 없다면 SNAPSHOT 을 보냅니다.")
+  @MessageMapping("/resume/{albumUUID}/{sequence}")
+  @SendToUser(destinations = "/sub/resume/{albumUUID}", broadcast = false)
+  public List<AlbumLayoutMessage> resume(@DestinationVariable String albumUUID, @DestinationVariable long sequence,
+      Principal principal) {
+
+    return albumService.resume(principal.getName(), albumUUID, sequence);
   }
 
   @Operation(description = "앨범 정보 변경 API 입니다.")
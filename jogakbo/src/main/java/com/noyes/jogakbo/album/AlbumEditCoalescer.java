@@ -0,0 +1,159 @@
+package com.noyes.jogakbo.album;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 드래그 중 쏟아지는 이미지 편집 메세지를 앨범, 이미지 단위로 모아 마지막 값만 반영하는 단계
+ * 앨범의 첫 메세지가 들어온 뒤 coalesce-window-ms 동안 들어온 편집을 한 번의 DELTA 로 적용한다.
+ * 마지막으로 움직인 이미지가 맨 위로 오도록, 모인 편집은 마지막으로 받은 순서대로 적용된다.
+ * 한 앨범의 반영은 한 번에 하나씩만 실행하며, 앞선 반영이 끝나지 않았다면 다음 반영을 window 뒤로 미룬다.
+ *
+ * 순서 보장 범위
+ * - 같은 앨범의 편집은 AlbumLaneTaskExecutor 의 lane 에서 받은 순서대로 submit 되므로, 이미지마다 마지막으로 받은 값이 반영된다.
+ * - 먼저 받은 편집의 반영이 나중 편집의 반영보다 늦게 적용되지 않는다.
+ * - 반영은 lane 이 아닌 coalescer 스레드에서 window 뒤에 일어나므로, 같은 앨범의 다른 /pub 메세지(추가, 삭제, 페이지, 되돌리기)보다
+ *   먼저 받은 편집이라도 그 메세지보다 늦게 적용될 수 있다.
+ *   DELTA 는 적용 시점의 레이아웃 기준으로 반영되므로, 그 사이 삭제되었거나 다른 페이지로 옮겨진 이미지의 편집은 반영되지 않고 방송되지도 않는다.
+ *   클라이언트는 DELTA 의 sequence 로 실제 적용 순서를 따른다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlbumEditCoalescer {
+
+  private final AlbumService albumService;
+  private final MeterRegistry meterRegistry;
+
+  // albumUUID -> (albumImageUUID -> 마지막으로 받은 편집)
+  private final Map<String, LinkedHashMap<String, AlbumImageEditMessage>> pendingEdits = new ConcurrentHashMap<>();
+  // 모아둔 편집을 반영하고 있는 albumUUID 집합
+  private final Set<String> flushingAlbums = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService scheduler;
+
+  // 0 이하면 모으지 않고 바로 반영
+  @Value("${album.edit.coalesce-window-ms:0}")
+  private long coalesceWindowMs;
+
+  @Value("${album.edit.coalesce-threads:2}")
+  private int coalesceThreads;
+
+  @PostConstruct
+  public void init() {
+
+    scheduler = Executors.newScheduledThreadPool(coalesceThreads, runnable -> {
+
+      Thread thread = new Thread(runnable, "album-edit-coalescer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * 편집 메세지를 모아두고, 앨범에 모인 편집이 없었다면 window 뒤에 반영하도록 예약
+   *
+   * @param albumUUID
+   * @param payload
+   */
+  public void submit(String albumUUID, List<AlbumImageEditMessage> payload) {
+
+    if (coalesceWindowMs <= 0) {
+
+      albumService.editImage(albumUUID, payload);
+      return;
+    }
+
+    boolean[] firstInWindow = { false };
+    int[] merged = { 0 };
+    pendingEdits.compute(albumUUID, (key, edits) -> {
+
+      if (edits == null) {
+
+        edits = new LinkedHashMap<>();
+        firstInWindow[0] = true;
+      }
+
+      // 다시 넣어 마지막으로 움직인 순서를 유지
+      for (AlbumImageEditMessage edit : payload) {
+
+        if (edits.remove(edit.getAlbumImageUUID()) != null)
+          merged[0]++;
+        edits.put(edit.getAlbumImageUUID(), edit);
+      }
+
+      return edits;
+    });
+
+    if (merged[0] > 0)
+      meterRegistry.counter("album.edit.coalesced").increment(merged[0]);
+
+    if (firstInWindow[0])
+      scheduler.schedule(() -> flush(albumUUID), coalesceWindowMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+
+    // 실행 중인 반영이 끝난 뒤 남은 편집을 직접 반영
+    scheduler.shutdownNow();
+    scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    for (String albumUUID : new ArrayList<>(pendingEdits.keySet()))
+      flush(albumUUID);
+  }
+
+  private void flush(String albumUUID) {
+
+    // 앞선 반영보다 나중 편집이 먼저 적용되지 않도록 끝날 때까지 미룸
+    if (!flushingAlbums.add(albumUUID)) {
+
+      reschedule(albumUUID);
+      return;
+    }
+
+    LinkedHashMap<String, AlbumImageEditMessage> edits = pendingEdits.remove(albumUUID);
+    try {
+
+      if (edits != null && !edits.isEmpty())
+        albumService.editImage(albumUUID, new ArrayList<>(edits.values()));
+    } catch (RuntimeException e) {
+
+      log.warn("앨범 {} 에 모아둔 이미지 편집 {}건을 반영하지 못했습니다.", albumUUID, edits.size(), e);
+    } finally {
+
+      flushingAlbums.remove(albumUUID);
+    }
+  }
+
+  private void reschedule(String albumUUID) {
+
+    try {
+
+      scheduler.schedule(() -> flush(albumUUID), coalesceWindowMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+
+      // 종료 중이라면 shutdown 에서 남은 편집을 반영
+    }
+  }
+}
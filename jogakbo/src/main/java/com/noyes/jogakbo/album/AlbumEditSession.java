@@ -0,0 +1,105 @@
+package com.noyes.jogakbo.album;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * <pre>
+ * 편집자가 접속해 있는 앨범 하나의 레이아웃을 메모리에 들고 있는 단일 작성자(single-writer) 세션
+ * 제출된 작업은 공용 스레드 풀 위에서 한 번에 하나씩, 제출된 순서대로 실행된다.
+ * layout, dirty, flushedVersion, unflushed, closed 필드는 작업 안에서만 읽고 쓴다.
+ * </pre>
+ */
+class AlbumEditSession {
+
+  // 한 앨범이 스레드를 독점하지 않도록 한 번에 처리할 최대 작업 수
+  private static final int MAX_TASKS_PER_DRAIN = 64;
+
+  @Getter
+  private final String albumUUID;
+  private final Executor executor;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  @Getter
+  @Setter
+  private AlbumImagesInfo layout;
+  // 마지막으로 Redis 에 반영한 이후 변경이 있었는지 여부
+  @Getter
+  @Setter
+  private boolean dirty;
+  // 마지막으로 Redis 에서 읽거나 Redis 에 반영한 레이아웃의 version
+  @Getter
+  @Setter
+  private long flushedVersion;
+  // 마지막 반영 이후 적용된 DELTA 들, 다른 노드와 충돌하면 Redis 에 다시 적용한다.
+  @Getter
+  private final List<AlbumLayoutMessage> unflushed = new ArrayList<>();
+  // 세션이 정리되어 더 이상 작업을 받지 않는지 여부
+  @Getter
+  @Setter
+  private boolean closed;
+
+  AlbumEditSession(String albumUUID, Executor executor) {
+
+    this.albumUUID = albumUUID;
+    this.executor = executor;
+  }
+
+  /**
+   * 작업을 세션 큐에 넣고, 실행 결과를 받을 수 있는 future 반환
+   *
+   * @param <T>
+   * @param task
+   * @return
+   */
+  <T> CompletableFuture<T> submit(Supplier<T> task) {
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    tasks.add(() -> {
+
+      try {
+
+        future.complete(task.get());
+      } catch (Throwable e) {
+
+        future.completeExceptionally(e);
+      }
+    });
+    schedule();
+
+    return future;
+  }
+
+  private void schedule() {
+
+    if (running.compareAndSet(false, true))
+      executor.execute(this::drain);
+  }
+
+  private void drain() {
+
+    Runnable task;
+    int processed = 0;
+    while (processed++ < MAX_TASKS_PER_DRAIN && (task = tasks.poll()) != null)
+      task.run();
+
+    running.set(false);
+
+    // 처리하는 사이 새로 들어온 작업이 있다면 다시 스레드 풀에 등록
+    if (!tasks.isEmpty())
+      schedule();
+  }
+}
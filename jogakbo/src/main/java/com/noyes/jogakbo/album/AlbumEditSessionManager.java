@@ -0,0 +1,357 @@
+package com.noyes.jogakbo.album;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.RedisService;
+import com.noyes.jogakbo.global.websocket.AlbumBroadcaster;
+import com.noyes.jogakbo.global.websocket.WebSocketSessionHolder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 구독자가 있는 앨범의 레이아웃을 메모리에 올려두고 단일 작성자 큐에서 변경을 적용하는 세션 관리자
+ * 변경은 적용 즉시 브로드캐스트하고, Redis 에는 flush-interval-ms 주기 혹은 마지막 구독자가 나갈 때 반영한다.
+ * 반영은 세션이 마지막으로 읽은 version 과 Redis 의 version 이 같을 때만 이루어지며(CAS),
+ * 그 사이 다른 노드가 레이아웃을 바꾸었다면 반영하지 못한 DELTA 들을 Redis 에 다시 적용하고
+ * 세션을 Redis 의 레이아웃으로 다시 불러온 뒤 SNAPSHOT 을 보내 구독자를 맞춘다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlbumEditSessionManager {
+
+  private final RedisService redisService;
+  private final AlbumBroadcaster albumBroadcaster;
+  private final MeterRegistry meterRegistry;
+
+  private final Map<String, AlbumEditSession> sessions = new ConcurrentHashMap<>();
+  private ExecutorService executor;
+
+  // false 면 세션을 만들지 않고 모든 변경을 Redis 에 바로 반영
+  @Value("${album.session.enabled:false}")
+  private boolean enabled;
+
+  // 세션 작업을 실행할 공용 스레드 수
+  @Value("${album.session.worker-threads:4}")
+  private int workerThreads;
+
+  @PostConstruct
+  public void init() {
+
+    executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+
+      Thread thread = new Thread(runnable, "album-session");
+      thread.setDaemon(true);
+      return thread;
+    });
+    meterRegistry.gaugeMapSize("album.session.active", Tags.empty(), sessions);
+  }
+
+  /**
+   * 앨범의 변경을 세션에서 처리해야 하는지 여부
+   * 이미 세션이 열려 있거나, 앨범을 구독 중인 편집자가 있다면 세션에서 처리한다.
+   *
+   * @param albumUUID
+   * @return
+   */
+  public boolean isActive(String albumUUID) {
+
+    if (sessions.containsKey(albumUUID))
+      return true;
+
+    return enabled && WebSocketSessionHolder.countSessionsByDestination(albumUUID) > 0;
+  }
+
+  /**
+   * 변경 요청(DELTA)을 앨범 세션에서 적용하고 반영된 DELTA 를 즉시 브로드캐스트
+   *
+   * @param albumUUID
+   * @param request
+   * @return 실제로 반영된 항목과 반영 후 version 을 sequence 로 담은 DELTA
+   */
+  public AlbumLayoutMessage apply(String albumUUID, AlbumLayoutMessage request) {
+
+    return join(submit(albumUUID, request));
+  }
+
+  /**
+   * 세션이 열려 있는 앨범의 SNAPSHOT 반환, 세션이 없다면 null
+   *
+   * @param albumUUID
+   * @return
+   */
+  public AlbumLayoutMessage getSnapshot(String albumUUID) {
+
+    // 세션 밖에서 직렬화되는 동안 레이아웃이 바뀌지 않도록 복사본을 담아 보냄
+    return read(albumUUID, layout -> AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.SNAPSHOT)
+        .sequence(layout.getVersion())
+        .imagesInfo(layout.copyImagesInfo())
+        .build());
+  }
+
+  /**
+   * 세션이 열려 있는 앨범의 fromPage 부터 pageSize 개 페이지 반환, 세션이 없다면 null
+   *
+   * @param albumUUID
+   * @param fromPage
+   * @param pageSize
+   * @return
+   */
+  public AlbumPagesInfo getPages(String albumUUID, int fromPage, int pageSize) {
+
+    return read(albumUUID, layout -> layout.getPages(fromPage, pageSize));
+  }
+
+  /**
+   * 세션이 열려 있는 앨범의 페이지 수 반환, 세션이 없다면 null
+   *
+   * @param albumUUID
+   * @return
+   */
+  public Integer getPageCount(String albumUUID) {
+
+    return read(albumUUID, layout -> layout.getImagesInfo().size());
+  }
+
+  /**
+   * 마지막 구독자가 나간 앨범의 변경 사항을 Redis 에 반영하고 세션 정리
+   *
+   * @param albumUUID
+   */
+  public void release(String albumUUID) {
+
+    AlbumEditSession session = sessions.get(albumUUID);
+    if (session == null)
+      return;
+
+    session.submit(() -> {
+
+      flushAndCloseIfIdle(session);
+      return null;
+    });
+  }
+
+  /**
+   * 삭제되는 앨범의 세션을 Redis 에 반영하지 않고 정리
+   *
+   * @param albumUUID
+   * @return 세션에 올라와있던 마지막 레이아웃, 세션이 없었다면 null
+   */
+  public AlbumImagesInfo discard(String albumUUID) {
+
+    AlbumEditSession session = sessions.get(albumUUID);
+    if (session == null)
+      return null;
+
+    return join(session.submit(() -> {
+
+      close(session);
+      return session.getLayout();
+    }));
+  }
+
+  /**
+   * flush-interval-ms 마다 변경된 세션들을 Redis 에 반영하고, 구독자가 없는 세션은 정리
+   */
+  @Scheduled(fixedDelayString = "${album.session.flush-interval-ms:1000}")
+  public void flushAll() {
+
+    for (AlbumEditSession session : sessions.values()) {
+
+      session.submit(() -> {
+
+        flushAndCloseIfIdle(session);
+        return null;
+      });
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+
+    List<CompletableFuture<Object>> pending = new ArrayList<>();
+    for (AlbumEditSession session : sessions.values()) {
+
+      pending.add(session.submit(() -> {
+
+        flush(session);
+        close(session);
+        return null;
+      }));
+    }
+
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  // 세션 큐에서 레이아웃을 읽어 reader 결과 반환, 세션이 없거나 정리되었다면 null
+  private <T> T read(String albumUUID, Function<AlbumImagesInfo, T> reader) {
+
+    AlbumEditSession session = sessions.get(albumUUID);
+    if (session == null)
+      return null;
+
+    return join(session.submit(() -> session.isClosed() ? null : reader.apply(load(session))));
+  }
+
+  private CompletableFuture<AlbumLayoutMessage> submit(String albumUUID, AlbumLayoutMessage request) {
+
+    AlbumEditSession session = sessions.computeIfAbsent(albumUUID, key -> new AlbumEditSession(key, executor));
+
+    return session.submit(() -> {
+
+      if (session.isClosed())
+        return null;
+
+      AlbumLayoutMessage applied = load(session).applyDelta(request);
+      if (applied.hasChanges()) {
+
+        session.setDirty(true);
+        session.getUnflushed().add(applied);
+        albumBroadcaster.broadcast(albumUUID, applied);
+      }
+
+      return applied;
+    })
+        // 큐에서 기다리는 사이 세션이 정리되었다면 새 세션으로 다시 제출
+        .thenCompose(applied -> applied != null
+            ? CompletableFuture.completedFuture(applied)
+            : submit(albumUUID, request));
+  }
+
+  // 세션의 첫 작업에서 Redis 의 레이아웃을 메모리로 불러옴
+  private AlbumImagesInfo load(AlbumEditSession session) {
+
+    if (session.getLayout() == null) {
+
+      AlbumImagesInfo layout = redisService.getAlbumImagesInfo(session.getAlbumUUID());
+      if (layout == null) {
+
+        close(session);
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+      }
+      session.setLayout(layout);
+      session.setFlushedVersion(layout.getVersion());
+      session.getUnflushed().clear();
+    }
+
+    return session.getLayout();
+  }
+
+  // 반영에 실패했거나 다시 구독한 편집자가 있다면 세션을 유지
+  private void flushAndCloseIfIdle(AlbumEditSession session) {
+
+    if (flush(session) && WebSocketSessionHolder.countSessionsByDestination(session.getAlbumUUID()) == 0)
+      close(session);
+  }
+
+  /**
+   * <pre>
+   * 마지막 반영 이후 변경된 레이아웃을 Redis 에 저장
+   * Redis 의 version 이 세션이 마지막으로 읽은 version 과 다르다면 덮어쓰지 않고 rebase 한다.
+   * </pre>
+   *
+   * @param session
+   * @return 저장할 변경 사항이 없거나 저장에 성공했는지 여부
+   */
+  private boolean flush(AlbumEditSession session) {
+
+    if (!session.isDirty() || session.isClosed())
+      return true;
+
+    String albumUUID = session.getAlbumUUID();
+    try {
+
+      if (!redisService.compareAndSetAlbumRedisValue(albumUUID, session.getFlushedVersion(), session.getLayout()))
+        rebase(session);
+
+      session.setFlushedVersion(session.getLayout().getVersion());
+      session.getUnflushed().clear();
+      session.setDirty(false);
+      meterRegistry.counter("album.session.flushes").increment();
+      return true;
+    } catch (RuntimeException e) {
+
+      // 그 사이 앨범이 삭제되었다면 세션을 정리
+      if (e instanceof ResponseStatusException
+          && ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND) {
+
+        log.warn("앨범 {} 이 Redis 에 없어 세션을 정리합니다.", albumUUID);
+        close(session);
+        return true;
+      }
+
+      // dirty 를 유지해 다음 주기에 다시 시도
+      log.error("앨범 {} 레이아웃을 Redis 에 반영하지 못했습니다.", albumUUID, e);
+      return false;
+    }
+  }
+
+  // 다른 노드의 변경 위에 반영하지 못한 DELTA 들을 다시 적용하고, 세션을 Redis 의 레이아웃으로 다시 불러옴
+  private void rebase(AlbumEditSession session) {
+
+    String albumUUID = session.getAlbumUUID();
+    meterRegistry.counter("album.session.conflicts").increment();
+    log.warn("앨범 {} 을 다른 노드가 먼저 변경하여 {}개의 변경을 다시 적용합니다.", albumUUID, session.getUnflushed().size());
+
+    for (AlbumLayoutMessage delta : session.getUnflushed())
+      redisService.applyAlbumLayoutDelta(albumUUID, delta);
+
+    session.setLayout(null);
+    AlbumImagesInfo layout = load(session);
+    albumBroadcaster.broadcast(albumUUID, AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.SNAPSHOT)
+        .sequence(layout.getVersion())
+        .imagesInfo(layout.copyImagesInfo())
+        .build());
+  }
+
+  private void close(AlbumEditSession session) {
+
+    session.setClosed(true);
+    sessions.remove(session.getAlbumUUID(), session);
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+
+    try {
+
+      return future.join();
+    } catch (CompletionException e) {
+
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+
+      throw e;
+    }
+  }
+}
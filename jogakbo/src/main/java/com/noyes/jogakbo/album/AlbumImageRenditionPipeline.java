@@ -0,0 +1,428 @@
+package com.noyes.jogakbo.album;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.noyes.jogakbo.album.DTO.AlbumImageRendition;
+import com.noyes.jogakbo.global.s3.AwsS3Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 업로드된 이미지의 축소본(AlbumImageRendition)을 백그라운드에서 만드는 파이프라인
+ * 원본을 S3 에서 읽어 ImageIO 로 줄인 뒤 {albumUUID}/{rendition}/{fileName} 에 올리고,
+ * 만들어진 축소본 key 를 album:{albumUUID}:renditions Hash 에 기록한다.
+ * 유저 프로필 이미지는 userUUID 를 albumUUID 자리에 넣어 {userUUID}/{rendition}/{fileName} 에 같은 방식으로 만든다.
+ * JPEG 의 EXIF Orientation 은 ImageIO 가 적용하지 않으므로, 직접 읽어 회전, 반전한 뒤 줄인다.
+ * 작업 큐는 queue-capacity 로 제한하며, 가득 차면 작업을 버리고 클라이언트는 원본을 그대로 사용한다.
+ * ImageIO 로 읽을 수 없는 형식(HEIC 등)이거나 원본이 이미 충분히 작다면 축소본을 만들지 않는다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlbumImageRenditionPipeline {
+
+  private final AwsS3Service awsS3Service;
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final MeterRegistry meterRegistry;
+
+  private ThreadPoolExecutor renditionExecutor;
+  private Timer renditionTimer;
+
+  // 축소본을 만드는 스레드 수, 원본을 메모리에 풀어서 다루므로 작게 유지
+  @Value("${album.rendition.threads:2}")
+  private int threads;
+
+  // 처리를 기다릴 수 있는 최대 작업 수
+  @Value("${album.rendition.queue-capacity:1000}")
+  private int queueCapacity;
+
+  @PostConstruct
+  public void init() {
+
+    AtomicInteger threadCount = new AtomicInteger();
+    renditionExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+
+          Thread thread = new Thread(runnable, "album-rendition-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+
+    meterRegistry.gauge("album.rendition.queue", renditionExecutor, executor -> executor.getQueue().size());
+    renditionTimer = Timer.builder("album.rendition.duration").register(meterRegistry);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    renditionExecutor.shutdown();
+  }
+
+  /**
+   * 축소본 생성 작업 등록, 큐가 가득 찼다면 버림
+   *
+   * @param albumUUID
+   * @param fileNames S3 파일명
+   */
+  public void submit(String albumUUID, List<String> fileNames) {
+
+    for (String fileName : fileNames) {
+
+      try {
+
+        renditionExecutor.execute(() -> renditionTimer.record(() -> process(albumUUID, fileName)));
+      } catch (RejectedExecutionException e) {
+
+        meterRegistry.counter("album.rendition", "result", "rejected").increment();
+      }
+    }
+  }
+
+  /**
+   * 앨범의 이미지별로 만들어진 축소본 key 목록
+   *
+   * @param albumUUID
+   * @return albumImageUUID -> 축소본 key 목록
+   */
+  @SuppressWarnings("null")
+  public Map<String, List<String>> getRenditions(String albumUUID) {
+
+    Map<String, List<String>> renditions = new HashMap<>();
+    redisTemplate.opsForHash().entries(renditionsKey(albumUUID))
+        .forEach((fileName, keys) -> renditions.put((String) fileName, Arrays.asList(((String) keys).split(","))));
+
+    return renditions;
+  }
+
+  /**
+   * <pre>
+   * 클라이언트가 요청한 크기에 맞는 이미지 URL
+   * 해당 축소본이 아직 없다면 원본 URL 을 반환한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param fileName
+   * @param rendition 원본을 원한다면 null
+   * @return
+   */
+  public String getImageURL(String albumUUID, String fileName, AlbumImageRendition rendition) {
+
+    if (rendition != null) {
+
+      Object keys = redisTemplate.opsForHash().get(renditionsKey(albumUUID), fileName);
+      if (keys != null && Arrays.asList(((String) keys).split(",")).contains(rendition.getKey()))
+        return awsS3Service.getFileURL(rendition.getKey() + "/" + fileName, albumUUID);
+    }
+
+    return awsS3Service.getImageURL(fileName, albumUUID);
+  }
+
+  /**
+   * 이미지의 축소본 삭제, 원본을 삭제할 때 함께 호출
+   *
+   * @param albumUUID
+   * @param fileName
+   */
+  @SuppressWarnings("null")
+  public void remove(String albumUUID, String fileName) {
+
+    Object keys = redisTemplate.opsForHash().get(renditionsKey(albumUUID), fileName);
+    if (keys == null)
+      return;
+
+    redisTemplate.opsForHash().delete(renditionsKey(albumUUID), fileName);
+
+    List<String> renditionFileNames = new ArrayList<>();
+    for (String key : ((String) keys).split(","))
+      renditionFileNames.add(key + "/" + fileName);
+    awsS3Service.deleteFiles(renditionFileNames, albumUUID);
+  }
+
+  /**
+   * 앨범의 모든 축소본과 기록 삭제, 앨범을 삭제할 때 호출
+   *
+   * @param albumUUID
+   */
+  @SuppressWarnings("null")
+  public void removeAll(String albumUUID) {
+
+    List<String> renditionFileNames = new ArrayList<>();
+    getRenditions(albumUUID).forEach((fileName, keys) -> {
+
+      for (String key : keys)
+        renditionFileNames.add(key + "/" + fileName);
+    });
+
+    redisTemplate.delete(renditionsKey(albumUUID));
+    awsS3Service.deleteFiles(renditionFileNames, albumUUID);
+  }
+
+  private void process(String albumUUID, String fileName) {
+
+    try {
+
+      byte[] bytes;
+      try (InputStream inputStream = awsS3Service.openImage(fileName, albumUUID)) {
+        bytes = inputStream.readAllBytes();
+      }
+
+      BufferedImage original = ImageIO.read(new ByteArrayInputStream(bytes));
+      if (original == null) {
+
+        meterRegistry.counter("album.rendition", "result", "unsupported").increment();
+        return;
+      }
+
+      // 축소본은 EXIF 없이 저장되므로, 카메라가 기록한 방향을 픽셀에 반영
+      original = applyOrientation(original, readOrientation(bytes));
+
+      // PNG 는 투명도를 유지하고, 나머지는 JPEG 로 저장
+      boolean png = fileName.toLowerCase().endsWith(".png");
+      List<String> created = new ArrayList<>();
+      for (AlbumImageRendition rendition : AlbumImageRendition.values()) {
+
+        if (Math.max(original.getWidth(), original.getHeight()) <= rendition.getMaxEdge())
+          continue;
+
+        BufferedImage resized = resize(original, rendition.getMaxEdge(), png);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(resized, png ? "png" : "jpg", outputStream);
+
+        awsS3Service.putFile(rendition.getKey() + "/" + fileName, albumUUID, outputStream.toByteArray(),
+            png ? "image/png" : "image/jpeg");
+        created.add(rendition.getKey());
+      }
+
+      if (created.isEmpty()) {
+
+        meterRegistry.counter("album.rendition", "result", "skipped").increment();
+        return;
+      }
+
+      // 만드는 동안 원본이 삭제되었다면 기록하지 않고 축소본도 삭제
+      if (!awsS3Service.existsImage(fileName, albumUUID)) {
+
+        List<String> createdFileNames = new ArrayList<>();
+        for (String key : created)
+          createdFileNames.add(key + "/" + fileName);
+        awsS3Service.deleteFiles(createdFileNames, albumUUID);
+        return;
+      }
+
+      redisTemplate.opsForHash().put(renditionsKey(albumUUID), fileName, String.join(",", created));
+      meterRegistry.counter("album.rendition", "result", "success").increment();
+    } catch (IOException | RuntimeException e) {
+
+      meterRegistry.counter("album.rendition", "result", "failed").increment();
+      log.warn("앨범 {} 의 {} 축소본을 만들지 못했습니다.", albumUUID, fileName, e);
+    }
+  }
+
+  // 한 번에 크게 줄이면 화질이 떨어지므로, 목표 크기의 두 배 이하가 될 때까지 절반씩 줄인 뒤 맞춤
+  private static BufferedImage resize(BufferedImage original, int maxEdge, boolean keepAlpha) {
+
+    double scale = (double) maxEdge / Math.max(original.getWidth(), original.getHeight());
+    int targetWidth = Math.max(1, (int) Math.round(original.getWidth() * scale));
+    int targetHeight = Math.max(1, (int) Math.round(original.getHeight() * scale));
+    int imageType = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+    BufferedImage current = original;
+    int width = original.getWidth();
+    int height = original.getHeight();
+    do {
+
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+
+      BufferedImage scaled = new BufferedImage(width, height, imageType);
+      Graphics2D graphics = scaled.createGraphics();
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(current, 0, 0, width, height, null);
+      graphics.dispose();
+      current = scaled;
+    } while (width != targetWidth || height != targetHeight);
+
+    return current;
+  }
+
+  /**
+   * <pre>
+   * JPEG 의 APP1(Exif) 세그먼트에서 IFD0 의 Orientation(0x0112) 값을 읽음
+   * JPEG 가 아니거나 값이 없다면 1(그대로)
+   * </pre>
+   *
+   * @param bytes 원본 파일
+   * @return 1 ~ 8
+   */
+  static int readOrientation(byte[] bytes) {
+
+    if (bytes.length < 4 || (bytes[0] & 0xFF) != 0xFF || (bytes[1] & 0xFF) != 0xD8)
+      return 1;
+
+    int pos = 2;
+    while (pos + 4 <= bytes.length && (bytes[pos] & 0xFF) == 0xFF) {
+
+      int marker = bytes[pos + 1] & 0xFF;
+      // 이미지 데이터가 시작되면 더 이상 메타데이터가 없음
+      if (marker == 0xDA || marker == 0xD9)
+        return 1;
+
+      int length = readUnsignedShort(bytes, pos + 2, true);
+      if (marker == 0xE1 && length >= 8 && pos + 2 + length <= bytes.length
+          && new String(bytes, pos + 4, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0"))
+        return readTiffOrientation(bytes, pos + 10, pos + 2 + length);
+
+      pos += 2 + length;
+    }
+
+    return 1;
+  }
+
+  // TIFF 헤더부터 시작하는 Exif 데이터에서 IFD0 의 Orientation 값
+  private static int readTiffOrientation(byte[] bytes, int start, int end) {
+
+    if (start + 8 > end)
+      return 1;
+
+    boolean bigEndian;
+    if (bytes[start] == 'M' && bytes[start + 1] == 'M')
+      bigEndian = true;
+    else if (bytes[start] == 'I' && bytes[start + 1] == 'I')
+      bigEndian = false;
+    else
+      return 1;
+
+    long ifdOffset = readUnsignedInt(bytes, start + 4, bigEndian);
+    if (ifdOffset < 8 || start + ifdOffset + 2 > end)
+      return 1;
+
+    int ifd = start + (int) ifdOffset;
+    int entries = readUnsignedShort(bytes, ifd, bigEndian);
+    for (int i = 0; i < entries; i++) {
+
+      int entry = ifd + 2 + i * 12;
+      if (entry + 12 > end)
+        return 1;
+
+      if (readUnsignedShort(bytes, entry, bigEndian) == 0x0112) {
+
+        int orientation = readUnsignedShort(bytes, entry + 8, bigEndian);
+        return orientation >= 1 && orientation <= 8 ? orientation : 1;
+      }
+    }
+
+    return 1;
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int pos, boolean bigEndian) {
+
+    int first = bytes[pos] & 0xFF;
+    int second = bytes[pos + 1] & 0xFF;
+
+    return bigEndian ? (first << 8) | second : (second << 8) | first;
+  }
+
+  private static long readUnsignedInt(byte[] bytes, int pos, boolean bigEndian) {
+
+    long high = readUnsignedShort(bytes, bigEndian ? pos : pos + 2, bigEndian);
+    long low = readUnsignedShort(bytes, bigEndian ? pos + 2 : pos, bigEndian);
+
+    return (high << 16) | low;
+  }
+
+  /**
+   * EXIF Orientation 에 맞게 회전, 반전한 이미지
+   *
+   * @param image
+   * @param orientation 1 ~ 8, 5 ~ 8 은 가로, 세로가 바뀜
+   * @return 1 이라면 그대로 반환
+   */
+  static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+
+    if (orientation <= 1 || orientation > 8)
+      return image;
+
+    int width = image.getWidth();
+    int height = image.getHeight();
+
+    AffineTransform transform = new AffineTransform();
+    switch (orientation) {
+      case 2: // 좌우 반전
+        transform.translate(width, 0);
+        transform.scale(-1, 1);
+        break;
+      case 3: // 180도 회전
+        transform.translate(width, height);
+        transform.rotate(Math.PI);
+        break;
+      case 4: // 상하 반전
+        transform.translate(0, height);
+        transform.scale(1, -1);
+        break;
+      case 5: // 좌상단-우하단 대각선 기준 반전
+        transform.rotate(-Math.PI / 2);
+        transform.scale(-1, 1);
+        break;
+      case 6: // 시계 방향 90도 회전
+        transform.translate(height, 0);
+        transform.rotate(Math.PI / 2);
+        break;
+      case 7: // 우상단-좌하단 대각선 기준 반전
+        transform.translate(height, width);
+        transform.rotate(Math.PI / 2);
+        transform.scale(-1, 1);
+        break;
+      default: // 8: 반시계 방향 90도 회전
+        transform.translate(0, width);
+        transform.rotate(-Math.PI / 2);
+        break;
+    }
+
+    boolean swap = orientation >= 5;
+    int imageType = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    BufferedImage oriented = new BufferedImage(swap ? height : width, swap ? width : height, imageType);
+    Graphics2D graphics = oriented.createGraphics();
+    graphics.drawImage(image, transform, null);
+    graphics.dispose();
+
+    return oriented;
+  }
+
+  // 같은 앨범의 key 들이 같은 slot 에 배치되도록 albumUUID 를 hash tag 로 사용
+  private static String renditionsKey(String albumUUID) {
+
+    return "album:{" + albumUUID + "}:renditions";
+  }
+}
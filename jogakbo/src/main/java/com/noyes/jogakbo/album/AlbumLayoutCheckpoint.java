@@ -0,0 +1,35 @@
+package com.noyes.jogakbo.album;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * <pre>
+ * Redis 의 앨범 레이아웃을 Mongo 에 저장해 둔 체크포인트
+ * Album 과 다른 collection 에 두어, Album 을 저장할 때 체크포인트가 덮어써지지 않게 한다.
+ * AlbumLayoutCheckpointer 만 기록한다.
+ * </pre>
+ */
+@Data
+@Builder
+@Document(collection = "album_layout")
+public class AlbumLayoutCheckpoint {
+
+  // field with albumUUID of checkpointed album
+  @Id
+  private String albumUUID;
+  // field with layout checkpointed from redis
+  private List<List<AlbumImageInfo>> albumImages;
+  // field with redis layout version of albumImages
+  private long layoutVersion;
+  // field with redis layout lastModifiedDate of albumImages
+  private LocalDateTime layoutModifiedDate;
+}
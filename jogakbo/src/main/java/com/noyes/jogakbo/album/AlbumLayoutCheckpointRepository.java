@@ -0,0 +1,6 @@
+package com.noyes.jogakbo.album;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface AlbumLayoutCheckpointRepository extends MongoRepository<AlbumLayoutCheckpoint, String> {
+}
@@ -0,0 +1,158 @@
+package com.noyes.jogakbo.album;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.AlbumOperationLog;
+import com.noyes.jogakbo.global.redis.RedisService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * Redis 의 앨범 레이아웃을 AlbumLayoutCheckpoint 에 주기적으로 저장하는 체크포인터
+ * 변경된 앨범은 Redis 의 dirty 집합으로 관리하므로, 비용은 앨범 수가 아닌 편집량에 비례한다.
+ * 한 주기에 최대 batch-size 개의 앨범만 bulk write 로 저장해 Mongo 쓰기 속도를 제한한다.
+ * 가져간 앨범은 Mongo 에 같거나 더 최신 version 이 저장된 것을 확인한 뒤에만 완료 처리하고 작업 로그를 압축하며,
+ * 나머지는 dirty 집합으로 되돌린다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlbumLayoutCheckpointer {
+
+  private final RedisService redisService;
+  private final AlbumOperationLog albumOperationLog;
+  private final MongoTemplate mongoTemplate;
+  private final MeterRegistry meterRegistry;
+
+  // 한 주기에 체크포인트할 최대 앨범 수
+  @Value("${album.checkpoint.batch-size:100}")
+  private int batchSize;
+
+  // 가져간 노드가 이 시간 안에 완료하지 못하면 다른 노드가 다시 체크포인트
+  @Value("${album.checkpoint.claim-timeout-ms:60000}")
+  private long claimTimeoutMs;
+
+  @Scheduled(fixedDelayString = "${album.checkpoint.interval-ms:5000}")
+  public void checkpoint() {
+
+    List<String> albumUUIDs = redisService.claimDirtyAlbums(batchSize, Duration.ofMillis(claimTimeoutMs));
+    if (albumUUIDs.isEmpty())
+      return;
+
+    // Redis 에 레이아웃이 없는 앨범은 저장할 것이 없으므로 바로 완료
+    List<String> skipped = new ArrayList<>();
+    Map<String, Long> versions = new HashMap<>();
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, AlbumLayoutCheckpoint.class);
+    try {
+
+      for (String albumUUID : albumUUIDs) {
+
+        AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+        if (albumImagesInfo == null) {
+
+          skipped.add(albumUUID);
+          continue;
+        }
+
+        // 다른 노드가 더 최신 version 을 이미 저장했다면 덮어쓰지 않음
+        Query query = Query.query(Criteria.where("_id").is(albumUUID)
+            .and("layoutVersion").lt(albumImagesInfo.getVersion()));
+
+        Update update = new Update()
+            .set("albumImages", albumImagesInfo.getImagesInfo())
+            .set("layoutVersion", albumImagesInfo.getVersion())
+            .set("layoutModifiedDate", albumImagesInfo.getLastModifiedDate());
+
+        bulkOperations.upsert(query, update);
+        versions.put(albumUUID, albumImagesInfo.getVersion());
+      }
+
+      if (!versions.isEmpty())
+        execute(bulkOperations);
+
+      List<String> written = findCheckpointed(versions);
+      redisService.completeCheckpoint(skipped);
+      redisService.completeCheckpoint(written);
+      meterRegistry.counter("album.checkpoint.albums").increment(written.size());
+
+      // Mongo 에 반영이 확인된 앨범의 작업 로그만 압축
+      written.forEach(albumOperationLog::compact);
+
+      if (written.size() < versions.size()) {
+
+        List<String> failed = new ArrayList<>(versions.keySet());
+        failed.removeAll(written);
+        retryLater(failed);
+      }
+    } catch (RuntimeException e) {
+
+      // 다음 주기에 다시 시도하도록 되돌려 놓음
+      List<String> failed = new ArrayList<>(albumUUIDs);
+      failed.removeAll(skipped);
+      retryLater(failed);
+      log.error("앨범 레이아웃 {}개를 Mongo 에 체크포인트하지 못했습니다.", failed.size(), e);
+    }
+  }
+
+  // 더 최신 version 이 이미 저장되어 있어 upsert 가 중복 key 로 실패한 항목은 무시
+  private void execute(BulkOperations bulkOperations) {
+
+    try {
+
+      bulkOperations.execute();
+    } catch (BulkOperationException e) {
+
+      if (e.getErrors().stream().anyMatch(error -> error.getCode() != 11000))
+        throw e;
+    } catch (DuplicateKeyException e) {
+
+      log.debug("이미 더 최신 체크포인트가 저장된 앨범이 있습니다.");
+    }
+  }
+
+  // 읽었던 version 과 같거나 더 최신인 체크포인트가 저장된 앨범
+  private List<String> findCheckpointed(Map<String, Long> versions) {
+
+    List<String> checkpointed = new ArrayList<>();
+    if (versions.isEmpty())
+      return checkpointed;
+
+    Query query = Query.query(Criteria.where("_id").in(versions.keySet()));
+    query.fields().include("layoutVersion");
+
+    for (AlbumLayoutCheckpoint checkpoint : mongoTemplate.find(query, AlbumLayoutCheckpoint.class)) {
+
+      if (checkpoint.getLayoutVersion() >= versions.get(checkpoint.getAlbumUUID()))
+        checkpointed.add(checkpoint.getAlbumUUID());
+    }
+
+    return checkpointed;
+  }
+
+  private void retryLater(List<String> albumUUIDs) {
+
+    albumUUIDs.forEach(redisService::markAlbumDirty);
+    redisService.completeCheckpoint(albumUUIDs);
+  }
+}
@@ -0,0 +1,181 @@
+package com.noyes.jogakbo.album;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <pre>
+ * 앨범별 소유자와 공동 작업자 목록을 노드 메모리에 들고 있는 권한 확인용 캐시
+ * Mongo 에서는 albumOwner, albumEditors 필드만 읽으며, max-size, ttl-ms 로 크기와 유지 시간을 제한한다.
+ * 초대 수락, 앨범 삭제처럼 구성원이 바뀌면 album:membership:invalidate 채널로 모든 노드의 캐시를 비운다.
+ * </pre>
+ */
+@Component
+@RequiredArgsConstructor
+public class AlbumMembershipCache implements MessageListener {
+
+  private static final String INVALIDATE_CHANNEL = "album:membership:invalidate";
+
+  private final MongoTemplate mongoTemplate;
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final RedisMessageListenerContainer redisMessageListenerContainer;
+  private final MeterRegistry meterRegistry;
+
+  // accessOrder 로 LRU 순서 유지, 접근 시에도 순서가 바뀌므로 항상 동기화해서 사용
+  private final LinkedHashMap<String, AlbumMembership> cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, AlbumMembership> eldest) {
+
+      return size() > maxSize;
+    }
+  };
+
+  // 무효화가 일어날 때마다 증가, 읽는 도중 무효화된 구성원을 다시 캐시에 넣지 않기 위해 사용
+  private final AtomicLong invalidations = new AtomicLong();
+
+  // 0 이하면 캐시를 사용하지 않음
+  @Value("${album.membership.cache.max-size:10000}")
+  private int maxSize;
+
+  @Value("${album.membership.cache.ttl-ms:60000}")
+  private long ttlMs;
+
+  @PostConstruct
+  public void init() {
+
+    redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+  }
+
+  /**
+   * 유저가 앨범 소유자이거나 공동 작업자인지 확인
+   *
+   * @param albumUUID
+   * @param userUUID
+   * @return 앨범이 없다면 null
+   */
+  public Boolean isMember(String albumUUID, String userUUID) {
+
+    AlbumMembership albumMembership = get(albumUUID);
+
+    return albumMembership == null ? null : albumMembership.contains(userUUID);
+  }
+
+  /**
+   * 이 노드의 캐시에서 버리고, 다른 노드들에게도 버리도록 발행
+   *
+   * @param albumUUID
+   */
+  @SuppressWarnings("null")
+  public void invalidate(String albumUUID) {
+
+    evict(albumUUID);
+    if (maxSize > 0)
+      redisTemplate.convertAndSend(INVALIDATE_CHANNEL, albumUUID);
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+
+    evict(new String(message.getBody(), StandardCharsets.UTF_8));
+  }
+
+  private AlbumMembership get(String albumUUID) {
+
+    if (maxSize <= 0)
+      return load(albumUUID);
+
+    long now = System.currentTimeMillis();
+    synchronized (cache) {
+
+      AlbumMembership cached = cache.get(albumUUID);
+      if (cached != null && cached.expiresAt > now) {
+
+        meterRegistry.counter("album.membership.cache", "result", "hit").increment();
+        return cached;
+      }
+      if (cached != null)
+        cache.remove(albumUUID);
+    }
+
+    meterRegistry.counter("album.membership.cache", "result", "miss").increment();
+
+    long invalidationsBeforeLoad = invalidations.get();
+    AlbumMembership albumMembership = load(albumUUID);
+    if (albumMembership == null)
+      return null;
+
+    albumMembership.expiresAt = now + ttlMs;
+    synchronized (cache) {
+
+      if (invalidations.get() == invalidationsBeforeLoad)
+        cache.put(albumUUID, albumMembership);
+    }
+
+    return albumMembership;
+  }
+
+  // 레이아웃 등 나머지 필드는 읽지 않음
+  private AlbumMembership load(String albumUUID) {
+
+    Query query = Query.query(Criteria.where("_id").is(albumUUID));
+    query.fields().include("albumOwner", "albumEditors");
+
+    Album album = mongoTemplate.findOne(query, Album.class);
+    if (album == null)
+      return null;
+
+    Set<String> albumEditors = new HashSet<>();
+    if (album.getAlbumEditors() != null)
+      albumEditors.addAll(album.getAlbumEditors());
+
+    return new AlbumMembership(album.getAlbumOwner(), albumEditors);
+  }
+
+  private void evict(String albumUUID) {
+
+    synchronized (cache) {
+
+      invalidations.incrementAndGet();
+      cache.remove(albumUUID);
+    }
+  }
+
+  private static class AlbumMembership {
+
+    private final String albumOwner;
+    private final Set<String> albumEditors;
+    private long expiresAt;
+
+    private AlbumMembership(String albumOwner, Set<String> albumEditors) {
+
+      this.albumOwner = albumOwner;
+      this.albumEditors = albumEditors;
+    }
+
+    private boolean contains(String userUUID) {
+
+      return albumOwner.equals(userUUID) || albumEditors.contains(userUUID);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.noyes.jogakbo.album;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.noyes.jogakbo.album.DTO.AlbumCursorInfo;
+import com.noyes.jogakbo.album.DTO.AlbumCursorMessage;
+import com.noyes.jogakbo.album.DTO.AlbumPresenceMessage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <pre>
+ * 앨범별 접속자의 커서 위치를 메모리에만 들고 있다가 주기적으로 모아 전송하는 관리자
+ * Redis, Mongo 를 거치지 않으며, 편집 경로와 별개로 /sub/presence/{albumUUID} 로만 전송한다.
+ * 연결별로 min-interval-ms 보다 자주 들어온 커서는 버리고, flush-interval-ms 동안 움직인 커서는 마지막 위치만 보낸다.
+ * 노드 메모리에만 있으므로 같은 노드에 접속한 편집자끼리만 서로의 커서를 볼 수 있다.
+ * 앨범별 presence 는 ConcurrentHashMap 의 compute 안에서만 읽고 쓰므로, 정리와 갱신이 겹쳐 커서가 사라지지 않는다.
+ * </pre>
+ */
+@Component
+public class AlbumPresenceManager {
+
+  private final SimpMessagingTemplate simpMessagingTemplate;
+  private final MeterRegistry meterRegistry;
+
+  private final Map<String, AlbumPresence> presences = new ConcurrentHashMap<>();
+
+  // 한 연결이 커서를 보낼 수 있는 최소 간격
+  @Value("${album.presence.min-interval-ms:50}")
+  private long minIntervalMs;
+
+  // 웹소켓 설정보다 먼저 생성될 수 있으므로, 순환 참조를 피하기 위해 지연 주입
+  public AlbumPresenceManager(@Lazy SimpMessagingTemplate simpMessagingTemplate, MeterRegistry meterRegistry) {
+
+    this.simpMessagingTemplate = simpMessagingTemplate;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * 커서 위치 갱신, 너무 자주 들어온 갱신은 버림
+   *
+   * @param albumUUID
+   * @param sessionID
+   * @param userUUID
+   * @param cursor
+   */
+  public void update(String albumUUID, String sessionID, String userUUID, AlbumCursorMessage cursor) {
+
+    long now = System.currentTimeMillis();
+
+    // flush 가 빈 presence 를 정리하는 것과 겹치지 않도록 앨범 key 의 compute 안에서 갱신
+    presences.compute(albumUUID, (key, presence) -> {
+
+      if (presence == null)
+        presence = new AlbumPresence();
+
+      Long lastUpdatedAt = presence.lastUpdatedAt.get(sessionID);
+      if (lastUpdatedAt != null && now - lastUpdatedAt < minIntervalMs) {
+
+        meterRegistry.counter("album.presence.dropped").increment();
+        return presence;
+      }
+
+      presence.lastUpdatedAt.put(sessionID, now);
+      presence.left.remove(sessionID);
+      presence.moved.put(sessionID, AlbumCursorInfo.builder()
+          .cursorID(sessionID)
+          .userUUID(userUUID)
+          .pageNum(cursor.getPageNum())
+          .x(cursor.getX())
+          .y(cursor.getY())
+          .build());
+
+      return presence;
+    });
+  }
+
+  /**
+   * 앨범을 떠난 연결의 커서 제거, 다음 전송에 left 로 알림
+   *
+   * @param albumUUID
+   * @param sessionID
+   */
+  public void leave(String albumUUID, String sessionID) {
+
+    presences.computeIfPresent(albumUUID, (key, presence) -> {
+
+      presence.moved.remove(sessionID);
+      if (presence.lastUpdatedAt.remove(sessionID) != null)
+        presence.left.add(sessionID);
+
+      return presence;
+    });
+  }
+
+  @Scheduled(fixedDelayString = "${album.presence.flush-interval-ms:100}")
+  public void flush() {
+
+    for (String albumUUID : presences.keySet()) {
+
+      AlbumPresenceMessage[] message = { null };
+
+      // 비었는지 확인하고 정리하는 것까지 update, leave 와 같은 key 잠금 안에서 처리
+      presences.computeIfPresent(albumUUID, (key, presence) -> {
+
+        if (presence.moved.isEmpty() && presence.left.isEmpty()) {
+
+          // 커서를 보낸 연결이 모두 떠난 앨범은 정리
+          return presence.lastUpdatedAt.isEmpty() ? null : presence;
+        }
+
+        message[0] = AlbumPresenceMessage.builder()
+            .cursors(new ArrayList<>(presence.moved.values()))
+            .left(new ArrayList<>(presence.left))
+            .build();
+        presence.moved.clear();
+        presence.left.clear();
+
+        return presence;
+      });
+
+      if (message[0] != null)
+        simpMessagingTemplate.convertAndSend("/sub/presence/" + albumUUID, message[0]);
+    }
+  }
+
+  private static class AlbumPresence {
+
+    // sessionID -> 마지막으로 커서를 받은 시간
+    private final Map<String, Long> lastUpdatedAt = new LinkedHashMap<>();
+    // 지난 전송 이후 움직인 커서
+    private final Map<String, AlbumCursorInfo> moved = new LinkedHashMap<>();
+    // 지난 전송 이후 떠난 sessionID
+    private final Set<String> left = new LinkedHashSet<>();
+  }
+}
@@ -1,12 +1,21 @@
 package com.noyes.jogakbo.album;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -20,11 +29,25 @@ import com.noyes.jogakbo.album.DTO.AlbumInitInfo;
 import com.noyes.jogakbo.album.DTO.AlbumInvitationMessage;
 import com.noyes.jogakbo.album.DTO.AlbumImageEditInfo;
 import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageRendition;
+import com.noyes.jogakbo.album.DTO.AlbumImageUploadInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageUploadURL;
 import com.noyes.jogakbo.album.DTO.AlbumInfo;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
 import com.noyes.jogakbo.album.DTO.AlbumMemberInfo;
+import com.noyes.jogakbo.album.DTO.AlbumOperation;
+import com.noyes.jogakbo.album.DTO.AlbumOperationType;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+import com.noyes.jogakbo.album.DTO.AlbumSummary;
 import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.AlbumOperationLog;
+import com.noyes.jogakbo.global.redis.AlbumSummaryStore;
+import com.noyes.jogakbo.global.redis.ImageContentIndex;
 import com.noyes.jogakbo.global.redis.RedisService;
 import com.noyes.jogakbo.global.s3.AwsS3Service;
+import com.noyes.jogakbo.global.websocket.AlbumBroadcaster;
+import com.noyes.jogakbo.global.websocket.AlbumResumeBuffer;
 import com.noyes.jogakbo.global.websocket.WebSocketSessionHolder;
 import com.noyes.jogakbo.user.User;
 import com.noyes.jogakbo.user.UserService;
@@ -39,10 +62,37 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class AlbumService {
 
+  // 요약을 만드는 동안 반영된 변경 때문에 저장이 거절될 때, 레이아웃을 다시 읽어 만드는 최대 횟수
+  private static final int SUMMARY_SEED_ATTEMPTS = 3;
+
   private final AlbumRepository albumRepository;
+  private final AlbumLayoutCheckpointRepository albumLayoutCheckpointRepository;
   private final UserService userService;
   private final AwsS3Service awsS3Service;
   private final RedisService redisService;
+  private final AlbumEditSessionManager albumEditSessionManager;
+  private final AlbumBroadcaster albumBroadcaster;
+  private final AlbumOperationLog albumOperationLog;
+  private final AlbumSummaryStore albumSummaryStore;
+  private final AlbumMembershipCache albumMembershipCache;
+  private final AlbumResumeBuffer albumResumeBuffer;
+  private final AlbumImageRenditionPipeline albumImageRenditionPipeline;
+  private final ImageContentIndex imageContentIndex;
+
+  // 페이지 단위 조회 시 한 번에 받을 수 있는 최대 페이지 수
+  @Value("${album.init.max-page-size:50}")
+  private int maxPageSize;
+
+  // presigned URL 의 유효 시간과 한 번에 발급할 수 있는 최대 개수
+  @Value("${album.upload.presign-expiry-ms:600000}")
+  private long presignExpiryMs;
+
+  @Value("${album.upload.max-files:50}")
+  private int maxUploadFiles;
+
+  // presigned URL 로 올린 파일은 서버를 거치지 않으므로 등록할 때 크기 확인
+  @Value("${spring.servlet.multipart.max-file-size:10MB}")
+  private DataSize maxFileSize;
 
   @SuppressWarnings("null")
   public Album getAlbum(String albumUUID) {
@@ -51,7 +101,19 @@ public class AlbumService {
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다."));
   }
 
-  public AlbumInitInfo getEntryMessage(String userUUID, String albumUUID) {
+  /**
+   * <pre>
+   * 앨범 입장 시 앨범 이름과 레이아웃 반환
+   * pageSize 가 주어지면 fromPage 부터 pageSize 개 페이지만 담고, 나머지는 getAlbumPages 로 받아오게 한다.
+   * </pre>
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @param fromPage
+   * @param pageSize
+   * @return
+   */
+  public AlbumInitInfo getEntryMessage(String userUUID, String albumUUID, Integer fromPage, Integer pageSize) {
 
     // 앨범 ID로 앨범 가져오기
     Album album = getAlbum(albumUUID);
@@ -62,15 +124,65 @@ public class AlbumService {
     if (!albumOwner.equals(userUUID) && !albumEditors.contains(userUUID))
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "앨범을 조회할 권한이 없습니다.");
 
-    AlbumImagesInfo targetInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
-    List<List<AlbumImageInfo>> imagesInfo = targetInfo.getImagesInfo();
+    if (pageSize != null) {
+
+      AlbumPagesInfo albumPagesInfo = getPages(albumUUID, fromPage == null ? 0 : fromPage, pageSize);
+
+      return AlbumInitInfo.builder()
+          .albumName(album.getAlbumName())
+          .sequence(albumPagesInfo.getSequence())
+          .pageCount(albumPagesInfo.getPageCount())
+          .fromPage(albumPagesInfo.getFromPage())
+          .imagesInfo(albumPagesInfo.getImagesInfo())
+          .build();
+    }
+
+    AlbumLayoutMessage snapshot = getSnapshot(albumUUID);
 
     return AlbumInitInfo.builder()
         .albumName(album.getAlbumName())
-        .imagesInfo(imagesInfo)
+        .sequence(snapshot.getSequence())
+        .pageCount(snapshot.getImagesInfo().size())
+        .imagesInfo(snapshot.getImagesInfo())
         .build();
   }
 
+  /**
+   * 앨범 입장 후 아직 받지 않은 페이지를 fromPage 부터 pageSize 개 반환
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @param fromPage
+   * @param pageSize
+   * @return
+   */
+  public AlbumPagesInfo getAlbumPages(String userUUID, String albumUUID, int fromPage, int pageSize) {
+
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    return getPages(albumUUID, fromPage, pageSize);
+  }
+
+  // 편집 세션이 열려있다면 메모리에서, 아니라면 Redis 에서 요청한 페이지만 읽음
+  private AlbumPagesInfo getPages(String albumUUID, int fromPage, int pageSize) {
+
+    if (fromPage < 0 || pageSize <= 0 || pageSize > maxPageSize)
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "fromPage 는 0 이상, pageSize 는 1 이상 " + maxPageSize + " 이하여야 합니다.");
+
+    AlbumPagesInfo albumPagesInfo = albumEditSessionManager.getPages(albumUUID, fromPage, pageSize);
+    if (albumPagesInfo == null)
+      albumPagesInfo = withLayoutRestore(albumUUID, () -> redisService.getAlbumPages(albumUUID, fromPage, pageSize));
+
+    // 페이지 정보는 요청마다 새로 만들어지므로 그대로 바꿔서 보냄
+    albumPagesInfo.setImagesInfo(
+        attachImageDetails(albumUUID, albumPagesInfo.getImagesInfo()));
+
+    return albumPagesInfo;
+  }
+
   @SuppressWarnings("null")
   public String createAlbum(String albumName, String userUUID) {
 
@@ -92,26 +204,27 @@ public class AlbumService {
 
     redisService.setAlbumRedisValue(albumUUID, albumImagesInfo);
 
+    albumSummaryStore.init(albumUUID, AlbumSummary.builder()
+        .pageCount(albumImagesInfo.getImagesInfo().size())
+        .memberCount(1)
+        .lastModifiedDate(albumImagesInfo.getLastModifiedDate())
+        .version(albumImagesInfo.getVersion())
+        .build());
+
     return albumUUID;
   }
 
-  public List<List<AlbumImageInfo>> addNewPage(String albumUUID) {
-
-    AlbumImagesInfo targetInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
-    List<List<AlbumImageInfo>> imagesInfo = targetInfo.getImagesInfo();
-    imagesInfo.add(new ArrayList<>());
-    redisService.setAlbumRedisValue(albumUUID, targetInfo);
+  public AlbumLayoutMessage addNewPage(String albumUUID) {
 
-    return imagesInfo;
+    return applyLayoutDelta(albumUUID, AlbumOperationType.ADD_PAGE, AlbumLayoutMessage.builder()
+        .addedPages(1)
+        .build());
   }
 
   @SuppressWarnings("null")
-  public List<List<AlbumImageInfo>> uploadImages(String albumUUID, List<MultipartFile> multipartFiles,
+  public AlbumLayoutMessage uploadImages(String albumUUID, List<MultipartFile> multipartFiles,
       String fileInfos) {
 
-    // S3에 업로드 시도 후, 업로드 된 S3 파일명 리스트로 받아오기
-    List<String> uploadFileNames = awsS3Service.uploadFiles(multipartFiles, albumUUID);
-
     ObjectMapper objectMapper = new ObjectMapper();
     List<AlbumImageEditInfo> imageInfos = null;
     try {
@@ -124,83 +237,548 @@ public class AlbumService {
       e.printStackTrace();
     }
 
-    AlbumImagesInfo targetInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
-    List<List<AlbumImageInfo>> imagesInfo = targetInfo.getImagesInfo();
+    validatePageNums(albumUUID, imageInfos);
+
+    // S3에 업로드 시도 후, 업로드 된 S3 파일명 리스트로 받아오기
+    List<String> uploadFileNames = awsS3Service.uploadFiles(multipartFiles, albumUUID);
 
+    // 업로드된 파일명과 클라이언트가 보낸 배치 정보를 묶어 레이아웃에 추가
+    List<AlbumImageEditMessage> newImages = new ArrayList<>();
+    Map<String, Long> imageBytes = new HashMap<>();
     for (int i = 0; i < uploadFileNames.size(); i++) {
 
-      int pageNum = imageInfos.get(i).getPageNum();
-      List<AlbumImageInfo> targetPageInfo = imagesInfo.get(pageNum);
-      AlbumImageInfo tmp = AlbumImageInfo.builder()
-          .albumImageUUID(uploadFileNames.get(i))
-          .size(imageInfos.get(i).getSize())
-          .location(imageInfos.get(i).getLocation())
-          .rotation(imageInfos.get(i).getRotation())
-          .build();
+      AlbumImageEditMessage newImage = new AlbumImageEditMessage();
+      newImage.setAlbumImageUUID(uploadFileNames.get(i));
+      newImage.setAlbumImageEditInfo(imageInfos.get(i));
+      newImages.add(newImage);
+      imageBytes.put(uploadFileNames.get(i), multipartFiles.get(i).getSize());
+    }
+
+    return addUploadedImages(albumUUID, newImages, imageBytes);
+  }
+
+  /**
+   * <pre>
+   * 클라이언트가 S3 에 직접 업로드할 수 있는 presigned PUT URL 발급
+   * 업로드가 끝나면 completeImageUploads 로 레이아웃에 등록해야 하며, 발급 후 presign-expiry-ms 가 지나면 등록할 수 없다.
+   * </pre>
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @param uploadInfos
+   * @return
+   */
+  public List<AlbumImageUploadURL> createImageUploadURLs(String userUUID, String albumUUID,
+      List<AlbumImageUploadInfo> uploadInfos) {
 
-      targetPageInfo.add(tmp);
-      imagesInfo.set(pageNum, targetPageInfo);
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    if (uploadInfos.isEmpty() || uploadInfos.size() > maxUploadFiles)
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "한 번에 " + maxUploadFiles + "개까지 업로드할 수 있습니다.");
+
+    Date expiration = new Date(System.currentTimeMillis() + presignExpiryMs);
+    LocalDateTime expiresAt = LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault());
+
+    List<String> fileNames = new ArrayList<>();
+    List<AlbumImageUploadURL> uploadURLs = new ArrayList<>();
+    for (AlbumImageUploadInfo uploadInfo : uploadInfos) {
+
+      String fileName = awsS3Service.createFileName(uploadInfo.getFileName());
+      fileNames.add(fileName);
+      uploadURLs.add(AlbumImageUploadURL.builder()
+          .albumImageUUID(fileName)
+          .uploadURL(awsS3Service
+              .createUploadURL(fileName, albumUUID, uploadInfo.getContentType(), expiration)
+              .toString())
+          .expiresAt(expiresAt)
+          .build());
     }
 
-    log.info(imagesInfo.toString());
-    redisService.setAlbumRedisValue(albumUUID, targetInfo);
+    redisService.addPendingUploads(albumUUID, fileNames, Duration.ofMillis(presignExpiryMs));
 
-    return imagesInfo;
+    return uploadURLs;
   }
 
-  public List<List<AlbumImageInfo>> unloadImage(String albumUUID, String imageUUID) {
+  /**
+   * <pre>
+   * presigned URL 로 업로드를 마친 이미지들을 레이아웃에 등록하고 편집자들에게 브로드캐스트
+   * 이 앨범에 발급한 파일이 아니거나 S3 에 없는 파일, 크기 제한을 넘는 파일이 있다면 아무것도 등록하지 않는다.
+   * </pre>
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @param uploadedImages
+   * @return
+   */
+  public AlbumLayoutMessage completeImageUploads(String userUUID, String albumUUID,
+      List<AlbumImageEditMessage> uploadedImages) {
 
-    AlbumImagesInfo targetInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
-    List<List<AlbumImageInfo>> imagesInfo = targetInfo.getImagesInfo();
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
 
-    for (List<AlbumImageInfo> imagesInfoByPage : imagesInfo) {
-      for (AlbumImageInfo imageInfo : imagesInfoByPage) {
+    List<AlbumImageEditInfo> imageInfos = new ArrayList<>();
+    for (AlbumImageEditMessage uploadedImage : uploadedImages)
+      imageInfos.add(uploadedImage.getAlbumImageEditInfo());
+    validatePageNums(albumUUID, imageInfos);
+
+    // 모든 파일이 올라왔는지 먼저 확인해, 일부만 등록되는 일이 없도록 함
+    Map<String, Long> imageBytes = new HashMap<>();
+    for (AlbumImageEditMessage uploadedImage : uploadedImages) {
+
+      Long fileSize = awsS3Service.getFileSize(uploadedImage.getAlbumImageUUID(), albumUUID);
+      if (fileSize == null)
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "업로드되지 않은 파일입니다. (" + uploadedImage.getAlbumImageUUID() + ")");
+
+      if (fileSize > maxFileSize.toBytes())
+        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+            "파일 크기 제한을 넘었습니다. (" + uploadedImage.getAlbumImageUUID() + ")");
+
+      imageBytes.put(uploadedImage.getAlbumImageUUID(), fileSize);
+    }
+
+    // 대기 목록에서 빼는 것으로 같은 파일이 두 번 등록되지 않게 함
+    List<String> claimed = new ArrayList<>();
+    for (AlbumImageEditMessage uploadedImage : uploadedImages) {
+
+      if (!redisService.removePendingUpload(albumUUID, uploadedImage.getAlbumImageUUID())) {
 
-        if (imageInfo.getAlbumImageUUID().equals(imageUUID)) {
+        // 이미 뺀 파일은 다시 완료 요청할 수 있도록 되돌림
+        if (!claimed.isEmpty())
+          redisService.addPendingUploads(albumUUID, claimed, Duration.ofMillis(presignExpiryMs));
 
-          imagesInfoByPage.remove(imageInfo);
-          break;
-        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "등록할 수 없는 파일입니다. (" + uploadedImage.getAlbumImageUUID() + ")");
       }
+
+      claimed.add(uploadedImage.getAlbumImageUUID());
+    }
+
+    return addUploadedImages(albumUUID, uploadedImages, imageBytes);
+  }
+
+  // 페이지는 줄어들지 않으므로 업로드 전에 확인해두면 이후에도 유효함
+  private void validatePageNums(String albumUUID, List<AlbumImageEditInfo> imageInfos) {
+
+    Integer pageCount = albumEditSessionManager.getPageCount(albumUUID);
+    if (pageCount == null)
+      pageCount = withLayoutRestore(albumUUID, () -> redisService.getAlbumPageCount(albumUUID));
+
+    for (AlbumImageEditInfo imageInfo : imageInfos) {
+
+      if (imageInfo == null || imageInfo.getPageNum() < 0 || imageInfo.getPageNum() >= pageCount)
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "존재하지 않는 페이지입니다.");
+    }
+  }
+
+  private AlbumLayoutMessage addUploadedImages(String albumUUID, List<AlbumImageEditMessage> newImages,
+      Map<String, Long> imageBytes) {
+
+    // 레이아웃에 반영될 때 앨범 요약의 totalBytes 에 더해지도록 먼저 기록
+    albumSummaryStore.recordImageBytes(albumUUID, imageBytes);
+
+    AlbumLayoutMessage applied = applyLayoutDelta(albumUUID, AlbumOperationType.UPLOAD, AlbumLayoutMessage.builder()
+        .added(newImages)
+        .build());
+
+    // 축소본은 레이아웃 반영과 별개로 백그라운드에서 생성
+    albumImageRenditionPipeline.submit(albumUUID, new ArrayList<>(imageBytes.keySet()));
+
+    return applied;
+  }
+
+  /**
+   * <pre>
+   * 클라이언트가 화면에 맞는 크기로 이미지를 받을 수 있도록 URL 반환
+   * size 에 해당하는 축소본이 아직 없다면 원본 URL 을 반환한다.
+   * </pre>
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @param albumImageUUID 앨범 이미지 또는 앨범 썸네일의 S3 파일명
+   * @param size           thumb, screen, 없다면 원본
+   * @return
+   */
+  public String getImageURL(String userUUID, String albumUUID, String albumImageUUID, String size) {
+
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    AlbumImageRendition rendition = null;
+    if (size != null && !size.isBlank()) {
+
+      rendition = AlbumImageRendition.fromKey(size);
+      if (rendition == null)
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "지원하지 않는 이미지 크기입니다. (" + size + ")");
+    }
+
+    return albumImageRenditionPipeline.getImageURL(albumUUID, albumImageUUID, rendition);
+  }
+
+  public AlbumLayoutMessage unloadImage(String albumUUID, String imageUUID) {
+
+    AlbumLayoutMessage delta = applyLayoutDelta(albumUUID, AlbumOperationType.UNLOAD, AlbumLayoutMessage.builder()
+        .removed(List.of(imageUUID))
+        .build());
+
+    awsS3Service.deleteImages(List.of(imageUUID), albumUUID);
+    albumImageRenditionPipeline.remove(albumUUID, imageUUID);
+    albumSummaryStore.removeImageBytes(albumUUID, imageUUID);
+
+    return delta;
+  }
+
+  public AlbumLayoutMessage editImage(String albumUUID, List<AlbumImageEditMessage> payload) {
+
+    return applyLayoutDelta(albumUUID, AlbumOperationType.EDIT, AlbumLayoutMessage.builder()
+        .moved(payload)
+        .build());
+  }
+
+  /**
+   * 가장 최근의 업로드, 편집 작업을 되돌림 (앨범 단위)
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @return
+   */
+  public AlbumLayoutMessage undo(String userUUID, String albumUUID) {
+
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    AlbumOperation operation = albumOperationLog.popUndo(albumUUID);
+    if (operation == null)
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "되돌릴 작업이 없습니다.");
+
+    // 되돌린 업로드의 S3 파일은 다시 실행할 수 있도록 남겨둠
+    AlbumLayoutMessage applied = applyLayoutDelta(albumUUID, AlbumOperationType.UNDO, operation.getInverse());
+
+    // 그 사이 다른 작업으로 이미 되돌려진 상태였다면 다시 실행할 것도 없음
+    if (applied.hasChanges())
+      albumOperationLog.pushRedo(albumUUID, operation);
+
+    return applied;
+  }
+
+  /**
+   * 가장 최근에 되돌린 작업을 다시 실행
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @return
+   */
+  public AlbumLayoutMessage redo(String userUUID, String albumUUID) {
+
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    AlbumOperation operation = albumOperationLog.popRedo(albumUUID);
+    if (operation == null)
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "다시 실행할 작업이 없습니다.");
+
+    AlbumLayoutMessage applied = applyLayoutDelta(albumUUID, AlbumOperationType.REDO,
+        withExistingImages(albumUUID, operation.getForward()));
+    if (applied.hasChanges())
+      albumOperationLog.pushUndo(albumUUID, operation);
+
+    return applied;
+  }
+
+  // 되돌린 뒤 언로드되어 S3 원본이 삭제된 이미지는 다시 추가하지 않음
+  private AlbumLayoutMessage withExistingImages(String albumUUID, AlbumLayoutMessage forward) {
+
+    List<AlbumImageEditMessage> added = new ArrayList<>();
+    for (AlbumImageEditMessage newImage : forward.getAdded()) {
+
+      if (awsS3Service.existsImage(newImage.getAlbumImageUUID(), albumUUID))
+        added.add(newImage);
+    }
+
+    if (added.size() == forward.getAdded().size())
+      return forward;
+
+    return AlbumLayoutMessage.builder()
+        .type(forward.getType())
+        .addedPages(forward.getAddedPages())
+        .added(added)
+        .moved(forward.getMoved())
+        .removed(forward.getRemoved())
+        .build();
+  }
+
+  /**
+   * <pre>
+   * 변경 요청(DELTA)을 적용하고 반영된 항목을 편집자들에게 브로드캐스트
+   * 편집 세션이 열려있는 앨범은 세션에서 적용 순서대로 브로드캐스트하고, 아니라면 Redis 에 바로 적용
+   * 반영된 작업은 작업 로그에 기록한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param type
+   * @param request
+   * @return
+   */
+  private AlbumLayoutMessage applyLayoutDelta(String albumUUID, AlbumOperationType type,
+      AlbumLayoutMessage request) {
+
+    AlbumLayoutMessage applied = withLayoutRestore(albumUUID, () -> {
+
+      if (albumEditSessionManager.isActive(albumUUID))
+        return albumEditSessionManager.apply(albumUUID, request);
+
+      AlbumLayoutMessage result = redisService.applyAlbumLayoutDelta(albumUUID, request);
+      albumBroadcaster.broadcast(albumUUID, result);
+
+      return result;
+    });
+
+    recordOperation(albumUUID, type, applied);
+    updateSummary(albumUUID, applied);
+
+    return applied;
+  }
+
+  // 요약 갱신이 실패해도 이미 반영된 변경은 유지
+  private void updateSummary(String albumUUID, AlbumLayoutMessage applied) {
+
+    if (!applied.hasChanges())
+      return;
+
+    try {
+
+      albumSummaryStore.apply(albumUUID, applied);
+    } catch (RuntimeException e) {
+
+      log.warn("앨범 {} 의 요약 정보를 갱신하지 못했습니다.", albumUUID, e);
+    }
+  }
+
+  // 작업 로그 기록이 실패해도 이미 반영된 변경은 유지
+  private void recordOperation(String albumUUID, AlbumOperationType type, AlbumLayoutMessage applied) {
+
+    try {
+
+      // 새 작업으로 다시 실행할 수 없게 된, 되돌린 업로드의 S3 파일 삭제
+      for (AlbumOperation discarded : albumOperationLog.append(albumUUID, type, applied))
+        deleteUndoneUploads(albumUUID, discarded);
+    } catch (RuntimeException e) {
+
+      log.warn("앨범 {} 의 {} 작업을 작업 로그에 기록하지 못했습니다.", albumUUID, type, e);
     }
-    redisService.setAlbumRedisValue(albumUUID, targetInfo);
+  }
+
+  private void deleteUndoneUploads(String albumUUID, AlbumOperation operation) {
+
+    if (operation.getType() != AlbumOperationType.UPLOAD)
+      return;
 
-    awsS3Service.deleteFile(imageUUID, albumUUID);
+    List<String> fileNames = new ArrayList<>();
+    for (AlbumImageEditMessage newImage : operation.getForward().getAdded()) {
 
-    return imagesInfo;
+      fileNames.add(newImage.getAlbumImageUUID());
+      albumImageRenditionPipeline.remove(albumUUID, newImage.getAlbumImageUUID());
+      albumSummaryStore.removeImageBytes(albumUUID, newImage.getAlbumImageUUID());
+    }
+
+    awsS3Service.deleteImages(fileNames, albumUUID);
   }
 
-  public List<List<AlbumImageInfo>> editImage(String albumUUID, List<AlbumImageEditMessage> payload) {
+  // 편집 세션에 올라와있는 레이아웃이 Redis 보다 최신이므로 우선 사용
+  private AlbumLayoutMessage getSnapshot(String albumUUID) {
 
-    AlbumImagesInfo targetInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
-    List<List<AlbumImageInfo>> imagesInfo = targetInfo.getImagesInfo();
+    AlbumLayoutMessage snapshot = albumEditSessionManager.getSnapshot(albumUUID);
+    if (snapshot != null) {
 
-    for (AlbumImageEditMessage target : payload) {
+      snapshot.setImagesInfo(attachImageDetails(albumUUID, snapshot.getImagesInfo()));
+      return snapshot;
+    }
 
-      int pageNum = target.getAlbumImageEditInfo().getPageNum();
-      List<AlbumImageInfo> targetPageInfo = imagesInfo.get(pageNum);
+    // near cache 의 레이아웃은 읽기 전용이므로 축소본 목록은 복사본에 채움
+    AlbumImagesInfo albumImagesInfo = getAlbumImagesInfo(albumUUID);
 
-      // To-Do: imageUUID가 같은지 확인하는 효율적인 로직 찾아보기
-      for (AlbumImageInfo tmp : targetPageInfo) {
+    return AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.SNAPSHOT)
+        .sequence(albumImagesInfo.getVersion())
+        .imagesInfo(attachImageDetails(albumUUID, albumImagesInfo.getImagesInfo()))
+        .build();
+  }
 
-        if (tmp.getAlbumImageUUID().equals(target.getAlbumImageUUID())) {
+  /**
+   * <pre>
+   * 레이아웃의 이미지 정보에 원본 URL 과 축소본 목록을 채운 복사본 반환
+   * 레이아웃은 near cache 에서 읽기 전용으로 공유될 수 있으므로 바꾸지 않는다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param imagesInfo
+   * @return
+   */
+  private List<List<AlbumImageInfo>> attachImageDetails(String albumUUID, List<List<AlbumImageInfo>> imagesInfo) {
 
-          tmp.setLocation(target.getAlbumImageEditInfo().getLocation());
-          tmp.setSize(target.getAlbumImageEditInfo().getSize());
-          tmp.setRotation(target.getAlbumImageEditInfo().getRotation());
+    Map<String, List<String>> renditions = albumImageRenditionPipeline.getRenditions(albumUUID);
+    Map<String, String> contentNames = imageContentIndex.getContentNames(albumUUID);
 
-          targetPageInfo.add(tmp);
-          targetPageInfo.remove(tmp);
-          log.info("변경사항 적용 완료");
-          break;
-        }
+    List<List<AlbumImageInfo>> attached = new ArrayList<>(imagesInfo.size());
+    for (List<AlbumImageInfo> imagesInfoByPage : imagesInfo) {
+
+      List<AlbumImageInfo> attachedPage = new ArrayList<>(imagesInfoByPage.size());
+      for (AlbumImageInfo imageInfo : imagesInfoByPage) {
+
+        String albumImageUUID = imageInfo.getAlbumImageUUID();
+        attachedPage.add(AlbumImageInfo.builder()
+            .albumImageUUID(albumImageUUID)
+            .size(imageInfo.getSize())
+            .location(imageInfo.getLocation())
+            .rotation(imageInfo.getRotation())
+            .renditions(renditions.get(albumImageUUID))
+            .imageURL(awsS3Service.getImageURL(albumImageUUID, albumUUID, contentNames.get(albumImageUUID)))
+            .build());
       }
+      attached.add(attachedPage);
     }
 
-    // albumImagesInfoRepository.save(targetInfo);
-    redisService.setAlbumRedisValue(albumUUID, targetInfo);
+    return attached;
+  }
 
-    return imagesInfo;
+  // Redis(near cache) 에서 레이아웃을 읽고, 사라졌다면 Mongo 체크포인트로 복구해서 읽음, 읽기 전용
+  private AlbumImagesInfo getAlbumImagesInfo(String albumUUID) {
+
+    return withLayoutRestore(albumUUID, () -> {
+
+      AlbumImagesInfo albumImagesInfo = redisService.getCachedAlbumImagesInfo(albumUUID);
+      if (albumImagesInfo == null)
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+
+      return albumImagesInfo;
+    });
+  }
+
+  // 레이아웃이 Redis 에 없어 NOT_FOUND 가 발생하면 Mongo 체크포인트로 복구 후 한 번 더 시도
+  private <T> T withLayoutRestore(String albumUUID, Supplier<T> action) {
+
+    try {
+
+      return action.get();
+    } catch (ResponseStatusException e) {
+
+      if (e.getStatus() != HttpStatus.NOT_FOUND || !restoreLayout(albumUUID))
+        throw e;
+
+      return action.get();
+    }
+  }
+
+  /**
+   * <pre>
+   * AlbumLayoutCheckpoint 에 체크포인트된 레이아웃을 Redis 에 다시 올림
+   * 체크포인트가 없다면 Album.albumImages 의 초기 레이아웃을 version 0 으로 사용한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @return 복구할 앨범이 있었는지 여부
+   */
+  private boolean restoreLayout(String albumUUID) {
+
+    Album album = albumRepository.findById(albumUUID).orElse(null);
+    if (album == null)
+      return false;
+
+    AlbumLayoutCheckpoint checkpoint = albumLayoutCheckpointRepository.findById(albumUUID).orElse(null);
+    List<List<AlbumImageInfo>> albumImages = checkpoint != null ? checkpoint.getAlbumImages() : album.getAlbumImages();
+    if (albumImages == null)
+      return false;
+
+    AlbumImagesInfo albumImagesInfo = AlbumImagesInfo.builder()
+        .id(albumUUID)
+        .imagesInfo(new ArrayList<>(albumImages))
+        .version(checkpoint != null ? checkpoint.getLayoutVersion() : 0)
+        .createdDate(album.getCreatedDate())
+        .lastModifiedDate(checkpoint != null && checkpoint.getLayoutModifiedDate() != null
+            ? checkpoint.getLayoutModifiedDate()
+            : album.getLastModifiedDate())
+        .build();
+
+    // 체크포인트 이후의 작업을 순서대로 다시 적용
+    long checkpointVersion = albumImagesInfo.getVersion();
+    for (AlbumOperation operation : albumOperationLog.readAfter(albumUUID, checkpointVersion)) {
+
+      albumImagesInfo.applyDelta(operation.getForward());
+      albumImagesInfo.setVersion(operation.getVersion());
+    }
+
+    redisService.restoreAlbumRedisValue(albumUUID, albumImagesInfo);
+    log.info("앨범 {} 레이아웃을 version {} 체크포인트와 작업 로그로 version {} 까지 복구했습니다.",
+        albumUUID, checkpointVersion, albumImagesInfo.getVersion());
+
+    return true;
+  }
+
+  /**
+   * 앨범 입장 혹은 sequence 를 놓친 편집자에게 보낼 레이아웃 SNAPSHOT 반환
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @return
+   */
+  public AlbumLayoutMessage getLayoutSnapshot(String userUUID, String albumUUID) {
+
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    return getSnapshot(albumUUID);
+  }
+
+  /**
+   * <pre>
+   * 전송이 밀려 DELTA 를 버렸던 세션이 따라잡았을 때, 그 세션에만 SNAPSHOT 을 보내 버려진 변경을 메움
+   * 구독할 때 편집자임을 확인한 세션이므로 다시 검증하지 않으며, 실패해도 클라이언트가 SNAPSHOT 을 다시 요청할 수 있다.
+   * </pre>
+   *
+   * @param sessionID
+   * @param albumUUID
+   */
+  public void sendSnapshotToSession(String sessionID, String albumUUID) {
+
+    try {
+
+      albumBroadcaster.sendToSession(sessionID, "/sub/snapshot/" + albumUUID, getSnapshot(albumUUID));
+    } catch (RuntimeException e) {
+
+      log.warn("앨범 {} 의 SNAPSHOT 을 세션 {} 에 보내지 못했습니다.", albumUUID, sessionID, e);
+    }
+  }
+
+  /**
+   * <pre>
+   * 다시 연결한 편집자가 마지막으로 받은 sequence 이후 놓친 DELTA 반환
+   * 이 노드의 링 버퍼가 놓친 DELTA 를 모두 들고 있지 않다면 SNAPSHOT 하나만 담아 반환한다.
+   * </pre>
+   *
+   * @param userUUID
+   * @param albumUUID
+   * @param sequence
+   * @return
+   */
+  public List<AlbumLayoutMessage> resume(String userUUID, String albumUUID, long sequence) {
+
+    // 유저가 album editor 인지 검증
+    if (!isValidAlbumEditor(albumUUID, userUUID))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 없습니다.");
+
+    List<AlbumLayoutMessage> missed = albumResumeBuffer.readAfter(albumUUID, sequence);
+    if (missed != null)
+      return missed;
+
+    return List.of(getSnapshot(albumUUID));
   }
 
   /**
@@ -226,6 +804,7 @@ public class AlbumService {
 
     // 기존 thumbnailImage와 동일한지 확인 후 수정
     String oldThumbnailOriginalName = album.getThumbnailOriginalName();
+    String oldThumbnailImageURL = album.getThumbnailImageURL();
 
     if (thumnailImage != null && !thumnailImage.getOriginalFilename().equals(oldThumbnailOriginalName)) {
 
@@ -237,6 +816,11 @@ public class AlbumService {
 
       // 기존 thumbnailImage 삭제
       awsS3Service.deleteFile(oldThumbnailOriginalName, albumUUID);
+      if (oldThumbnailImageURL != null)
+        albumImageRenditionPipeline.remove(albumUUID, oldThumbnailImageURL);
+
+      // 마이페이지 앨범 목록에서 쓸 축소본을 백그라운드에서 생성
+      albumImageRenditionPipeline.submit(albumUUID, List.of(uploadFileName));
     }
 
     albumRepository.save(album);
@@ -272,26 +856,49 @@ public class AlbumService {
 
     // mongoDB에서 Album Entity 삭제
     albumRepository.deleteById(albumUUID);
+    albumMembershipCache.invalidate(albumUUID);
+    AlbumLayoutCheckpoint checkpoint = albumLayoutCheckpointRepository.findById(albumUUID).orElse(null);
+    albumLayoutCheckpointRepository.deleteById(albumUUID);
 
     // 모두를 앨범에서 강제 추방함을 알리고 소켓 연결 종료
     WebSocketSessionHolder.closeSessionByDestination(albumUUID);
 
-    // 최신 데이터를 참조하기 위해 redis를 기준으로 이미지 정보 불러오기
-    List<List<AlbumImageInfo>> imagesInfo = redisService
-        .getAlbumRedisValue(albumUUID, AlbumImagesInfo.class)
-        .getImagesInfo();
+    // 편집 세션이 열려 있었다면 Redis 에 반영하지 않고 정리
+    AlbumImagesInfo albumImagesInfo = albumEditSessionManager.discard(albumUUID);
+
+    // 최신 데이터를 참조하기 위해 세션, redis, 체크포인트 순으로 이미지 정보 불러오기
+    if (albumImagesInfo == null)
+      albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
 
-    // 앨범에 업로드된 이미지들을 순회하며 S3 이미지 삭제
-    // To-do: S3 SDK의 deleteObjects 메소드로 한번에 삭제 방식으로 전환 및 예외처리 추가
+    List<List<AlbumImageInfo>> imagesInfo = albumImagesInfo != null
+        ? albumImagesInfo.getImagesInfo()
+        : checkpoint != null ? checkpoint.getAlbumImages() : album.getAlbumImages();
+
+    // 앨범에 업로드된 이미지와 앨범 썸네일의 S3 파일명 수집
+    List<String> fileNames = new ArrayList<>();
     for (List<AlbumImageInfo> imagesInfoOfIndex : imagesInfo) {
       for (AlbumImageInfo imageInfo : imagesInfoOfIndex) {
 
-        awsS3Service.deleteFile(imageInfo.getAlbumImageUUID(), albumUUID);
+        fileNames.add(imageInfo.getAlbumImageUUID());
       }
     }
+    if (album.getThumbnailImageURL() != null)
+      fileNames.add(album.getThumbnailImageURL());
+
+    // 되돌린 채로 남아있던 업로드의 S3 이미지 삭제
+    for (AlbumOperation discarded : albumOperationLog.discardRedo(albumUUID))
+      deleteUndoneUploads(albumUUID, discarded);
+
+    // 이미지와 앨범 썸네일의 축소본 삭제
+    albumImageRenditionPipeline.removeAll(albumUUID);
 
-    // redis에서 AlbumImagesInfo 삭제
+    // redis에서 AlbumImagesInfo 와 작업 로그 삭제
     redisService.removeAlbumRedisValue(albumUUID);
+    albumOperationLog.remove(albumUUID);
+    albumSummaryStore.remove(albumUUID);
+
+    // 앨범 정보는 모두 지웠으므로 S3 파일은 기다리지 않고 백그라운드에서 묶어서 삭제
+    awsS3Service.deleteImages(fileNames, albumUUID);
 
     return "앨범 삭제 작업을 완료했습니다.";
   }
@@ -305,27 +912,15 @@ public class AlbumService {
    */
   public Boolean isValidAlbumEditor(String albumUUID, String userUUID) {
 
-    // DB에서 albumID로 Album 객체 접근 후, albumOwner와 albumEditors 필드 추출
-    Album album = getAlbum(albumUUID);
-
-    String albumOwnerID = album.getAlbumOwner();
-    List<String> albumEditors = album.getAlbumEditors();
-
-    // albumOwner 인 경우, true 반환
-    if (albumOwnerID.equals(userUUID))
-      return true;
-
-    // 순회를 돌며 인자로 받은 socialID가 List에 포함되어 있다면 true를 반환
-    for (String albumEditor : albumEditors) {
+    // 캐시된 albumOwner, albumEditors 로 확인, 캐시에 없다면 DB에서 두 필드만 읽어옴
+    Boolean isMember = albumMembershipCache.isMember(albumUUID, userUUID);
+    if (isMember == null)
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
 
-      if (albumEditor.equals(userUUID))
-        return true;
-    }
-
-    // List에 포함되어 있지 않았으므로 false를 반환
-    return false;
+    return isMember;
   }
 
+
   /**
    * collaboUserUUID에 해당하는 유저에게 앨범 초대 보내기
    * 
@@ -411,6 +1006,8 @@ public class AlbumService {
 
       requestAlbum.getAlbumEditors().add(targetUser);
       albumRepository.save(requestAlbum);
+      albumMembershipCache.invalidate(albumUUID);
+      albumSummaryStore.incrementMemberCount(albumUUID, 1);
 
       userService.addCollaboAlbum(resUserID, albumUUID);
     }
@@ -539,14 +1136,14 @@ public class AlbumService {
       if (album == null)
         continue;
 
-      AlbumImagesInfo albumImagesInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
+      AlbumSummary albumSummary = getAlbumSummary(album);
 
       AlbumInfo albumInfo = AlbumInfo.builder()
           .albumUUID(album.getAlbumUUID())
           .albumName(album.getAlbumName())
           .thumbnailImageURL(album.getThumbnailImageURL())
           .createdDate(album.getCreatedDate())
-          .lastModifiedDate(albumImagesInfo.getLastModifiedDate())
+          .lastModifiedDate(albumSummary.getLastModifiedDate())
           .build();
 
       albumInfos.add(albumInfo);
@@ -596,23 +1193,91 @@ public class AlbumService {
 
     // 앨범 정보 추출
     Album album = getAlbum(albumUUID);
-    int memberCount = album.getAlbumEditors().size() + 1;
-    int imageCount = 0;
-
-    AlbumImagesInfo targetInfo = redisService.getAlbumRedisValue(albumUUID, AlbumImagesInfo.class);
-    List<List<AlbumImageInfo>> imagesInfo = targetInfo.getImagesInfo();
-    for (List<AlbumImageInfo> imagesInfoByPage : imagesInfo) {
-
-      imageCount += imagesInfoByPage.size();
-    }
+    AlbumSummary albumSummary = getAlbumSummary(album);
 
     return AlbumEntryInfo.builder()
         .albumUUID(album.getAlbumUUID())
         .albumName(album.getAlbumName())
         .thumbnailImageURL(album.getThumbnailImageURL())
         .createdDate(album.getCreatedDate())
-        .memberCount(memberCount)
-        .imageCount(imageCount)
+        .memberCount(albumSummary.getMemberCount())
+        .imageCount(albumSummary.getImageCount())
+        .pageCount(albumSummary.getPageCount())
+        .totalBytes(albumSummary.getTotalBytes())
+        .lastModifiedDate(albumSummary.getLastModifiedDate())
+        .build();
+  }
+
+  /**
+   * <pre>
+   * 앨범 요약 조회
+   * 요약이 아직 없는 앨범(요약 도입 전 앨범, Redis 에서 사라진 앨범)은 레이아웃을 한 번 순회해 만들어 둔다.
+   * 요약을 만드는 동안 반영된 DELTA 를 놓치지 않도록 near cache 를 거치지 않은 레이아웃을 읽고, 그 version 과 함께 저장한다.
+   * 그 사이 요약에 반영되지 못한 더 새로운 DELTA 가 있다면 저장이 거절되므로 레이아웃을 다시 읽어 만든다.
+   * </pre>
+   *
+   * @param album
+   * @return
+   */
+  private AlbumSummary getAlbumSummary(Album album) {
+
+    String albumUUID = album.getAlbumUUID();
+    AlbumSummary albumSummary = null;
+    for (int attempt = 0; attempt < SUMMARY_SEED_ATTEMPTS; attempt++) {
+
+      AlbumSummary stored = albumSummaryStore.get(albumUUID);
+      if (stored != null)
+        return stored;
+
+      albumSummary = buildAlbumSummary(album, readLayoutForSummary(albumUUID));
+      if (albumSummaryStore.init(albumUUID, albumSummary))
+        return albumSummary;
+    }
+
+    // 편집이 계속 이어져 저장하지 못했다면 이번 조회에만 사용하고, 다음 조회에서 다시 만듦
+    log.warn("앨범 {} 의 요약을 {}회 만들었지만 그 사이 반영된 변경이 있어 저장하지 못했습니다.", albumUUID, SUMMARY_SEED_ATTEMPTS);
+    return albumSummary;
+  }
+
+  // 편집 세션이 열려 있다면 Redis 보다 앞선 세션의 레이아웃을, 아니라면 Redis 의 레이아웃을 캐시 없이 읽음
+  private AlbumImagesInfo readLayoutForSummary(String albumUUID) {
+
+    AlbumLayoutMessage snapshot = albumEditSessionManager.getSnapshot(albumUUID);
+    if (snapshot != null) {
+
+      return AlbumImagesInfo.builder()
+          .imagesInfo(snapshot.getImagesInfo())
+          .version(snapshot.getSequence())
+          .build();
+    }
+
+    return withLayoutRestore(albumUUID, () -> {
+
+      AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+      if (albumImagesInfo == null)
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+
+      return albumImagesInfo;
+    });
+  }
+
+  private AlbumSummary buildAlbumSummary(Album album, AlbumImagesInfo albumImagesInfo) {
+
+    List<String> albumImageUUIDs = new ArrayList<>();
+    for (List<AlbumImageInfo> imagesInfoByPage : albumImagesInfo.getImagesInfo()) {
+      for (AlbumImageInfo imageInfo : imagesInfoByPage) {
+
+        albumImageUUIDs.add(imageInfo.getAlbumImageUUID());
+      }
+    }
+
+    return AlbumSummary.builder()
+        .imageCount(albumImageUUIDs.size())
+        .pageCount(albumImagesInfo.getImagesInfo().size())
+        .memberCount(album.getAlbumEditors().size() + 1)
+        .totalBytes(albumSummaryStore.sumImageBytes(album.getAlbumUUID(), albumImageUUIDs))
+        .lastModifiedDate(albumImagesInfo.getLastModifiedDate())
+        .version(albumImagesInfo.getVersion())
         .build();
   }
 }
\ No newline at end of file
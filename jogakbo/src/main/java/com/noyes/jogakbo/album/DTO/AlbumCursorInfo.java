@@ -0,0 +1,20 @@
+package com.noyes.jogakbo.album.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlbumCursorInfo {
+
+  // 같은 유저의 여러 연결을 구분하기 위한 값 (웹소켓 sessionID)
+  private String cursorID;
+  private String userUUID;
+  private int pageNum;
+  private double x;
+  private double y;
+}
@@ -0,0 +1,14 @@
+package com.noyes.jogakbo.album.DTO;
+
+import lombok.Data;
+
+/**
+ * /pub/presence/{albumUUID} 로 받는 커서 위치, 저장하지 않고 주기적으로 모아서 전달만 한다.
+ */
+@Data
+public class AlbumCursorMessage {
+
+  private int pageNum;
+  private double x;
+  private double y;
+}
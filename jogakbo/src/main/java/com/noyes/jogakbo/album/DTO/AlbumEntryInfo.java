@@ -15,4 +15,7 @@ public class AlbumEntryInfo {
   private LocalDateTime createdDate;
   private int memberCount;
   private int imageCount;
+  private int pageCount;
+  private long totalBytes;
+  private LocalDateTime lastModifiedDate;
 }
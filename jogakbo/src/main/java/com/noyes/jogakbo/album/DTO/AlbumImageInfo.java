@@ -1,5 +1,9 @@
 package com.noyes.jogakbo.album.DTO;
 
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
@@ -11,4 +15,11 @@ public class AlbumImageInfo {
   private AlbumImageSizeInfo size;
   private AlbumImageLocationInfo location;
   private double rotation;
+  // 아래 값들은 레이아웃에는 저장하지 않고 조회할 때 채워서 보냄
+  // 만들어진 축소본 key 목록
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  private List<String> renditions;
+  // 원본 이미지 URL, 같은 내용의 이미지는 앨범 경로가 아닌 공용 경로에 한 번만 저장됨
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String imageURL;
 }
@@ -0,0 +1,51 @@
+package com.noyes.jogakbo.album.DTO;
+
+/**
+ * <pre>
+ * 원본 이미지와 함께 만들어두는 축소본 종류
+ * 원본과 같은 앨범 경로 아래 {key}/{albumImageUUID} 로 저장되며, 긴 변을 maxEdge 에 맞춰 줄인다.
+ * </pre>
+ */
+public enum AlbumImageRendition {
+
+  // 마이페이지 앨범 목록, 페이지 미리보기용
+  THUMB("thumb", 320),
+  // 앨범 페이지 화면 표시용
+  SCREEN("screen", 1280);
+
+  private final String key;
+  private final int maxEdge;
+
+  AlbumImageRendition(String key, int maxEdge) {
+
+    this.key = key;
+    this.maxEdge = maxEdge;
+  }
+
+  public String getKey() {
+
+    return key;
+  }
+
+  public int getMaxEdge() {
+
+    return maxEdge;
+  }
+
+  /**
+   * key 에 해당하는 축소본 종류
+   *
+   * @param key
+   * @return 없다면 null
+   */
+  public static AlbumImageRendition fromKey(String key) {
+
+    for (AlbumImageRendition rendition : values()) {
+
+      if (rendition.key.equalsIgnoreCase(key))
+        return rendition;
+    }
+
+    return null;
+  }
+}
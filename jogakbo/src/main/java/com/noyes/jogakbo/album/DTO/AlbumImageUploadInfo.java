@@ -0,0 +1,15 @@
+package com.noyes.jogakbo.album.DTO;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * presigned URL 을 발급받을 파일 정보, fileName 은 확장자를 정하는 데에만 사용한다.
+ */
+@Data
+@NoArgsConstructor
+public class AlbumImageUploadInfo {
+
+  private String fileName;
+  private String contentType;
+}
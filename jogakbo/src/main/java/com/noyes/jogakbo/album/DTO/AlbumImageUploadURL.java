@@ -0,0 +1,19 @@
+package com.noyes.jogakbo.album.DTO;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlbumImageUploadURL {
+
+  private String albumImageUUID;
+  private String uploadURL;
+  private LocalDateTime expiresAt;
+}
@@ -0,0 +1,52 @@
+package com.noyes.jogakbo.album.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <pre>
+ * /sub/edit/{albumUUID} 로 전송되는 앨범 레이아웃 메세지
+ * DELTA 는 sequence 가 1씩 증가하며, 클라이언트는 아래 순서로 적용한다.
+ * 1. addedPages 만큼 마지막에 빈 페이지 추가
+ * 2. added 이미지를 해당 페이지 마지막에 추가
+ * 3. moved 이미지의 크기, 위치, 회전 값을 반영하고 해당 페이지 마지막으로 이동
+ * 4. removed 이미지 제거
+ * 받은 sequence 가 마지막 sequence + 1 이 아니라면 SNAPSHOT 을 다시 요청해야 한다.
+ * </pre>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class AlbumLayoutMessage {
+
+  private AlbumLayoutMessageType type;
+  private long sequence;
+  private int addedPages;
+  @Builder.Default
+  private List<AlbumImageEditMessage> added = new ArrayList<>();
+  @Builder.Default
+  private List<AlbumImageEditMessage> moved = new ArrayList<>();
+  @Builder.Default
+  private List<String> removed = new ArrayList<>();
+  // SNAPSHOT 에만 포함되는 레이아웃 전체
+  private List<List<AlbumImageInfo>> imagesInfo;
+  // 반영된 DELTA 를 되돌리는 DELTA (added 는 removed 로, moved 는 이전 값으로), 작업 로그에만 기록
+  @JsonIgnore
+  private AlbumLayoutMessage inverse;
+
+  public boolean hasChanges() {
+
+    return type == AlbumLayoutMessageType.SNAPSHOT
+        || addedPages > 0 || !added.isEmpty() || !moved.isEmpty() || !removed.isEmpty();
+  }
+}
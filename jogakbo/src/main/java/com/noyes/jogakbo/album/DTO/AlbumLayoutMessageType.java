@@ -0,0 +1,9 @@
+package com.noyes.jogakbo.album.DTO;
+
+public enum AlbumLayoutMessageType {
+
+  // 앨범 레이아웃 전체 (입장 시, 혹은 클라이언트가 sequence 를 놓쳤을 때)
+  SNAPSHOT,
+  // 직전 sequence 이후 변경된 내용만 포함
+  DELTA
+}
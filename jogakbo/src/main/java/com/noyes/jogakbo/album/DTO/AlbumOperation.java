@@ -0,0 +1,25 @@
+package com.noyes.jogakbo.album.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 앨범 작업 로그의 한 항목, 반영된 변경(forward)과 이를 되돌리는 변경(inverse)을 함께 기록한다.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlbumOperation {
+
+  // 작업 로그(Redis Stream)의 entry ID
+  private String id;
+  private AlbumOperationType type;
+  // 작업 반영 후 레이아웃 version
+  private long version;
+  private AlbumLayoutMessage forward;
+  // 되돌릴 수 없는 작업이라면 null
+  private AlbumLayoutMessage inverse;
+}
@@ -0,0 +1,25 @@
+package com.noyes.jogakbo.album.DTO;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum AlbumOperationType {
+
+  // 페이지 추가
+  ADD_PAGE(false),
+  // 이미지 업로드
+  UPLOAD(true),
+  // 이미지 크기, 위치, 회전 편집
+  EDIT(true),
+  // 이미지 삭제 (S3 파일도 삭제되므로 되돌릴 수 없음)
+  UNLOAD(false),
+  // 이전 작업 되돌리기
+  UNDO(false),
+  // 되돌린 작업 다시 실행
+  REDO(false);
+
+  // 되돌리기 대상이 되는 작업인지 여부
+  private final boolean undoable;
+}
@@ -0,0 +1,23 @@
+package com.noyes.jogakbo.album.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlbumPagesInfo {
+
+  // 이후 /sub/edit/{albumUUID} 로 받을 DELTA 를 이어 적용하기 위한 기준 sequence
+  private long sequence;
+  // 앨범 전체 페이지 수
+  private int pageCount;
+  // imagesInfo 의 첫 페이지 번호
+  private int fromPage;
+  private List<List<AlbumImageInfo>> imagesInfo;
+}
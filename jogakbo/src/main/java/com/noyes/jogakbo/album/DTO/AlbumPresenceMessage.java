@@ -0,0 +1,31 @@
+package com.noyes.jogakbo.album.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <pre>
+ * /sub/presence/{albumUUID} 로 flush-interval-ms 마다 전송되는 메세지
+ * cursors: 지난 전송 이후 움직인 커서의 마지막 위치
+ * left   : 지난 전송 이후 앨범을 떠난 cursorID
+ * </pre>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class AlbumPresenceMessage {
+
+  @Builder.Default
+  private List<AlbumCursorInfo> cursors = new ArrayList<>();
+  @Builder.Default
+  private List<String> left = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package com.noyes.jogakbo.album.DTO;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlbumSummary {
+
+  private int imageCount;
+  private int pageCount;
+  private int memberCount;
+  private long totalBytes;
+  private LocalDateTime lastModifiedDate;
+  // 요약을 만들 때 읽은 레이아웃의 version, 이후 DELTA 만 요약에 반영됨
+  private long version;
+}
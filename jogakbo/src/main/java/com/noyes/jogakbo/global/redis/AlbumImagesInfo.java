@@ -3,15 +3,27 @@ package com.noyes.jogakbo.global.redis;
 import java.util.List;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.data.redis.core.RedisHash;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
 import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import nonapi.io.github.classgraph.json.Id;
 
 @Data
@@ -24,9 +36,306 @@ public class AlbumImagesInfo {
   @Id
   private String id;
   @Builder.Default
-  private List<List<AlbumImageInfo>> imagesInfo = List.of(new ArrayList<>());
+  private List<List<AlbumImageInfo>> imagesInfo = new ArrayList<>(List.of(new ArrayList<>()));
+  // 레이아웃이 변경될 때마다 1씩 증가하며, DELTA 의 sequence 로 사용
+  private long version;
   @Builder.Default
   private LocalDateTime createdDate = LocalDateTime.now();
   @Builder.Default
   private LocalDateTime lastModifiedDate = LocalDateTime.now();
+
+  // albumImageUUID -> (페이지, 페이지 내 위치) 색인, 비어있다면 처음 조회할 때 레이아웃을 순회해 생성
+  // 이미지를 찾는 비용만 O(1) 이며, 편집/제거는 해당 페이지의 이미지 수만큼 비용이 든다. (editImage, removeImage 참고)
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Map<String, ImagePosition> imageIndex = new HashMap<>();
+
+  /**
+   * 레이아웃을 교체하면 색인은 다음 조회 시 다시 생성
+   *
+   * @param imagesInfo
+   */
+  public void setImagesInfo(List<List<AlbumImageInfo>> imagesInfo) {
+
+    this.imagesInfo = imagesInfo;
+    imageIndex.clear();
+  }
+
+  /**
+   * <pre>
+   * 변경 요청(DELTA)의 항목들을 순서대로 적용하고 실제로 반영된 항목만 모아 반환
+   * 반영된 항목이 있다면 version 을 1 증가시키고, 이를 반환하는 DELTA 의 sequence 로 사용
+   * 추가된 이미지는 제거하고 편집된 이미지는 이전 값으로 되돌리는 inverse 도 함께 담는다.
+   * </pre>
+   *
+   * @param request
+   * @return
+   */
+  public AlbumLayoutMessage applyDelta(AlbumLayoutMessage request) {
+
+    AlbumLayoutMessage applied = AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.DELTA)
+        .addedPages(request.getAddedPages())
+        .inverse(AlbumLayoutMessage.builder()
+            .type(AlbumLayoutMessageType.DELTA)
+            .build())
+        .build();
+
+    for (int i = 0; i < request.getAddedPages(); i++)
+      addPage();
+
+    for (AlbumImageEditMessage newImage : request.getAdded()) {
+
+      if (addImage(newImage)) {
+
+        applied.getAdded().add(newImage);
+        applied.getInverse().getRemoved().add(newImage.getAlbumImageUUID());
+      }
+    }
+
+    for (AlbumImageEditMessage target : request.getMoved()) {
+
+      AlbumImageEditMessage previous = getEditMessage(target.getAlbumImageUUID());
+      if (editImage(target)) {
+
+        applied.getMoved().add(target);
+        applied.getInverse().getMoved().add(previous);
+      }
+    }
+
+    for (String albumImageUUID : request.getRemoved()) {
+
+      if (removeImage(albumImageUUID))
+        applied.getRemoved().add(albumImageUUID);
+    }
+
+    if (applied.hasChanges()) {
+
+      version++;
+      lastModifiedDate = LocalDateTime.now();
+    }
+    applied.setSequence(version);
+
+    return applied;
+  }
+
+  /**
+   * 앨범 마지막에 빈 페이지 추가
+   */
+  public void addPage() {
+
+    imagesInfo.add(new ArrayList<>());
+  }
+
+  /**
+   * pageNum 페이지의 마지막에 새 이미지 추가
+   *
+   * @param newImage
+   * @return 존재하는 페이지이고 중복되지 않은 이미지여서 추가되었는지 여부
+   */
+  public boolean addImage(AlbumImageEditMessage newImage) {
+
+    int pageNum = newImage.getAlbumImageEditInfo().getPageNum();
+    if (pageNum < 0 || pageNum >= imagesInfo.size() || containsImage(newImage.getAlbumImageUUID()))
+      return false;
+
+    List<AlbumImageInfo> targetPageInfo = imagesInfo.get(pageNum);
+    targetPageInfo.add(toAlbumImageInfo(newImage));
+    imageIndex.put(newImage.getAlbumImageUUID(), new ImagePosition(pageNum, targetPageInfo.size() - 1));
+    return true;
+  }
+
+  /**
+   * <pre>
+   * pageNum 페이지에 있는 이미지의 크기, 위치, 회전 값을 변경하고 페이지의 맨 위(마지막)로 옮김
+   * 대상은 색인으로 O(1) 에 찾지만, 리스트에서 빼고 뒤의 이미지 색인을 갱신하므로 전체 비용은 O(해당 페이지 이미지 수) 이다.
+   * 페이지 순서가 곧 화면의 z-order 이고 저장/전송 형식도 이 리스트 그대로이므로 tombstone 등을 두지 않았으며,
+   * 한 페이지에 놓이는 이미지는 수십 장 수준이라 앨범 전체가 아닌 한 페이지만 훑는 비용은 감수한다.
+   * </pre>
+   *
+   * @param target
+   * @return 대상 이미지가 해당 페이지에 존재해서 변경되었는지 여부
+   */
+  public boolean editImage(AlbumImageEditMessage target) {
+
+    int pageNum = target.getAlbumImageEditInfo().getPageNum();
+    ImagePosition position = getIndex().get(target.getAlbumImageUUID());
+    if (position == null || position.page != pageNum)
+      return false;
+
+    List<AlbumImageInfo> targetPageInfo = imagesInfo.get(pageNum);
+    AlbumImageInfo tmp = targetPageInfo.remove(position.index);
+
+    tmp.setLocation(target.getAlbumImageEditInfo().getLocation());
+    tmp.setSize(target.getAlbumImageEditInfo().getSize());
+    tmp.setRotation(target.getAlbumImageEditInfo().getRotation());
+
+    targetPageInfo.add(tmp);
+    reindexPage(pageNum, position.index);
+    return true;
+  }
+
+  /**
+   * <pre>
+   * 모든 페이지에서 albumImageUUID 에 해당하는 이미지 제거
+   * editImage 와 같이 찾는 비용은 O(1), 제거 후 색인 갱신까지는 O(해당 페이지 이미지 수) 이다.
+   * </pre>
+   *
+   * @param albumImageUUID
+   * @return 제거되었는지 여부
+   */
+  public boolean removeImage(String albumImageUUID) {
+
+    ImagePosition position = getIndex().remove(albumImageUUID);
+    if (position == null)
+      return false;
+
+    imagesInfo.get(position.page).remove(position.index);
+    reindexPage(position.page, position.index);
+    return true;
+  }
+
+  /**
+   * 레이아웃에 albumImageUUID 에 해당하는 이미지가 있는지 확인
+   *
+   * @param albumImageUUID
+   * @return
+   */
+  public boolean containsImage(String albumImageUUID) {
+
+    return getIndex().containsKey(albumImageUUID);
+  }
+
+  /**
+   * 페이지 리스트와 이미지 정보를 복사한 레이아웃 반환
+   * 이미지의 크기, 위치 객체는 편집 시 새 객체로 교체되므로 공유해도 안전하다.
+   *
+   * @return
+   */
+  public List<List<AlbumImageInfo>> copyImagesInfo() {
+
+    return copyImagesInfo(0, imagesInfo.size());
+  }
+
+  /**
+   * fromPage 부터 pageSize 개 페이지만 복사해 반환, 범위를 벗어난 페이지는 제외
+   *
+   * @param fromPage
+   * @param pageSize
+   * @return
+   */
+  public AlbumPagesInfo getPages(int fromPage, int pageSize) {
+
+    int toPage = (int) Math.min((long) fromPage + pageSize, imagesInfo.size());
+
+    return AlbumPagesInfo.builder()
+        .sequence(version)
+        .pageCount(imagesInfo.size())
+        .fromPage(fromPage)
+        .imagesInfo(copyImagesInfo(Math.min(fromPage, toPage), toPage))
+        .build();
+  }
+
+  private List<List<AlbumImageInfo>> copyImagesInfo(int fromPage, int toPage) {
+
+    List<List<AlbumImageInfo>> copied = new ArrayList<>(toPage - fromPage);
+    for (List<AlbumImageInfo> imagesInfoByPage : imagesInfo.subList(fromPage, toPage)) {
+
+      List<AlbumImageInfo> copiedPage = new ArrayList<>(imagesInfoByPage.size());
+      for (AlbumImageInfo imageInfo : imagesInfoByPage) {
+
+        copiedPage.add(AlbumImageInfo.builder()
+            .albumImageUUID(imageInfo.getAlbumImageUUID())
+            .size(imageInfo.getSize())
+            .location(imageInfo.getLocation())
+            .rotation(imageInfo.getRotation())
+            .renditions(imageInfo.getRenditions())
+            .imageURL(imageInfo.getImageURL())
+            .build());
+      }
+      copied.add(copiedPage);
+    }
+
+    return copied;
+  }
+
+  // albumImageUUID 에 해당하는 이미지의 현재 값을 편집 메세지 형식으로 반환, 없다면 null
+  private AlbumImageEditMessage getEditMessage(String albumImageUUID) {
+
+    ImagePosition position = getIndex().get(albumImageUUID);
+    if (position == null)
+      return null;
+
+    return toEditMessage(imagesInfo.get(position.page).get(position.index), position.page);
+  }
+
+  private Map<String, ImagePosition> getIndex() {
+
+    if (imageIndex.isEmpty()) {
+
+      for (int pageNum = 0; pageNum < imagesInfo.size(); pageNum++) {
+
+        List<AlbumImageInfo> imagesInfoByPage = imagesInfo.get(pageNum);
+        for (int index = 0; index < imagesInfoByPage.size(); index++)
+          imageIndex.put(imagesInfoByPage.get(index).getAlbumImageUUID(), new ImagePosition(pageNum, index));
+      }
+    }
+
+    return imageIndex;
+  }
+
+  // 페이지 내 위치가 바뀐 from 이후 이미지들의 색인 갱신
+  private void reindexPage(int pageNum, int from) {
+
+    List<AlbumImageInfo> imagesInfoByPage = imagesInfo.get(pageNum);
+    for (int index = from; index < imagesInfoByPage.size(); index++)
+      imageIndex.get(imagesInfoByPage.get(index).getAlbumImageUUID()).index = index;
+  }
+
+  @AllArgsConstructor
+  private static class ImagePosition {
+
+    private int page;
+    private int index;
+  }
+
+  /**
+   * 클라이언트가 보낸 편집 메세지를 저장 형식인 AlbumImageInfo 로 변환
+   *
+   * @param message
+   * @return
+   */
+  public static AlbumImageInfo toAlbumImageInfo(AlbumImageEditMessage message) {
+
+    return AlbumImageInfo.builder()
+        .albumImageUUID(message.getAlbumImageUUID())
+        .size(message.getAlbumImageEditInfo().getSize())
+        .location(message.getAlbumImageEditInfo().getLocation())
+        .rotation(message.getAlbumImageEditInfo().getRotation())
+        .build();
+  }
+
+  /**
+   * 저장 형식인 AlbumImageInfo 를 pageNum 페이지의 편집 메세지로 변환
+   *
+   * @param imageInfo
+   * @param pageNum
+   * @return
+   */
+  public static AlbumImageEditMessage toEditMessage(AlbumImageInfo imageInfo, int pageNum) {
+
+    AlbumImageEditInfo albumImageEditInfo = new AlbumImageEditInfo();
+    albumImageEditInfo.setPageNum(pageNum);
+    albumImageEditInfo.setSize(imageInfo.getSize());
+    albumImageEditInfo.setLocation(imageInfo.getLocation());
+    albumImageEditInfo.setRotation(imageInfo.getRotation());
+
+    AlbumImageEditMessage message = new AlbumImageEditMessage();
+    message.setAlbumImageUUID(imageInfo.getAlbumImageUUID());
+    message.setAlbumImageEditInfo(albumImageEditInfo);
+
+    return message;
+  }
 }
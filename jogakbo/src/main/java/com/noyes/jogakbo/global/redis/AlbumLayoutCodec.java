@@ -0,0 +1,98 @@
+package com.noyes.jogakbo.global.redis;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * <pre>
+ * 앨범 레이아웃을 Redis 값과 웹소켓 메세지로 인코딩하는 코덱
+ * json : 기존과 같은 UTF-8 JSON
+ * smile: 필드명을 한 번만 기록하고 숫자를 바이너리로 담는 Jackson Smile 형식
+ * 읽을 때는 Smile 헤더(":)\n") 유무로 형식을 판별하므로 두 형식이 섞여 있어도 읽을 수 있다.
+ * album.layout.encoding 은 json 저장 방식(album.layout.storage=json)의 레이아웃 값에만 적용된다.
+ * hash 저장 방식은 이미지별 field 를 Lua 스크립트가 cjson 으로 다루므로 설정과 관계없이 JSON 으로 저장한다.
+ * </pre>
+ */
+@Component
+public class AlbumLayoutCodec {
+
+  private static final byte[] SMILE_HEADER = { ':', ')', '\n' };
+
+  private final ObjectMapper objectMapper;
+  private final ObjectMapper smileMapper;
+
+  // json 저장 방식에서 새로 저장하는 레이아웃의 형식 (json, smile), hash 저장 방식은 항상 JSON
+  @Value("${album.layout.encoding:json}")
+  private String encoding;
+
+  // Lombok 생성자로만 만들 수 있는 DTO 도 읽을 수 있도록, JSON 과 같은 모듈이 등록된 Spring Boot 의 builder 로 Smile mapper 생성
+  public AlbumLayoutCodec(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder jacksonObjectMapperBuilder) {
+
+    this.objectMapper = objectMapper;
+    this.smileMapper = jacksonObjectMapperBuilder.factory(new SmileFactory()).build();
+  }
+
+  public boolean isSmile() {
+
+    return "smile".equals(encoding);
+  }
+
+  /**
+   * 설정된 형식으로 인코딩
+   *
+   * @param value
+   * @return
+   * @throws JsonProcessingException
+   */
+  public byte[] encode(Object value) throws JsonProcessingException {
+
+    return isSmile() ? smileMapper.writeValueAsBytes(value) : objectMapper.writeValueAsBytes(value);
+  }
+
+  /**
+   * 설정과 관계없이 Smile 형식으로 인코딩
+   *
+   * @param value
+   * @return
+   * @throws JsonProcessingException
+   */
+  public byte[] encodeSmile(Object value) throws JsonProcessingException {
+
+    return smileMapper.writeValueAsBytes(value);
+  }
+
+  /**
+   * 헤더로 JSON, Smile 형식을 판별해 디코딩
+   *
+   * @param <T>
+   * @param bytes
+   * @param type
+   * @return
+   * @throws IOException
+   */
+  public <T> T decode(byte[] bytes, Class<T> type) throws IOException {
+
+    return isSmileEncoded(bytes) ? smileMapper.readValue(bytes, type) : objectMapper.readValue(bytes, type);
+  }
+
+  private static boolean isSmileEncoded(byte[] bytes) {
+
+    if (bytes.length < SMILE_HEADER.length)
+      return false;
+
+    for (int i = 0; i < SMILE_HEADER.length; i++) {
+
+      if (bytes[i] != SMILE_HEADER[i])
+        return false;
+    }
+
+    return true;
+  }
+}
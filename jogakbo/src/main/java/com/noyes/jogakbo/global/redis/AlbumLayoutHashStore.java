@@ -0,0 +1,622 @@
+package com.noyes.jogakbo.global.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 앨범 레이아웃을 이미지 단위의 Redis Hash 로 저장하는 저장소
+ * album:{albumUUID}:meta        - pageCount, version, createdDate, lastModifiedDate
+ * album:{albumUUID}:images      - albumImageUUID -> AlbumImageInfo(JSON)
+ * album:{albumUUID}:image-pages - albumImageUUID -> pageNum
+ * album:{albumUUID}:pages       - pageNum -> 해당 페이지의 이미지 순서(JSON 배열)
+ * 편집 시 변경된 이미지의 field 와 해당 페이지의 순서만 갱신한다.
+ * 스크립트가 다루는 key 는 모두 KEYS 로 전달되며, 같은 hash tag 를 가지므로 Redis Cluster 에서도 같은 slot 에 놓인다.
+ * 스크립트가 cjson 으로 읽고 쓰므로 album.layout.encoding 설정과 관계없이 값은 항상 JSON 으로 저장한다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlbumLayoutHashStore {
+
+  private static final String PAGE_COUNT = "pageCount";
+  private static final String VERSION = "version";
+  private static final String CREATED_DATE = "createdDate";
+  private static final String LAST_MODIFIED_DATE = "lastModifiedDate";
+
+  /**
+   * <pre>
+   * 변경 요청(DELTA)을 Redis 서버에서 원자적으로 적용하는 스크립트
+   * KEYS: meta, images, image-pages, pages
+   * ARGV: lastModifiedDate, addedPages,
+   *       added 개수, (uuid, pageNum, info)..., moved 개수, (uuid, pageNum, info)..., removed 개수, uuid...
+   * 반환: { version, 각 added/moved/removed 항목의 반영 여부(1|0)... }, 레이아웃이 없다면 { -1 }
+   *       moved 항목은 반영되었다면 1 대신 편집 전 이미지 정보(JSON)를 반환
+   * </pre>
+   */
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> APPLY_DELTA_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "local meta, images, imagePages, pages = KEYS[1], KEYS[2], KEYS[3], KEYS[4]",
+      "local function readOrder(page)",
+      "  local order = redis.call('HGET', pages, page)",
+      "  if not order then return {} end",
+      "  return cjson.decode(order)",
+      "end",
+      // 빈 table 은 cjson 이 {} 로 인코딩하므로 직접 [] 로 저장
+      "local function writeOrder(page, order)",
+      "  if #order == 0 then redis.call('HSET', pages, page, '[]')",
+      "  else redis.call('HSET', pages, page, cjson.encode(order)) end",
+      "end",
+      "local function removeFrom(order, uuid)",
+      "  for k = #order, 1, -1 do",
+      "    if order[k] == uuid then table.remove(order, k) end",
+      "  end",
+      "end",
+      "local pageCount = tonumber(redis.call('HGET', meta, 'pageCount'))",
+      "if not pageCount then return { -1 } end",
+      "local changed = false",
+      "local applied = {}",
+      "local addedPages = tonumber(ARGV[2])",
+      "if addedPages > 0 then",
+      "  pageCount = pageCount + addedPages",
+      "  redis.call('HSET', meta, 'pageCount', pageCount)",
+      "  changed = true",
+      "end",
+      "local i = 3",
+      "local count = tonumber(ARGV[i]); i = i + 1",
+      "for n = 1, count do",
+      "  local uuid, page, info = ARGV[i], ARGV[i + 1], ARGV[i + 2]; i = i + 3",
+      "  local pageNum = tonumber(page)",
+      "  if pageNum >= 0 and pageNum < pageCount and redis.call('HEXISTS', imagePages, uuid) == 0 then",
+      "    redis.call('HSET', images, uuid, info)",
+      "    redis.call('HSET', imagePages, uuid, page)",
+      "    local order = readOrder(page)",
+      "    order[#order + 1] = uuid",
+      "    writeOrder(page, order)",
+      "    applied[#applied + 1] = 1; changed = true",
+      "  else applied[#applied + 1] = 0 end",
+      "end",
+      "count = tonumber(ARGV[i]); i = i + 1",
+      "for n = 1, count do",
+      "  local uuid, page, info = ARGV[i], ARGV[i + 1], ARGV[i + 2]; i = i + 3",
+      "  if redis.call('HGET', imagePages, uuid) == page then",
+      "    local previous = redis.call('HGET', images, uuid)",
+      "    redis.call('HSET', images, uuid, info)",
+      "    local order = readOrder(page)",
+      "    removeFrom(order, uuid)",
+      "    order[#order + 1] = uuid",
+      "    writeOrder(page, order)",
+      "    applied[#applied + 1] = previous; changed = true",
+      "  else applied[#applied + 1] = 0 end",
+      "end",
+      "count = tonumber(ARGV[i]); i = i + 1",
+      "for n = 1, count do",
+      "  local uuid = ARGV[i]; i = i + 1",
+      "  local page = redis.call('HGET', imagePages, uuid)",
+      "  if page then",
+      "    redis.call('HDEL', images, uuid)",
+      "    redis.call('HDEL', imagePages, uuid)",
+      "    local order = readOrder(page)",
+      "    removeFrom(order, uuid)",
+      "    writeOrder(page, order)",
+      "    applied[#applied + 1] = 1; changed = true",
+      "  else applied[#applied + 1] = 0 end",
+      "end",
+      "local version",
+      "if changed then",
+      "  version = redis.call('HINCRBY', meta, 'version', 1)",
+      "  redis.call('HSET', meta, 'lastModifiedDate', ARGV[1])",
+      "else",
+      "  version = tonumber(redis.call('HGET', meta, 'version') or '0')",
+      "end",
+      "table.insert(applied, 1, version)",
+      "return applied"), List.class);
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final ObjectMapper objectMapper;
+
+  // 기존 값을 옮기는 트랜잭션이 다른 요청과 충돌해 취소될 때 최대 재시도 횟수
+  @Value("${album.layout.migrate-max-retries:10}")
+  private int migrateMaxRetries;
+
+  // 같은 앨범의 key 들이 같은 slot 에 배치되도록 albumUUID 를 hash tag 로 사용
+  private String keyPrefix(String albumUUID) {
+
+    return "album:{" + albumUUID + "}:";
+  }
+
+  private String metaKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "meta";
+  }
+
+  private String imagesKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "images";
+  }
+
+  private String imagePagesKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "image-pages";
+  }
+
+  private String pagesKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "pages";
+  }
+
+  private List<String> keys(String albumUUID) {
+
+    return List.of(metaKey(albumUUID), imagesKey(albumUUID), imagePagesKey(albumUUID), pagesKey(albumUUID));
+  }
+
+  public boolean exists(String albumUUID) {
+
+    return Boolean.TRUE.equals(redisTemplate.hasKey(metaKey(albumUUID)));
+  }
+
+  public int getPageCount(String albumUUID) {
+
+    Object pageCount = redisTemplate.opsForHash().get(metaKey(albumUUID), PAGE_COUNT);
+
+    return pageCount == null ? 0 : Integer.parseInt((String) pageCount);
+  }
+
+  /**
+   * <pre>
+   * Hash 로 나뉘어 저장된 레이아웃을 List<List<AlbumImageInfo>> 형태로 재조립
+   * meta, 이미지 정보, 페이지 순서를 하나의 트랜잭션으로 읽어 같은 version 의 레이아웃을 보장한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @return 저장된 레이아웃이 없다면 null
+   */
+  @SuppressWarnings("unchecked")
+  public AlbumImagesInfo read(String albumUUID) {
+
+    List<Object> results = redisTemplate.execute(new SessionCallback<List<Object>>() {
+
+      @Override
+      public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+
+        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+        ops.multi();
+
+        ops.opsForHash().entries(metaKey(albumUUID));
+        ops.opsForHash().entries(imagesKey(albumUUID));
+        ops.opsForHash().entries(pagesKey(albumUUID));
+
+        return ops.exec();
+      }
+    });
+
+    Map<Object, Object> meta = (Map<Object, Object>) results.get(0);
+    if (meta.isEmpty())
+      return null;
+
+    int pageCount = Integer.parseInt((String) meta.get(PAGE_COUNT));
+    Map<Object, Object> images = (Map<Object, Object>) results.get(1);
+    Map<Object, Object> pages = (Map<Object, Object>) results.get(2);
+    List<List<AlbumImageInfo>> imagesInfo = new ArrayList<>();
+
+    for (int pageNum = 0; pageNum < pageCount; pageNum++) {
+
+      List<AlbumImageInfo> imagesInfoByPage = new ArrayList<>();
+      for (String albumImageUUID : readOrder(pages.get(String.valueOf(pageNum)))) {
+
+        Object imageInfo = images.get(albumImageUUID);
+        if (imageInfo != null)
+          imagesInfoByPage.add(readImageInfo((String) imageInfo));
+      }
+      imagesInfo.add(imagesInfoByPage);
+    }
+
+    Object version = meta.get(VERSION);
+
+    return AlbumImagesInfo.builder()
+        .id(albumUUID)
+        .imagesInfo(imagesInfo)
+        .version(version == null ? 0 : Long.parseLong((String) version))
+        .createdDate(LocalDateTime.parse((String) meta.get(CREATED_DATE)))
+        .lastModifiedDate(LocalDateTime.parse((String) meta.get(LAST_MODIFIED_DATE)))
+        .build();
+  }
+
+  /**
+   * <pre>
+   * fromPage 부터 pageSize 개 페이지만 읽음
+   * meta 와 페이지 순서를 하나의 트랜잭션으로 읽은 뒤, 해당 페이지의 이미지 정보만 HMGET 으로 가져온다.
+   * 그 사이 제거된 이미지는 제외되고, 이동된 이미지는 최신 값으로 담길 수 있으나 이후 DELTA 로 같은 값이 다시 적용된다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param fromPage
+   * @param pageSize
+   * @return 저장된 레이아웃이 없다면 null
+   */
+  @SuppressWarnings("unchecked")
+  public AlbumPagesInfo readPages(String albumUUID, int fromPage, int pageSize) {
+
+    List<Object> pageNums = new ArrayList<>();
+    for (int pageNum = fromPage; pageNum < fromPage + pageSize; pageNum++)
+      pageNums.add(String.valueOf(pageNum));
+
+    List<Object> results = redisTemplate.execute(new SessionCallback<List<Object>>() {
+
+      @Override
+      public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+
+        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+        ops.multi();
+
+        ops.opsForHash().multiGet(metaKey(albumUUID), List.of(PAGE_COUNT, VERSION));
+        ops.opsForHash().multiGet(pagesKey(albumUUID), pageNums);
+
+        return ops.exec();
+      }
+    });
+
+    List<Object> meta = (List<Object>) results.get(0);
+    if (meta.get(0) == null)
+      return null;
+
+    int pageCount = Integer.parseInt((String) meta.get(0));
+    int toPage = (int) Math.min((long) fromPage + pageSize, pageCount);
+    List<Object> pages = (List<Object>) results.get(1);
+
+    List<List<String>> orders = new ArrayList<>();
+    List<Object> albumImageUUIDs = new ArrayList<>();
+    for (int pageNum = fromPage; pageNum < toPage; pageNum++) {
+
+      List<String> order = readOrder(pages.get(pageNum - fromPage));
+      orders.add(order);
+      albumImageUUIDs.addAll(order);
+    }
+
+    List<Object> images = albumImageUUIDs.isEmpty()
+        ? List.of()
+        : redisTemplate.opsForHash().multiGet(imagesKey(albumUUID), albumImageUUIDs);
+
+    List<List<AlbumImageInfo>> imagesInfo = new ArrayList<>();
+    int i = 0;
+    for (List<String> order : orders) {
+
+      List<AlbumImageInfo> imagesInfoByPage = new ArrayList<>();
+      for (int n = order.size(); n > 0; n--) {
+
+        Object imageInfo = images.get(i++);
+        if (imageInfo != null)
+          imagesInfoByPage.add(readImageInfo((String) imageInfo));
+      }
+      imagesInfo.add(imagesInfoByPage);
+    }
+
+    Object version = meta.get(1);
+
+    return AlbumPagesInfo.builder()
+        .sequence(version == null ? 0 : Long.parseLong((String) version))
+        .pageCount(pageCount)
+        .fromPage(fromPage)
+        .imagesInfo(imagesInfo)
+        .build();
+  }
+
+  /**
+   * 레이아웃 전체를 Hash 구조로 덮어쓰기 (앨범 생성, 체크포인트 복구 시 사용)
+   *
+   * @param albumUUID
+   * @param albumImagesInfo
+   */
+  @SuppressWarnings("unchecked")
+  public void write(String albumUUID, AlbumImagesInfo albumImagesInfo) {
+
+    // 기존 key 삭제와 새 값 저장을 하나의 트랜잭션으로 처리
+    redisTemplate.execute(new SessionCallback<List<Object>>() {
+
+      @Override
+      public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+
+        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+        ops.multi();
+        queueWrite(ops, albumUUID, albumImagesInfo);
+
+        return ops.exec();
+      }
+    });
+  }
+
+  /**
+   * meta 의 version 이 expectedVersion 일 때만 레이아웃 전체를 덮어쓰기
+   *
+   * @param albumUUID
+   * @param expectedVersion
+   * @param albumImagesInfo
+   * @return 저장했다면 true, version 이 다르거나 레이아웃이 없다면 false
+   */
+  @SuppressWarnings("unchecked")
+  public boolean compareAndWrite(String albumUUID, long expectedVersion, AlbumImagesInfo albumImagesInfo) {
+
+    return Boolean.TRUE.equals(redisTemplate.execute(new SessionCallback<Boolean>() {
+
+      @Override
+      public <K, V> Boolean execute(RedisOperations<K, V> operations) {
+
+        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+        ops.watch(metaKey(albumUUID));
+
+        Object version = ops.opsForHash().get(metaKey(albumUUID), VERSION);
+        if (version == null || Long.parseLong((String) version) != expectedVersion) {
+
+          ops.unwatch();
+          return false;
+        }
+
+        ops.multi();
+        queueWrite(ops, albumUUID, albumImagesInfo);
+        List<Object> result = ops.exec();
+
+        // 트랜잭션이 취소되었다면 빈 결과가 반환됨
+        return result != null && !result.isEmpty();
+      }
+    }));
+  }
+
+  /**
+   * <pre>
+   * legacyKey 에 하나의 문자열로 남아있는 레이아웃을 Hash 구조로 옮김
+   * legacyKey 와 meta 를 WATCH 한 뒤 Hash 저장과 기존 값 삭제를 하나의 트랜잭션으로 처리하고,
+   * 그 사이 다른 요청이 먼저 옮기거나 값을 바꾸었다면 다시 확인하며,
+   * migrateMaxRetries 번 모두 트랜잭션이 취소되면 더 기다리지 않고 IllegalStateException 을 던진다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param legacyKey 기존 값이 저장된 key
+   * @param decoder   기존 값을 레이아웃으로 변환, 읽을 수 없다면 예외를 던짐
+   */
+  @SuppressWarnings("unchecked")
+  public void migrate(String albumUUID, String legacyKey, Function<byte[], AlbumImagesInfo> decoder) {
+
+    for (int attempt = 1; attempt <= migrateMaxRetries; attempt++) {
+
+      Boolean migrated = redisTemplate.execute(new SessionCallback<Boolean>() {
+
+        @Override
+        public <K, V> Boolean execute(RedisOperations<K, V> operations) {
+
+          RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+          ops.watch(List.of(legacyKey, metaKey(albumUUID)));
+
+          if (Boolean.TRUE.equals(ops.hasKey(metaKey(albumUUID)))) {
+
+            ops.unwatch();
+            return true;
+          }
+
+          // 기존 값은 Smile 일 수도 있으므로 직렬화 없이 그대로 읽음
+          byte[] legacyValue = ops.execute(
+              (RedisCallback<byte[]>) connection -> connection.get(legacyKey.getBytes(StandardCharsets.UTF_8)));
+          AlbumImagesInfo albumImagesInfo = legacyValue == null ? null : decoder.apply(legacyValue);
+          if (albumImagesInfo == null) {
+
+            ops.unwatch();
+            return true;
+          }
+
+          ops.multi();
+          queueWrite(ops, albumUUID, albumImagesInfo);
+          ops.delete(legacyKey);
+          List<Object> result = ops.exec();
+
+          // 트랜잭션이 취소되었다면 빈 결과가 반환됨
+          return result != null && !result.isEmpty();
+        }
+      });
+
+      if (Boolean.TRUE.equals(migrated))
+        return;
+    }
+
+    log.error("앨범 {} 레이아웃을 Hash 구조로 옮기는 트랜잭션이 {}회 모두 취소되었습니다.", albumUUID, migrateMaxRetries);
+    throw new IllegalStateException("앨범 레이아웃을 Hash 구조로 옮기지 못했습니다: " + albumUUID);
+  }
+
+  /**
+   * 변경 요청을 Lua 스크립트로 한 번에 적용. 다른 편집자의 변경과 섞이지 않으므로 재시도가 필요 없다.
+   *
+   * @param albumUUID
+   * @param request
+   * @return 실제로 반영된 항목과 반영 후 version 을 sequence 로 담은 DELTA
+   */
+  @SuppressWarnings({ "unchecked", "null" })
+  public AlbumLayoutMessage apply(String albumUUID, AlbumLayoutMessage request) {
+
+    List<Object> args = new ArrayList<>();
+    args.add(LocalDateTime.now().toString());
+    args.add(String.valueOf(request.getAddedPages()));
+
+    args.add(String.valueOf(request.getAdded().size()));
+    for (AlbumImageEditMessage newImage : request.getAdded())
+      addImageArgs(args, newImage);
+
+    args.add(String.valueOf(request.getMoved().size()));
+    for (AlbumImageEditMessage target : request.getMoved())
+      addImageArgs(args, target);
+
+    args.add(String.valueOf(request.getRemoved().size()));
+    args.addAll(request.getRemoved());
+
+    List<Object> result = redisTemplate.execute(APPLY_DELTA_SCRIPT, keys(albumUUID), args.toArray());
+
+    long version = (Long) result.get(0);
+    if (version < 0)
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+
+    AlbumLayoutMessage applied = AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.DELTA)
+        .sequence(version)
+        .addedPages(request.getAddedPages())
+        .inverse(AlbumLayoutMessage.builder()
+            .type(AlbumLayoutMessageType.DELTA)
+            .build())
+        .build();
+
+    int i = 1;
+    for (AlbumImageEditMessage newImage : request.getAdded()) {
+
+      if (isApplied(result.get(i++))) {
+
+        applied.getAdded().add(newImage);
+        applied.getInverse().getRemoved().add(newImage.getAlbumImageUUID());
+      }
+    }
+    for (AlbumImageEditMessage target : request.getMoved()) {
+
+      Object previous = result.get(i++);
+      if (isApplied(previous)) {
+
+        applied.getMoved().add(target);
+        applied.getInverse().getMoved().add(AlbumImagesInfo.toEditMessage(readImageInfo((String) previous),
+            target.getAlbumImageEditInfo().getPageNum()));
+      }
+    }
+    for (String albumImageUUID : request.getRemoved()) {
+
+      if (isApplied(result.get(i++)))
+        applied.getRemoved().add(albumImageUUID);
+    }
+
+    return applied;
+  }
+
+  /**
+   * 앨범의 모든 레이아웃 key 삭제
+   *
+   * @param albumUUID
+   */
+  public void remove(String albumUUID) {
+
+    redisTemplate.delete(keys(albumUUID));
+  }
+
+  // 트랜잭션 안에서 기존 key 를 지우고 레이아웃 전체를 저장하는 명령을 쌓음
+  private void queueWrite(RedisOperations<String, Object> ops, String albumUUID, AlbumImagesInfo albumImagesInfo) {
+
+    List<List<AlbumImageInfo>> imagesInfo = albumImagesInfo.getImagesInfo();
+
+    Map<String, String> meta = new HashMap<>();
+    meta.put(PAGE_COUNT, String.valueOf(imagesInfo.size()));
+    meta.put(VERSION, String.valueOf(albumImagesInfo.getVersion()));
+    meta.put(CREATED_DATE, albumImagesInfo.getCreatedDate().toString());
+    meta.put(LAST_MODIFIED_DATE, albumImagesInfo.getLastModifiedDate().toString());
+
+    Map<String, String> images = new HashMap<>();
+    Map<String, String> imagePages = new HashMap<>();
+    Map<String, String> pages = new HashMap<>();
+    for (int pageNum = 0; pageNum < imagesInfo.size(); pageNum++) {
+
+      List<String> order = new ArrayList<>();
+      for (AlbumImageInfo imageInfo : imagesInfo.get(pageNum)) {
+
+        images.put(imageInfo.getAlbumImageUUID(), writeImageInfo(imageInfo));
+        imagePages.put(imageInfo.getAlbumImageUUID(), String.valueOf(pageNum));
+        order.add(imageInfo.getAlbumImageUUID());
+      }
+      pages.put(String.valueOf(pageNum), writeValue(order));
+    }
+
+    ops.delete(keys(albumUUID));
+    ops.opsForHash().putAll(metaKey(albumUUID), meta);
+    if (!images.isEmpty()) {
+
+      ops.opsForHash().putAll(imagesKey(albumUUID), images);
+      ops.opsForHash().putAll(imagePagesKey(albumUUID), imagePages);
+    }
+    if (!pages.isEmpty())
+      ops.opsForHash().putAll(pagesKey(albumUUID), pages);
+  }
+
+  // 저장된 페이지 순서가 없다면 빈 페이지
+  private List<String> readOrder(Object order) {
+
+    if (order == null)
+      return new ArrayList<>();
+
+    try {
+
+      return objectMapper.readValue((String) order, new TypeReference<List<String>>() {
+      });
+    } catch (JsonProcessingException e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // 스크립트 반환값 중 반영되지 않은 항목은 0
+  private static boolean isApplied(Object result) {
+
+    return !Long.valueOf(0).equals(result);
+  }
+
+  private void addImageArgs(List<Object> args, AlbumImageEditMessage message) {
+
+    args.add(message.getAlbumImageUUID());
+    args.add(String.valueOf(message.getAlbumImageEditInfo().getPageNum()));
+    args.add(writeImageInfo(AlbumImagesInfo.toAlbumImageInfo(message)));
+  }
+
+  private String writeImageInfo(AlbumImageInfo imageInfo) {
+
+    return writeValue(imageInfo);
+  }
+
+  private String writeValue(Object value) {
+
+    try {
+
+      return objectMapper.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private AlbumImageInfo readImageInfo(String imageInfo) {
+
+    try {
+
+      return objectMapper.readValue(imageInfo, AlbumImageInfo.class);
+    } catch (JsonProcessingException e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+}
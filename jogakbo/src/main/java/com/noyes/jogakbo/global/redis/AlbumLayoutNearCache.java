@@ -0,0 +1,146 @@
+package com.noyes.jogakbo.global.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <pre>
+ * 역직렬화된 앨범 레이아웃을 노드 메모리에 들고 있는 near cache
+ * max-size 를 넘으면 가장 오래 읽지 않은 앨범부터, ttl-ms 가 지나면 읽을 때 버린다.
+ * 레이아웃을 쓰는 노드는 album:layout:invalidate 채널로 albumUUID 를 발행하고, 모든 노드가 받아서 버린다.
+ * 캐시된 값은 여러 요청이 함께 보므로 읽기 전용으로만 사용해야 한다.
+ * </pre>
+ */
+@Component
+@RequiredArgsConstructor
+public class AlbumLayoutNearCache implements MessageListener {
+
+  private static final String INVALIDATE_CHANNEL = "album:layout:invalidate";
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final RedisMessageListenerContainer redisMessageListenerContainer;
+  private final MeterRegistry meterRegistry;
+
+  // accessOrder 로 LRU 순서 유지, 접근 시에도 순서가 바뀌므로 항상 동기화해서 사용
+  private final LinkedHashMap<String, CachedLayout> cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedLayout> eldest) {
+
+      return size() > maxSize;
+    }
+  };
+
+  // 무효화가 일어날 때마다 증가, 읽는 도중 무효화된 값을 다시 캐시에 넣지 않기 위해 사용
+  private final AtomicLong invalidations = new AtomicLong();
+
+  // 0 이하면 캐시를 사용하지 않음
+  @Value("${album.layout.cache.max-size:1000}")
+  private int maxSize;
+
+  @Value("${album.layout.cache.ttl-ms:30000}")
+  private long ttlMs;
+
+  @PostConstruct
+  public void init() {
+
+    redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    meterRegistry.gauge("album.layout.cache.size", cache, map -> {
+
+      synchronized (map) {
+        return map.size();
+      }
+    });
+  }
+
+  /**
+   * 캐시된 레이아웃을 반환하고, 없다면 loader 로 읽어 캐시에 넣음
+   *
+   * @param albumUUID
+   * @param loader
+   * @return 앨범이 없다면 null
+   */
+  public AlbumImagesInfo get(String albumUUID, Supplier<AlbumImagesInfo> loader) {
+
+    if (maxSize <= 0)
+      return loader.get();
+
+    long now = System.currentTimeMillis();
+    synchronized (cache) {
+
+      CachedLayout cached = cache.get(albumUUID);
+      if (cached != null && cached.expiresAt > now) {
+
+        meterRegistry.counter("album.layout.cache", "result", "hit").increment();
+        return cached.layout;
+      }
+      if (cached != null)
+        cache.remove(albumUUID);
+    }
+
+    meterRegistry.counter("album.layout.cache", "result", "miss").increment();
+
+    long invalidationsBeforeLoad = invalidations.get();
+    AlbumImagesInfo layout = loader.get();
+    if (layout == null)
+      return null;
+
+    synchronized (cache) {
+
+      if (invalidations.get() == invalidationsBeforeLoad)
+        cache.put(albumUUID, new CachedLayout(layout, now + ttlMs));
+    }
+
+    return layout;
+  }
+
+  /**
+   * 이 노드의 캐시에서 버리고, 다른 노드들에게도 버리도록 발행
+   *
+   * @param albumUUID
+   */
+  public void invalidate(String albumUUID) {
+
+    evict(albumUUID);
+    if (maxSize > 0)
+      redisTemplate.convertAndSend(INVALIDATE_CHANNEL, albumUUID);
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+
+    evict(new String(message.getBody(), StandardCharsets.UTF_8));
+  }
+
+  private void evict(String albumUUID) {
+
+    synchronized (cache) {
+
+      invalidations.incrementAndGet();
+      cache.remove(albumUUID);
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class CachedLayout {
+
+    private final AlbumImagesInfo layout;
+    private final long expiresAt;
+  }
+}
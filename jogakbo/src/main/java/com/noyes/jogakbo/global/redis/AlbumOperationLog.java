@@ -0,0 +1,288 @@
+package com.noyes.jogakbo.global.redis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumOperation;
+import com.noyes.jogakbo.album.DTO.AlbumOperationType;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <pre>
+ * 앨범별 작업 로그 (append-only)
+ * album:{albumUUID}:oplog - 반영된 작업을 type, version, forward, inverse 필드로 기록하는 Redis Stream
+ * album:{albumUUID}:undo  - 되돌릴 수 있는 작업의 entry ID (최근 작업이 앞)
+ * album:{albumUUID}:redo  - 되돌린 작업의 entry ID (최근에 되돌린 작업이 앞)
+ * 로그는 Mongo 체크포인트 이후 max-length 개 정도로만 유지하며, 체크포인트 이후의 작업을 다시 적용해 레이아웃을 복구할 때 사용한다.
+ * </pre>
+ */
+@Component
+@RequiredArgsConstructor
+public class AlbumOperationLog {
+
+  private static final String TYPE = "type";
+  private static final String VERSION = "version";
+  private static final String FORWARD = "forward";
+  private static final String INVERSE = "inverse";
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final ObjectMapper objectMapper;
+
+  // 체크포인트 후 압축 시 남겨둘 로그 길이 (대략적인 값)
+  @Value("${album.oplog.max-length:1000}")
+  private long maxLength;
+
+  // 되돌릴 수 있는 최대 작업 수
+  @Value("${album.oplog.max-undo:50}")
+  private long maxUndo;
+
+  private String keyPrefix(String albumUUID) {
+
+    return "album:{" + albumUUID + "}:";
+  }
+
+  private String logKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "oplog";
+  }
+
+  private String undoKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "undo";
+  }
+
+  private String redoKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "redo";
+  }
+
+  /**
+   * <pre>
+   * 반영된 작업을 로그에 추가
+   * 되돌릴 수 있는 작업이라면 undo 목록에 넣고, 더 이상 다시 실행할 수 없게 된 redo 목록은 비운다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param type
+   * @param applied   반영된 항목만 담긴 DELTA
+   * @return redo 목록에서 버려진 작업들
+   */
+  @SuppressWarnings("null")
+  public List<AlbumOperation> append(String albumUUID, AlbumOperationType type, AlbumLayoutMessage applied) {
+
+    if (!applied.hasChanges())
+      return List.of();
+
+    AlbumLayoutMessage inverse = type.isUndoable() ? applied.getInverse() : null;
+
+    Map<String, String> fields = new HashMap<>();
+    fields.put(TYPE, type.name());
+    fields.put(VERSION, String.valueOf(applied.getSequence()));
+    fields.put(FORWARD, write(applied));
+    if (inverse != null && inverse.hasChanges())
+      fields.put(INVERSE, write(inverse));
+
+    RecordId recordId = redisTemplate.opsForStream().add(StreamRecords.mapBacked(fields).withStreamKey(logKey(albumUUID)));
+
+    if (!fields.containsKey(INVERSE))
+      return List.of();
+
+    List<AlbumOperation> discarded = discardRedo(albumUUID);
+    redisTemplate.opsForList().leftPush(undoKey(albumUUID), recordId.getValue());
+    redisTemplate.opsForList().trim(undoKey(albumUUID), 0, maxUndo - 1);
+
+    return discarded;
+  }
+
+  /**
+   * 가장 최근에 반영된 되돌릴 수 있는 작업을 undo 목록에서 꺼냄, 압축으로 사라진 작업은 건너뜀
+   *
+   * @param albumUUID
+   * @return 없다면 null
+   */
+  public AlbumOperation popUndo(String albumUUID) {
+
+    return pop(albumUUID, undoKey(albumUUID));
+  }
+
+  /**
+   * 가장 최근에 되돌린 작업을 redo 목록에서 꺼냄
+   *
+   * @param albumUUID
+   * @return 없다면 null
+   */
+  public AlbumOperation popRedo(String albumUUID) {
+
+    return pop(albumUUID, redoKey(albumUUID));
+  }
+
+  @SuppressWarnings("null")
+  public void pushUndo(String albumUUID, AlbumOperation operation) {
+
+    redisTemplate.opsForList().leftPush(undoKey(albumUUID), operation.getId());
+  }
+
+  @SuppressWarnings("null")
+  public void pushRedo(String albumUUID, AlbumOperation operation) {
+
+    redisTemplate.opsForList().leftPush(redoKey(albumUUID), operation.getId());
+  }
+
+  /**
+   * redo 목록을 비우고, 목록에 있던 작업들 반환
+   *
+   * @param albumUUID
+   * @return
+   */
+  @SuppressWarnings({ "unchecked", "null" })
+  public List<AlbumOperation> discardRedo(String albumUUID) {
+
+    List<Object> results = redisTemplate.execute(new SessionCallback<List<Object>>() {
+
+      @Override
+      public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+
+        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+        ops.multi();
+
+        ops.opsForList().range(redoKey(albumUUID), 0, -1);
+        ops.delete(redoKey(albumUUID));
+
+        return ops.exec();
+      }
+    });
+
+    List<AlbumOperation> discarded = new ArrayList<>();
+    for (Object recordId : (List<Object>) results.get(0)) {
+
+      AlbumOperation operation = read(albumUUID, (String) recordId);
+      if (operation != null)
+        discarded.add(operation);
+    }
+
+    return discarded;
+  }
+
+  /**
+   * version 이후에 반영된 작업들을 version 순서대로 반환
+   *
+   * @param albumUUID
+   * @param version
+   * @return
+   */
+  @SuppressWarnings("null")
+  public List<AlbumOperation> readAfter(String albumUUID, long version) {
+
+    List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+        .range(logKey(albumUUID), Range.unbounded());
+
+    List<AlbumOperation> operations = new ArrayList<>();
+    if (records == null)
+      return operations;
+
+    for (MapRecord<String, Object, Object> record : records) {
+
+      AlbumOperation operation = toOperation(record);
+      if (operation.getVersion() > version)
+        operations.add(operation);
+    }
+    operations.sort(Comparator.comparingLong(AlbumOperation::getVersion));
+
+    return operations;
+  }
+
+  /**
+   * 체크포인트된 앨범의 로그를 max-length 개 정도만 남기고 압축
+   *
+   * @param albumUUID
+   */
+  @SuppressWarnings("null")
+  public void compact(String albumUUID) {
+
+    redisTemplate.opsForStream().trim(logKey(albumUUID), maxLength, true);
+  }
+
+  @SuppressWarnings("null")
+  public void remove(String albumUUID) {
+
+    redisTemplate.delete(List.of(logKey(albumUUID), undoKey(albumUUID), redoKey(albumUUID)));
+  }
+
+  @SuppressWarnings("null")
+  private AlbumOperation pop(String albumUUID, String key) {
+
+    Object recordId;
+    while ((recordId = redisTemplate.opsForList().leftPop(key)) != null) {
+
+      AlbumOperation operation = read(albumUUID, (String) recordId);
+      if (operation != null)
+        return operation;
+    }
+
+    return null;
+  }
+
+  @SuppressWarnings("null")
+  private AlbumOperation read(String albumUUID, String recordId) {
+
+    List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+        .range(logKey(albumUUID), Range.closed(recordId, recordId));
+
+    return records == null || records.isEmpty() ? null : toOperation(records.get(0));
+  }
+
+  private AlbumOperation toOperation(MapRecord<String, Object, Object> record) {
+
+    Map<Object, Object> fields = record.getValue();
+
+    return AlbumOperation.builder()
+        .id(record.getId().getValue())
+        .type(AlbumOperationType.valueOf((String) fields.get(TYPE)))
+        .version(Long.parseLong((String) fields.get(VERSION)))
+        .forward(read((String) fields.get(FORWARD)))
+        .inverse(read((String) fields.get(INVERSE)))
+        .build();
+  }
+
+  private String write(AlbumLayoutMessage message) {
+
+    try {
+
+      return objectMapper.writeValueAsString(message);
+    } catch (JsonProcessingException e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private AlbumLayoutMessage read(String value) {
+
+    if (value == null)
+      return null;
+
+    try {
+
+      return objectMapper.readValue(value, AlbumLayoutMessage.class);
+    } catch (JsonProcessingException e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+}
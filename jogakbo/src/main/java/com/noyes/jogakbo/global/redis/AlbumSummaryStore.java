@@ -0,0 +1,273 @@
+package com.noyes.jogakbo.global.redis;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumSummary;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <pre>
+ * 앨범 요약 정보를 레이아웃과 별도로 관리하는 저장소
+ * album:{albumUUID}:summary        - imageCount, pageCount, memberCount, totalBytes, lastModifiedDate, version
+ * album:{albumUUID}:image-bytes    - albumImageUUID -> 업로드된 파일 크기 (S3 에서 삭제될 때까지 유지)
+ * album:{albumUUID}:summary-missed - 요약이 없는 동안 반영하지 못한 DELTA 중 가장 큰 sequence
+ * 레이아웃에 반영된 DELTA 만큼 Redis 서버에서 증감하므로, 요약을 읽을 때 레이아웃 전체를 읽지 않는다.
+ * 요약이 없는 앨범에는 증감하지 않으며, 처음 조회할 때 레이아웃으로 다시 만든다.
+ * 요약에는 만들 때 읽은 레이아웃의 version 을 함께 저장해, 그 version 까지의 DELTA 는 두 번 세지 않고
+ * 요약이 없는 동안 놓친 DELTA 보다 오래된 레이아웃으로는 요약을 만들지 않는다.
+ * </pre>
+ */
+@Component
+@RequiredArgsConstructor
+public class AlbumSummaryStore {
+
+  private static final String IMAGE_COUNT = "imageCount";
+  private static final String PAGE_COUNT = "pageCount";
+  private static final String MEMBER_COUNT = "memberCount";
+  private static final String TOTAL_BYTES = "totalBytes";
+  private static final String LAST_MODIFIED_DATE = "lastModifiedDate";
+  private static final String VERSION = "version";
+
+  // 놓친 DELTA 기록 유지 시간, 그 사이 요약을 다시 만들 때만 필요하므로 오래 둘 필요 없음
+  private static final long MISSED_TTL_SECONDS = 600;
+
+  /**
+   * <pre>
+   * 반영된 DELTA 만큼 요약을 증감하는 스크립트
+   * 요약이 없다면 놓친 sequence 만 기록하고, 요약을 만들 때 읽은 레이아웃에 이미 담긴 DELTA(sequence <= version)는 건너뛴다.
+   * KEYS: summary, image-bytes, summary-missed
+   * ARGV: addedPages, lastModifiedDate, sequence, 놓친 기록 유지 시간(초), added 개수, uuid..., removed 개수, uuid...
+   * 반환: 반영했다면 1, 아니라면 0
+   * </pre>
+   */
+  private static final RedisScript<Long> APPLY_DELTA_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "local summary, imageBytes, missed = KEYS[1], KEYS[2], KEYS[3]",
+      "local sequence = tonumber(ARGV[3])",
+      "if redis.call('EXISTS', summary) == 0 then",
+      "  if sequence > tonumber(redis.call('GET', missed) or '-1') then",
+      "    redis.call('SET', missed, ARGV[3], 'EX', ARGV[4])",
+      "  end",
+      "  return 0",
+      "end",
+      // version 이 없는 요약은 도입 전에 만들어진 것이므로 모든 DELTA 를 반영
+      "if sequence <= tonumber(redis.call('HGET', summary, 'version') or '-1') then return 0 end",
+      "redis.call('HINCRBY', summary, 'pageCount', ARGV[1])",
+      "redis.call('HSET', summary, 'lastModifiedDate', ARGV[2])",
+      "local i = 5",
+      "for _, sign in ipairs({ 1, -1 }) do",
+      "  local count = tonumber(ARGV[i]); i = i + 1",
+      "  for n = 1, count do",
+      "    local bytes = redis.call('HGET', imageBytes, ARGV[i]); i = i + 1",
+      "    redis.call('HINCRBY', summary, 'imageCount', sign)",
+      "    if bytes then redis.call('HINCRBY', summary, 'totalBytes', sign * tonumber(bytes)) end",
+      "  end",
+      "end",
+      "return 1"), Long.class);
+
+  // 요약이 있을 때만 field 를 증감하는 스크립트
+  private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end",
+      "redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])",
+      "return 1"), Long.class);
+
+  /**
+   * <pre>
+   * 요약이 없을 때만 저장하는 스크립트, 그 사이 다른 요청이 만든 요약을 덮어쓰지 않음
+   * 요약이 없는 동안 놓친 DELTA 가 요약을 만든 레이아웃보다 새롭다면 저장하지 않는다.
+   * KEYS: summary, summary-missed
+   * ARGV: version, (field, value)...
+   * 반환: 저장했다면 1, 이미 있다면 0, 레이아웃이 놓친 DELTA 보다 오래되었다면 -1
+   * </pre>
+   */
+  private static final RedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end",
+      "if tonumber(redis.call('GET', KEYS[2]) or '-1') > tonumber(ARGV[1]) then return -1 end",
+      "redis.call('HSET', KEYS[1], 'version', ARGV[1])",
+      "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end",
+      "redis.call('DEL', KEYS[2])",
+      "return 1"), Long.class);
+
+  private final RedisTemplate<String, Object> redisTemplate;
+
+  private String keyPrefix(String albumUUID) {
+
+    return "album:{" + albumUUID + "}:";
+  }
+
+  private String summaryKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "summary";
+  }
+
+  private String imageBytesKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "image-bytes";
+  }
+
+  private String missedKey(String albumUUID) {
+
+    return keyPrefix(albumUUID) + "summary-missed";
+  }
+
+  /**
+   * 앨범 요약 조회
+   *
+   * @param albumUUID
+   * @return 요약이 없다면 null
+   */
+  @SuppressWarnings("null")
+  public AlbumSummary get(String albumUUID) {
+
+    Map<Object, Object> fields = redisTemplate.opsForHash().entries(summaryKey(albumUUID));
+    if (fields.isEmpty())
+      return null;
+
+    Object lastModifiedDate = fields.get(LAST_MODIFIED_DATE);
+    Object version = fields.get(VERSION);
+
+    return AlbumSummary.builder()
+        .imageCount(Integer.parseInt((String) fields.get(IMAGE_COUNT)))
+        .pageCount(Integer.parseInt((String) fields.get(PAGE_COUNT)))
+        .memberCount(Integer.parseInt((String) fields.get(MEMBER_COUNT)))
+        .totalBytes(Long.parseLong((String) fields.get(TOTAL_BYTES)))
+        .lastModifiedDate(lastModifiedDate == null ? null : LocalDateTime.parse((String) lastModifiedDate))
+        .version(version == null ? 0 : Long.parseLong((String) version))
+        .build();
+  }
+
+  /**
+   * <pre>
+   * 요약이 없을 때만 저장
+   * albumSummary 의 version 은 요약을 만들 때 읽은 레이아웃의 version 이어야 하며,
+   * 요약이 없는 동안 그보다 새로운 DELTA 를 놓쳤다면 저장하지 않으므로 레이아웃을 다시 읽어 만들어야 한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param albumSummary
+   * @return 저장했다면 true, 이미 요약이 있거나 레이아웃이 놓친 DELTA 보다 오래되었다면 false
+   */
+  @SuppressWarnings("null")
+  public boolean init(String albumUUID, AlbumSummary albumSummary) {
+
+    List<Object> args = new ArrayList<>(List.of(
+        String.valueOf(albumSummary.getVersion()),
+        IMAGE_COUNT, String.valueOf(albumSummary.getImageCount()),
+        PAGE_COUNT, String.valueOf(albumSummary.getPageCount()),
+        MEMBER_COUNT, String.valueOf(albumSummary.getMemberCount()),
+        TOTAL_BYTES, String.valueOf(albumSummary.getTotalBytes())));
+    if (albumSummary.getLastModifiedDate() != null) {
+
+      args.add(LAST_MODIFIED_DATE);
+      args.add(albumSummary.getLastModifiedDate().toString());
+    }
+
+    Long result = redisTemplate.execute(INIT_SCRIPT, List.of(summaryKey(albumUUID), missedKey(albumUUID)),
+        args.toArray());
+
+    return result != null && result == 1;
+  }
+
+  /**
+   * <pre>
+   * 레이아웃에 반영된 DELTA 만큼 요약을 증감
+   * 요약을 만든 레이아웃에 이미 담긴 DELTA 는 건너뛰고, 요약이 없다면 놓친 sequence 만 기록한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param applied   반영된 항목과 반영 후 레이아웃 version 을 sequence 로 담은 DELTA
+   */
+  @SuppressWarnings("null")
+  public void apply(String albumUUID, AlbumLayoutMessage applied) {
+
+    List<Object> args = new ArrayList<>();
+    args.add(String.valueOf(applied.getAddedPages()));
+    args.add(LocalDateTime.now().toString());
+    args.add(String.valueOf(applied.getSequence()));
+    args.add(String.valueOf(MISSED_TTL_SECONDS));
+    args.add(String.valueOf(applied.getAdded().size()));
+    for (AlbumImageEditMessage added : applied.getAdded())
+      args.add(added.getAlbumImageUUID());
+    args.add(String.valueOf(applied.getRemoved().size()));
+    args.addAll(applied.getRemoved());
+
+    redisTemplate.execute(APPLY_DELTA_SCRIPT,
+        List.of(summaryKey(albumUUID), imageBytesKey(albumUUID), missedKey(albumUUID)), args.toArray());
+  }
+
+  @SuppressWarnings("null")
+  public void incrementMemberCount(String albumUUID, int delta) {
+
+    redisTemplate.execute(INCREMENT_SCRIPT, List.of(summaryKey(albumUUID)), MEMBER_COUNT, String.valueOf(delta));
+  }
+
+  /**
+   * 업로드된 파일 크기 기록, 레이아웃에 반영하기 전에 기록해야 totalBytes 에 포함된다.
+   *
+   * @param albumUUID
+   * @param imageBytes albumImageUUID -> 파일 크기
+   */
+  @SuppressWarnings("null")
+  public void recordImageBytes(String albumUUID, Map<String, Long> imageBytes) {
+
+    if (imageBytes.isEmpty())
+      return;
+
+    Map<String, String> fields = new HashMap<>();
+    imageBytes.forEach((albumImageUUID, bytes) -> fields.put(albumImageUUID, String.valueOf(bytes)));
+    redisTemplate.opsForHash().putAll(imageBytesKey(albumUUID), fields);
+  }
+
+  /**
+   * 레이아웃에 있는 이미지들의 파일 크기 합, 기록이 없는 이미지는 제외
+   *
+   * @param albumUUID
+   * @param albumImageUUIDs
+   * @return
+   */
+  @SuppressWarnings("null")
+  public long sumImageBytes(String albumUUID, Collection<String> albumImageUUIDs) {
+
+    if (albumImageUUIDs.isEmpty())
+      return 0;
+
+    long totalBytes = 0;
+    for (Object bytes : redisTemplate.opsForHash().multiGet(imageBytesKey(albumUUID), new ArrayList<>(albumImageUUIDs))) {
+
+      if (bytes != null)
+        totalBytes += Long.parseLong((String) bytes);
+    }
+
+    return totalBytes;
+  }
+
+  /**
+   * S3 에서 삭제된 이미지의 파일 크기 기록 삭제
+   *
+   * @param albumUUID
+   * @param albumImageUUID
+   */
+  @SuppressWarnings("null")
+  public void removeImageBytes(String albumUUID, String albumImageUUID) {
+
+    redisTemplate.opsForHash().delete(imageBytesKey(albumUUID), albumImageUUID);
+  }
+
+  @SuppressWarnings("null")
+  public void remove(String albumUUID) {
+
+    redisTemplate.delete(List.of(summaryKey(albumUUID), imageBytesKey(albumUUID), missedKey(albumUUID)));
+  }
+}
@@ -0,0 +1,201 @@
+package com.noyes.jogakbo.global.redis;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 내용이 같은 이미지를 S3 에 한 번만 저장하기 위한 색인
+ * image:contents               - sha256 -> 저장된 파일명 ({sha256}-{albumImageUUID})
+ * image:content-refs           - sha256 -> 그 파일을 가리키는 앨범 이미지 수
+ * album:{albumUUID}:image-contents - albumImageUUID -> 저장된 파일명
+ * 참조 수 증감과 연결은 스크립트 하나로 처리하므로, 여러 노드에서 같은 사진을 동시에 올리거나 지워도 어긋나지 않는다.
+ * 마지막 참조가 사라지면 색인에서 지우고 파일명을 돌려주며, 호출한 쪽이 S3 파일을 삭제한다.
+ * 색인에서 지운 뒤 같은 사진이 다시 올라오면 새 파일명으로 저장되므로, 늦게 도착한 삭제가 새 파일을 지우지 않는다.
+ * 스크립트가 전역 key 와 앨범 key 를 함께 다뤄 Redis Cluster 에서는 CROSSSLOT 으로 실패하므로,
+ * 시작할 때 Cluster 연결이라면 색인을 끄고 이미지는 기존처럼 앨범 경로에 저장한다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageContentIndex {
+
+  private static final String CONTENTS_KEY = "image:contents";
+  private static final String REFS_KEY = "image:content-refs";
+
+  /**
+   * <pre>
+   * 같은 내용이 이미 저장되어 있다면 참조를 하나 늘리고 앨범 이미지와 연결
+   * KEYS: image-contents, contents, refs
+   * ARGV: sha256, albumImageUUID
+   * </pre>
+   */
+  private static final RedisScript<String> ACQUIRE_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "local content = redis.call('HGET', KEYS[2], ARGV[1])",
+      "if not content then return false end",
+      "redis.call('HINCRBY', KEYS[3], ARGV[1], 1)",
+      "redis.call('HSET', KEYS[1], ARGV[2], content)",
+      "return content"), String.class);
+
+  /**
+   * <pre>
+   * 새로 업로드한 파일을 등록하고 앨범 이미지와 연결
+   * 그 사이 같은 내용이 먼저 등록되었다면 먼저 등록된 파일에 연결한다.
+   * KEYS: image-contents, contents, refs
+   * ARGV: sha256, albumImageUUID, 업로드한 파일명
+   * </pre>
+   */
+  private static final RedisScript<String> REGISTER_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "local content = redis.call('HGET', KEYS[2], ARGV[1])",
+      "if not content then",
+      "  content = ARGV[3]",
+      "  redis.call('HSET', KEYS[2], ARGV[1], content)",
+      "end",
+      "redis.call('HINCRBY', KEYS[3], ARGV[1], 1)",
+      "redis.call('HSET', KEYS[1], ARGV[2], content)",
+      "return content"), String.class);
+
+  /**
+   * <pre>
+   * 앨범 이미지의 연결을 끊고 참조를 하나 줄임
+   * 연결이 없었다면 nil, 참조가 남아있다면 빈 문자열, 마지막 참조였다면 삭제할 파일명을 반환
+   * KEYS: image-contents, contents, refs
+   * ARGV: albumImageUUID
+   * </pre>
+   */
+  private static final RedisScript<String> RELEASE_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "local content = redis.call('HGET', KEYS[1], ARGV[1])",
+      "if not content then return false end",
+      "redis.call('HDEL', KEYS[1], ARGV[1])",
+      "local sha256 = string.sub(content, 1, 64)",
+      "if redis.call('HINCRBY', KEYS[3], sha256, -1) > 0 then return '' end",
+      "redis.call('HDEL', KEYS[3], sha256)",
+      "if redis.call('HGET', KEYS[2], sha256) == content then redis.call('HDEL', KEYS[2], sha256) end",
+      "return content"), String.class);
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private boolean enabled;
+
+  @PostConstruct
+  public void init() {
+
+    RedisConnectionFactory connectionFactory = redisTemplate.getRequiredConnectionFactory();
+    enabled = !(connectionFactory instanceof LettuceConnectionFactory
+        && ((LettuceConnectionFactory) connectionFactory).isClusterAware());
+
+    if (!enabled)
+      log.warn("Redis Cluster 연결에서는 이미지 내용 색인을 사용할 수 없어 중복 제거 없이 앨범 경로에 저장합니다.");
+  }
+
+  /**
+   * 색인을 사용할 수 있는지 여부, false 라면 acquire, register 를 호출하면 안 됨
+   *
+   * @return Redis Cluster 연결이 아니라면 true
+   */
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  private List<String> keys(String albumUUID) {
+
+    return List.of("album:{" + albumUUID + "}:image-contents", CONTENTS_KEY, REFS_KEY);
+  }
+
+  /**
+   * 같은 내용이 이미 저장되어 있다면 albumImageUUID 를 그 파일에 연결
+   *
+   * @param albumUUID
+   * @param albumImageUUID
+   * @param sha256
+   * @return 연결된 파일명, 저장된 적 없는 내용이라면 null
+   */
+  @SuppressWarnings("null")
+  public String acquire(String albumUUID, String albumImageUUID, String sha256) {
+
+    checkEnabled();
+    return redisTemplate.execute(ACQUIRE_SCRIPT, keys(albumUUID), sha256, albumImageUUID);
+  }
+
+  /**
+   * 새로 업로드한 파일을 등록하고 albumImageUUID 를 연결
+   *
+   * @param albumUUID
+   * @param albumImageUUID
+   * @param sha256
+   * @param contentName    업로드한 파일명
+   * @return 연결된 파일명, contentName 과 다르다면 업로드한 파일은 쓰이지 않으므로 삭제해야 함
+   */
+  @SuppressWarnings("null")
+  public String register(String albumUUID, String albumImageUUID, String sha256, String contentName) {
+
+    checkEnabled();
+    return redisTemplate.execute(REGISTER_SCRIPT, keys(albumUUID), sha256, albumImageUUID, contentName);
+  }
+
+  /**
+   * albumImageUUID 의 연결을 끊음
+   *
+   * @param albumUUID
+   * @param albumImageUUID
+   * @return 연결이 없었다면 null, 다른 참조가 남아있다면 빈 문자열, 마지막 참조였다면 삭제할 파일명
+   */
+  @SuppressWarnings("null")
+  public String release(String albumUUID, String albumImageUUID) {
+
+    // 색인을 끈 상태에서는 연결된 이미지가 없음
+    if (!enabled)
+      return null;
+
+    return redisTemplate.execute(RELEASE_SCRIPT, keys(albumUUID), albumImageUUID);
+  }
+
+  /**
+   * albumImageUUID 가 연결된 파일명
+   *
+   * @param albumUUID
+   * @param albumImageUUID
+   * @return 연결이 없다면(색인 도입 전이나 presigned URL 로 올린 이미지) null
+   */
+  @SuppressWarnings("null")
+  public String getContentName(String albumUUID, String albumImageUUID) {
+
+    return (String) redisTemplate.opsForHash().get(keys(albumUUID).get(0), albumImageUUID);
+  }
+
+  /**
+   * 앨범의 이미지별로 연결된 파일명
+   *
+   * @param albumUUID
+   * @return albumImageUUID -> 파일명
+   */
+  @SuppressWarnings("null")
+  public Map<String, String> getContentNames(String albumUUID) {
+
+    Map<String, String> contentNames = new HashMap<>();
+    redisTemplate.opsForHash().entries(keys(albumUUID).get(0))
+        .forEach((albumImageUUID, contentName) -> contentNames.put((String) albumImageUUID, (String) contentName));
+
+    return contentNames;
+  }
+
+  private void checkEnabled() {
+
+    if (!enabled)
+      throw new IllegalStateException("Redis Cluster 연결에서는 이미지 내용 색인을 사용할 수 없습니다.");
+  }
+}
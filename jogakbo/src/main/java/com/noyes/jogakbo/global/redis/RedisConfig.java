@@ -6,6 +6,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -31,6 +33,28 @@ public class RedisConfig {
     redisTemplate.setConnectionFactory(redisConnectionFactory());
     redisTemplate.setKeySerializer(new StringRedisSerializer());
     redisTemplate.setValueSerializer(new StringRedisSerializer());
+    redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+    redisTemplate.setHashValueSerializer(new StringRedisSerializer());
     return redisTemplate;
   }
+
+  // 앨범 레이아웃처럼 JSON, Smile 형식이 섞여 저장되는 값을 위한 byte[] 템플릿
+  @SuppressWarnings("null")
+  @Bean
+  public RedisTemplate<String, byte[]> binaryRedisTemplate() {
+    RedisTemplate<String, byte[]> binaryRedisTemplate = new RedisTemplate<>();
+    binaryRedisTemplate.setConnectionFactory(redisConnectionFactory());
+    binaryRedisTemplate.setKeySerializer(new StringRedisSerializer());
+    binaryRedisTemplate.setValueSerializer(RedisSerializer.byteArray());
+    return binaryRedisTemplate;
+  }
+
+  // 노드 간 캐시 무효화처럼 Redis pub/sub 메세지를 받기 위한 컨테이너
+  @SuppressWarnings("null")
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer() {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(redisConnectionFactory());
+    return container;
+  }
 }
@@ -1,59 +1,525 @@
 package com.noyes.jogakbo.global.redis;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class RedisService {
 
+  // Mongo 에 아직 체크포인트되지 않은 변경이 있는 albumUUID 집합
+  private static final String DIRTY_ALBUMS_KEY = "album:{checkpoint}:dirty";
+  // 체크포인트 중인 albumUUID -> 가져간 시각, 두 key 를 스크립트 하나에서 다루므로 같은 hash tag 를 사용
+  private static final String CHECKPOINTING_ALBUMS_KEY = "album:{checkpoint}:in-flight";
+
+  /**
+   * <pre>
+   * 체크포인트할 앨범을 dirty 집합에서 in-flight 로 옮기며 가져옴
+   * 가져간 노드가 완료하지 못하고 멈췄다면, 가져간 지 오래된 앨범을 먼저 dirty 집합으로 되돌린다.
+   * KEYS: dirty, in-flight
+   * ARGV: count, 현재 시각, 이보다 먼저 가져간 앨범은 되돌림
+   * </pre>
+   */
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> CLAIM_DIRTY_SCRIPT = new DefaultRedisScript<>(String.join("\n",
+      "for _, albumUUID in ipairs(redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[3])) do",
+      "  redis.call('SADD', KEYS[1], albumUUID)",
+      "  redis.call('ZREM', KEYS[2], albumUUID)",
+      "end",
+      "local albumUUIDs = redis.call('SPOP', KEYS[1], ARGV[1])",
+      "for _, albumUUID in ipairs(albumUUIDs) do",
+      "  redis.call('ZADD', KEYS[2], ARGV[2], albumUUID)",
+      "end",
+      "return albumUUIDs"), List.class);
+
   private final RedisTemplate<String, Object> redisTemplate;
-  private final ObjectMapper objectMapper;
+  // json 모드의 레이아웃 값은 JSON, Smile 형식을 모두 담을 수 있도록 byte[] 로 읽고 씀
+  private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+  private final AlbumLayoutCodec albumLayoutCodec;
+  private final AlbumLayoutHashStore albumLayoutHashStore;
+  private final AlbumLayoutNearCache albumLayoutNearCache;
+  private final MeterRegistry meterRegistry;
+
+  // json: 앨범 레이아웃 전체를 하나의 JSON 문자열로 저장, hash: 이미지 단위 Hash 로 저장
+  @Value("${album.layout.storage:json}")
+  private String layoutStorage;
+
+  // json 모드에서 동시 편집 충돌 시 최대 재시도 횟수
+  @Value("${album.layout.max-retries:20}")
+  private int maxRetries;
+
+  private boolean isHashStorage() {
+
+    return "hash".equals(layoutStorage);
+  }
 
   // 직접 만든 redisTemplate 사용
   @SuppressWarnings("null")
   public void setAlbumRedisValue(String albumUUID, AlbumImagesInfo albumImagesInfo) {
 
     albumImagesInfo.setLastModifiedDate(LocalDateTime.now());
+
+    if (isHashStorage()) {
+
+      albumLayoutHashStore.write(albumUUID, albumImagesInfo);
+      markAlbumDirty(albumUUID);
+      albumLayoutNearCache.invalidate(albumUUID);
+      return;
+    }
+
     try {
 
-      redisTemplate.opsForValue().set(albumUUID, objectMapper.writeValueAsString(albumImagesInfo));
+      binaryRedisTemplate.opsForValue().set(albumUUID, albumLayoutCodec.encode(albumImagesInfo));
+      markAlbumDirty(albumUUID);
+      albumLayoutNearCache.invalidate(albumUUID);
     } catch (JsonProcessingException e) {
 
       e.printStackTrace();
     }
   }
 
-  public <T> T getAlbumRedisValue(String albumUUID, Class<T> classType) {
+  /**
+   * <pre>
+   * Redis 에 저장된 레이아웃의 version 이 expectedVersion 일 때만 덮어쓰기
+   * 메모리에서 편집한 레이아웃을 반영할 때 그 사이 다른 노드의 변경을 지우지 않도록 사용한다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param expectedVersion 레이아웃을 읽었을 때의 version
+   * @param albumImagesInfo
+   * @return 저장했다면 true, version 이 다르거나 레이아웃이 없다면 false
+   */
+  @SuppressWarnings("unchecked")
+  public boolean compareAndSetAlbumRedisValue(String albumUUID, long expectedVersion, AlbumImagesInfo albumImagesInfo) {
+
+    albumImagesInfo.setLastModifiedDate(LocalDateTime.now());
+
+    boolean written;
+    if (isHashStorage()) {
+
+      migrateIfNeeded(albumUUID);
+      written = albumLayoutHashStore.compareAndWrite(albumUUID, expectedVersion, albumImagesInfo);
+    } else {
+
+      byte[] redisValue;
+      try {
+
+        redisValue = albumLayoutCodec.encode(albumImagesInfo);
+      } catch (JsonProcessingException e) {
+
+        throw new IllegalStateException(e);
+      }
+
+      written = Boolean.TRUE.equals(binaryRedisTemplate.execute(new SessionCallback<Boolean>() {
+
+        @Override
+        public <K, V> Boolean execute(RedisOperations<K, V> operations) {
+
+          RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+          ops.watch(albumUUID);
+
+          AlbumImagesInfo current = parseLayoutValue(ops.opsForValue().get(albumUUID));
+          if (current == null || current.getVersion() != expectedVersion) {
+
+            ops.unwatch();
+            return false;
+          }
+
+          ops.multi();
+          ops.opsForValue().set(albumUUID, redisValue);
+          List<Object> result = ops.exec();
+
+          // 트랜잭션이 취소되었다면 빈 결과가 반환됨
+          return result != null && !result.isEmpty();
+        }
+      }));
+    }
+
+    if (written) {
+
+      markAlbumDirty(albumUUID);
+      albumLayoutNearCache.invalidate(albumUUID);
+    }
+
+    return written;
+  }
+
+  /**
+   * <pre>
+   * Redis 에서 사라진 앨범 레이아웃을 Mongo 의 체크포인트로 복구
+   * 그 사이 다른 요청이 먼저 복구했다면 덮어쓰지 않는다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param albumImagesInfo
+   */
+  @SuppressWarnings("null")
+  public void restoreAlbumRedisValue(String albumUUID, AlbumImagesInfo albumImagesInfo) {
+
+    if (isHashStorage()) {
+
+      if (!albumLayoutHashStore.exists(albumUUID))
+        albumLayoutHashStore.write(albumUUID, albumImagesInfo);
+      albumLayoutNearCache.invalidate(albumUUID);
+      return;
+    }
 
-    @SuppressWarnings("null")
-    String redisValue = (String) redisTemplate.opsForValue().get(albumUUID);
-    T albumRedisValue = null;
     try {
 
-      albumRedisValue = objectMapper.readValue(redisValue, classType);
+      binaryRedisTemplate.opsForValue().setIfAbsent(albumUUID, albumLayoutCodec.encode(albumImagesInfo));
+      albumLayoutNearCache.invalidate(albumUUID);
     } catch (JsonProcessingException e) {
 
       e.printStackTrace();
     }
-    return albumRedisValue;
+  }
+
+  /**
+   * albumUUID 에 해당하는 앨범 레이아웃 조회.
+   * hash 모드에서 아직 JSON 문자열로 남아있는 앨범은 읽은 뒤 Hash 구조로 옮겨 저장한다.
+   *
+   * @param albumUUID
+   * @return
+   */
+  public AlbumImagesInfo getAlbumImagesInfo(String albumUUID) {
+
+    if (!isHashStorage())
+      return readLayoutValue(albumUUID);
+
+    AlbumImagesInfo albumImagesInfo = albumLayoutHashStore.read(albumUUID);
+    if (albumImagesInfo != null)
+      return albumImagesInfo;
+
+    // 기존 JSON 형식으로 저장된 앨범을 Hash 형식으로 이전
+    albumLayoutHashStore.migrate(albumUUID, albumUUID, this::parseLayoutValue);
+
+    return albumLayoutHashStore.read(albumUUID);
+  }
+
+  /**
+   * <pre>
+   * 읽기 전용으로 앨범 레이아웃 조회
+   * near cache 에 있다면 Redis 를 거치지 않으며, 반환된 값은 다른 요청과 공유되므로 수정하면 안 된다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @return
+   */
+  public AlbumImagesInfo getCachedAlbumImagesInfo(String albumUUID) {
+
+    return albumLayoutNearCache.get(albumUUID, () -> getAlbumImagesInfo(albumUUID));
+  }
+
+  /**
+   * <pre>
+   * 변경 요청(DELTA)을 다른 편집자의 변경을 덮어쓰지 않도록 원자적으로 적용
+   * hash: Lua 스크립트로 Redis 서버에서 한 번에 적용
+   * json: WATCH 후 version 을 올려 MULTI/EXEC 로 저장하고, 그 사이 값이 바뀌었다면 다시 읽어 재시도
+   * </pre>
+   *
+   * @param albumUUID
+   * @param request
+   * @return 실제로 반영된 항목과 반영 후 version 을 sequence 로 담은 DELTA
+   */
+  public AlbumLayoutMessage applyAlbumLayoutDelta(String albumUUID, AlbumLayoutMessage request) {
+
+    if (isHashStorage()) {
+
+      migrateIfNeeded(albumUUID);
+      AlbumLayoutMessage applied = albumLayoutHashStore.apply(albumUUID, request);
+      recordRetries(albumUUID, 0);
+      if (applied.hasChanges()) {
+
+        markAlbumDirty(albumUUID);
+        albumLayoutNearCache.invalidate(albumUUID);
+      }
+
+      return applied;
+    }
+
+    for (int retries = 0; retries <= maxRetries; retries++) {
+
+      AlbumLayoutMessage applied = tryApplyJsonDelta(albumUUID, request);
+      if (applied != null) {
+
+        recordRetries(albumUUID, retries);
+        if (applied.hasChanges()) {
+
+          markAlbumDirty(albumUUID);
+          albumLayoutNearCache.invalidate(albumUUID);
+        }
+        return applied;
+      }
+    }
+
+    meterRegistry.counter("album.layout.edit.conflicts", "storage", layoutStorage).increment();
+    log.warn("앨범 {} 레이아웃 변경이 {}회 연속 충돌하여 반영하지 못했습니다.", albumUUID, maxRetries + 1);
+    throw new ResponseStatusException(HttpStatus.CONFLICT, "다른 편집자의 변경과 충돌했습니다. 다시 시도해주세요.");
+  }
+
+  /**
+   * <pre>
+   * fromPage 부터 pageSize 개 페이지만 조회
+   * hash 모드는 요청한 페이지의 이미지만 읽고, json 모드는 값 전체를 읽은 뒤 잘라낸다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param fromPage
+   * @param pageSize
+   * @return
+   */
+  public AlbumPagesInfo getAlbumPages(String albumUUID, int fromPage, int pageSize) {
+
+    AlbumPagesInfo albumPagesInfo;
+    if (isHashStorage()) {
+
+      migrateIfNeeded(albumUUID);
+      albumPagesInfo = albumLayoutHashStore.readPages(albumUUID, fromPage, pageSize);
+    } else {
+
+      AlbumImagesInfo albumImagesInfo = getCachedAlbumImagesInfo(albumUUID);
+      albumPagesInfo = albumImagesInfo == null ? null : albumImagesInfo.getPages(fromPage, pageSize);
+    }
+
+    if (albumPagesInfo == null)
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+
+    return albumPagesInfo;
+  }
+
+  public int getAlbumPageCount(String albumUUID) {
+
+    if (isHashStorage()) {
+
+      migrateIfNeeded(albumUUID);
+      if (!albumLayoutHashStore.exists(albumUUID))
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+
+      return albumLayoutHashStore.getPageCount(albumUUID);
+    }
+
+    AlbumImagesInfo albumImagesInfo = getCachedAlbumImagesInfo(albumUUID);
+    if (albumImagesInfo == null)
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+
+    return albumImagesInfo.getImagesInfo().size();
   }
 
   /**
    * Album data of albumUUID will be removed in redis.
-   * 
+   *
    * @param
    */
   @SuppressWarnings("null")
   public void removeAlbumRedisValue(String albumUUID) {
 
     redisTemplate.delete(albumUUID);
+    albumLayoutHashStore.remove(albumUUID);
+    redisTemplate.opsForSet().remove(DIRTY_ALBUMS_KEY, albumUUID);
+    redisTemplate.opsForZSet().remove(CHECKPOINTING_ALBUMS_KEY, albumUUID);
+    redisTemplate.delete(pendingUploadsKey(albumUUID));
+    albumLayoutNearCache.invalidate(albumUUID);
+  }
+
+  /**
+   * <pre>
+   * presigned URL 을 발급한 파일을 업로드 대기 중으로 기록
+   * 대기 목록은 마지막 발급 후 ttl 이 지나면 통째로 사라진다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param fileNames
+   * @param ttl
+   */
+  @SuppressWarnings("null")
+  public void addPendingUploads(String albumUUID, List<String> fileNames, Duration ttl) {
+
+    String key = pendingUploadsKey(albumUUID);
+    redisTemplate.opsForSet().add(key, fileNames.toArray());
+    redisTemplate.expire(key, ttl);
+  }
+
+  /**
+   * 업로드 대기 목록에서 파일 제거, 여러 번 완료 요청이 와도 한 번만 true 를 반환한다.
+   *
+   * @param albumUUID
+   * @param fileName
+   * @return 대기 중이던 파일이라면 true
+   */
+  @SuppressWarnings("null")
+  public boolean removePendingUpload(String albumUUID, String fileName) {
+
+    Long removed = redisTemplate.opsForSet().remove(pendingUploadsKey(albumUUID), fileName);
+
+    return removed != null && removed > 0;
+  }
+
+  private static String pendingUploadsKey(String albumUUID) {
+
+    return "album:" + albumUUID + ":pending-uploads";
+  }
+
+  /**
+   * 체크포인트할 앨범으로 표시
+   *
+   * @param albumUUID
+   */
+  @SuppressWarnings("null")
+  public void markAlbumDirty(String albumUUID) {
+
+    redisTemplate.opsForSet().add(DIRTY_ALBUMS_KEY, albumUUID);
+  }
+
+  /**
+   * <pre>
+   * 체크포인트할 앨범을 최대 count 개 가져옴, 여러 노드가 동시에 가져가도 겹치지 않는다.
+   * 가져간 앨범은 completeCheckpoint 로 완료하거나 markAlbumDirty 로 되돌려야 하며,
+   * claimTimeout 이 지나도록 완료되지 않은 앨범은 다음에 가져갈 때 dirty 집합으로 되돌아간다.
+   * </pre>
+   *
+   * @param count
+   * @param claimTimeout
+   * @return
+   */
+  @SuppressWarnings({ "unchecked", "null" })
+  public List<String> claimDirtyAlbums(int count, Duration claimTimeout) {
+
+    long now = System.currentTimeMillis();
+    List<Object> albumUUIDs = redisTemplate.execute(CLAIM_DIRTY_SCRIPT,
+        List.of(DIRTY_ALBUMS_KEY, CHECKPOINTING_ALBUMS_KEY),
+        String.valueOf(count), String.valueOf(now), String.valueOf(now - claimTimeout.toMillis()));
+
+    List<String> result = new ArrayList<>();
+    if (albumUUIDs != null) {
+
+      for (Object albumUUID : albumUUIDs)
+        result.add((String) albumUUID);
+    }
+
+    return result;
+  }
+
+  /**
+   * 가져간 앨범의 체크포인트 완료, 그 사이 다시 변경되었다면 dirty 집합에 남아있다.
+   *
+   * @param albumUUIDs
+   */
+  @SuppressWarnings("null")
+  public void completeCheckpoint(List<String> albumUUIDs) {
+
+    if (!albumUUIDs.isEmpty())
+      redisTemplate.opsForZSet().remove(CHECKPOINTING_ALBUMS_KEY, albumUUIDs.toArray());
+  }
+
+  /**
+   * WATCH 중인 값이 EXEC 전에 바뀌었다면 null 을 반환해 재시도하게 한다.
+   *
+   * @param albumUUID
+   * @param request
+   * @return
+   */
+  @SuppressWarnings({ "unchecked", "null" })
+  private AlbumLayoutMessage tryApplyJsonDelta(String albumUUID, AlbumLayoutMessage request) {
+
+    return binaryRedisTemplate.execute(new SessionCallback<AlbumLayoutMessage>() {
+
+      @Override
+      public <K, V> AlbumLayoutMessage execute(RedisOperations<K, V> operations) {
+
+        RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+        ops.watch(albumUUID);
+
+        AlbumImagesInfo targetInfo = parseLayoutValue(ops.opsForValue().get(albumUUID));
+        if (targetInfo == null) {
+
+          ops.unwatch();
+          throw new ResponseStatusException(HttpStatus.NOT_FOUND, "유효하지 않은 앨범 ID 입니다.");
+        }
+
+        AlbumLayoutMessage applied = targetInfo.applyDelta(request);
+        if (!applied.hasChanges()) {
+
+          ops.unwatch();
+          return applied;
+        }
+
+        byte[] redisValue;
+        try {
+
+          redisValue = albumLayoutCodec.encode(targetInfo);
+        } catch (JsonProcessingException e) {
+
+          ops.unwatch();
+          throw new IllegalStateException(e);
+        }
+
+        ops.multi();
+        ops.opsForValue().set(albumUUID, redisValue);
+        List<Object> result = ops.exec();
+
+        // 트랜잭션이 취소되었다면 빈 결과가 반환됨
+        return result == null || result.isEmpty() ? null : applied;
+      }
+    });
+  }
+
+  // 편집 한 건을 반영하기까지의 재시도 횟수 기록, 충돌이 있던 앨범은 로그로 남김
+  private void recordRetries(String albumUUID, int retries) {
+
+    meterRegistry.summary("album.layout.edit.retries", "storage", layoutStorage).record(retries);
+    if (retries > 0)
+      log.info("앨범 {} 레이아웃 변경이 충돌로 {}회 재시도되었습니다.", albumUUID, retries);
+  }
+
+  private void migrateIfNeeded(String albumUUID) {
+
+    if (!albumLayoutHashStore.exists(albumUUID))
+      albumLayoutHashStore.migrate(albumUUID, albumUUID, this::parseLayoutValue);
+  }
+
+  private AlbumImagesInfo readLayoutValue(String albumUUID) {
+
+    @SuppressWarnings("null")
+    byte[] redisValue = binaryRedisTemplate.opsForValue().get(albumUUID);
+
+    return parseLayoutValue(redisValue);
+  }
+
+  private AlbumImagesInfo parseLayoutValue(byte[] redisValue) {
+
+    if (redisValue == null)
+      return null;
+
+    try {
+
+      return albumLayoutCodec.decode(redisValue, AlbumImagesInfo.class);
+    } catch (IOException e) {
+
+      // 읽지 못한 레이아웃을 없는 것으로 취급하면 빈 레이아웃으로 덮어쓰일 수 있으므로 실패로 처리
+      log.error("Redis 에 저장된 앨범 레이아웃을 읽지 못했습니다. ({} bytes)", redisValue.length, e);
+      throw new IllegalStateException(e);
+    }
   }
 }
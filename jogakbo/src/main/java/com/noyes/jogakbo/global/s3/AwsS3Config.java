@@ -4,8 +4,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 
@@ -20,12 +22,27 @@ public class AwsS3Config {
   @Value("${cloud.aws.region.static}")
   private String region;
 
+  // 로컬의 S3 호환 저장소(MinIO, LocalStack 등)로 테스트할 때만 지정
+  @Value("${cloud.aws.s3.endpoint:}")
+  private String endpoint;
+
+  // 업로드 스레드가 동시에 사용할 수 있는 최대 연결 수
+  @Value("${album.upload.threads:16}")
+  private int maxConnections;
+
   @Bean
   public AmazonS3Client amazonS3Client() {
     BasicAWSCredentials awsCreds = new BasicAWSCredentials(accessKey, secretKey);
-    return (AmazonS3Client) AmazonS3ClientBuilder.standard()
-        .withRegion(region)
-        .withCredentials(new AWSStaticCredentialsProvider(awsCreds))
-        .build();
+    AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+        .withClientConfiguration(new ClientConfiguration().withMaxConnections(Math.max(maxConnections, 50)))
+        .withCredentials(new AWSStaticCredentialsProvider(awsCreds));
+
+    if (endpoint.isBlank())
+      builder.withRegion(region);
+    else
+      builder.withEndpointConfiguration(new EndpointConfiguration(endpoint, region))
+          .withPathStyleAccessEnabled(true);
+
+    return (AmazonS3Client) builder.build();
   }
 }
@@ -2,9 +2,28 @@ package com.noyes.jogakbo.global.s3;
 
 import java.util.List;
 import java.util.UUID;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -12,21 +31,86 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.amazonaws.HttpMethod;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.noyes.jogakbo.global.redis.ImageContentIndex;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AwsS3Service {
+
+  // 한 번의 DeleteObjects 요청에 담을 수 있는 최대 파일 수
+  private static final int MAX_DELETE_KEYS = 1000;
+
+  // 내용 기준으로 한 번만 저장하는 앨범 이미지의 경로, 파일명은 {sha256}-{albumImageUUID}
+  private static final String CONTENT_PREFIX = "images";
+
   @Value("${cloud.aws.s3.bucket}")
   private String bucket;
 
+  // 업로드 전용 스레드 수와 요청 하나가 동시에 업로드할 수 있는 최대 파일 수
+  @Value("${album.upload.threads:16}")
+  private int uploadThreads;
+
+  @Value("${album.upload.max-concurrency:4}")
+  private int maxConcurrency;
+
+  // 삭제에 실패한 파일을 다시 시도하는 최대 횟수와 첫 재시도까지의 대기 시간 (시도마다 두 배씩 늘어남)
+  @Value("${album.delete.max-retries:3}")
+  private int deleteMaxRetries;
+
+  @Value("${album.delete.retry-backoff-ms:1000}")
+  private long deleteRetryBackoffMs;
+
   private final AmazonS3 amazonS3;
+  private final ImageContentIndex imageContentIndex;
+  private final MeterRegistry meterRegistry;
+  private ExecutorService uploadExecutor;
+  private ScheduledExecutorService deleteExecutor;
+
+  @PostConstruct
+  public void init() {
+
+    AtomicInteger threadCount = new AtomicInteger();
+    uploadExecutor = Executors.newFixedThreadPool(uploadThreads, runnable -> {
+
+      Thread thread = new Thread(runnable, "s3-upload-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    // 삭제는 요청 스레드와 분리해 하나의 스레드에서 순서대로 처리
+    deleteExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+      Thread thread = new Thread(runnable, "s3-delete");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    uploadExecutor.shutdown();
+    deleteExecutor.shutdown();
+  }
 
   /**
    * Upload single multipartFile to aws s3
@@ -38,24 +122,105 @@ public class AwsS3Service {
   public String uploadFile(MultipartFile multipartFile, String prefix) {
 
     String fileName = createFileName(multipartFile.getOriginalFilename());
-    String uploadFileName = prefix + "/" + fileName;
+    putFile(multipartFile, prefix + "/" + fileName);
+
+    return fileName;
+  }
+
+  /**
+   * <pre>
+   * 앨범 이미지를 내용 기준으로 한 번만 저장
+   * 받은 파일의 SHA-256 을 먼저 계산해, 같은 내용이 이미 저장되어 있다면 S3 에 올리지 않고 그 파일에 연결한다.
+   * 처음 보는 내용일 때만 images/{sha256}-{albumImageUUID} 로 바로 올린 뒤 등록한다.
+   * 색인을 쓸 수 없다면(Redis Cluster) 기존처럼 앨범 경로에 바로 저장한다.
+   * </pre>
+   *
+   * @param multipartFile
+   * @param albumUUID
+   * @return 앨범 안에서 쓰이는 albumImageUUID
+   * @throws ResponseStatusException
+   */
+  public String uploadImage(MultipartFile multipartFile, String albumUUID) {
+
+    String albumImageUUID = createFileName(multipartFile.getOriginalFilename());
+    if (!imageContentIndex.isEnabled()) {
+
+      putFile(multipartFile, albumUUID + "/" + albumImageUUID);
+      return albumImageUUID;
+    }
+
+    String sha256 = sha256(multipartFile);
+    if (imageContentIndex.acquire(albumUUID, albumImageUUID, sha256) != null) {
+
+      meterRegistry.counter("album.upload.dedup", "result", "hit").increment();
+      return albumImageUUID;
+    }
+
+    String contentName = sha256 + "-" + albumImageUUID;
+    putFile(multipartFile, CONTENT_PREFIX + "/" + contentName);
+    meterRegistry.counter("album.upload.dedup", "result", "miss").increment();
+
+    // 같은 내용이 동시에 올라와 먼저 등록되었다면 방금 올린 파일은 쓰이지 않음
+    if (!contentName.equals(imageContentIndex.register(albumUUID, albumImageUUID, sha256, contentName)))
+      deleteFiles(List.of(contentName), CONTENT_PREFIX);
+
+    return albumImageUUID;
+  }
+
+  private void putFile(MultipartFile multipartFile, String key) {
 
     ObjectMetadata objectMetadata = new ObjectMetadata();
     objectMetadata.setContentLength(multipartFile.getSize());
     objectMetadata.setContentType(multipartFile.getContentType());
 
     try (InputStream inputStream = multipartFile.getInputStream()) {
-      amazonS3.putObject(new PutObjectRequest(bucket, uploadFileName, inputStream, objectMetadata)
+      amazonS3.putObject(new PutObjectRequest(bucket, key, inputStream, objectMetadata)
           .withCannedAcl(CannedAccessControlList.PublicRead));
     } catch (IOException e) {
       throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "파일 업로드에 실패했습니다.");
     }
+  }
 
-    return fileName;
+  // 업로드 전에 파일 내용을 한 번 읽어 SHA-256 계산, multipart 파일은 메모리나 임시 파일에 있으므로 다시 읽을 수 있음
+  private static String sha256(MultipartFile multipartFile) {
+
+    MessageDigest digest = sha256Digest();
+    try (InputStream inputStream = new DigestInputStream(multipartFile.getInputStream(), digest)) {
+      inputStream.transferTo(OutputStream.nullOutputStream());
+    } catch (IOException e) {
+      throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "파일 업로드에 실패했습니다.");
+    }
+
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest sha256Digest() {
+
+    try {
+
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+
+    StringBuilder hex = new StringBuilder();
+    for (byte b : bytes)
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+
+    return hex.toString();
   }
 
   /**
-   * Upload list of multipartFiles to aws s3
+   * <pre>
+   * Upload list of album images to aws s3
+   * 요청마다 최대 max-concurrency 개씩 업로드 전용 스레드 풀에서 uploadImage 로 동시에 업로드하며,
+   * 반환하는 albumImageUUID 순서는 multipartFiles 순서와 같다.
+   * 일부 파일이라도 실패하면 성공한 이미지를 삭제하고, 실패한 파일명을 담아 예외를 던진다.
+   * </pre>
    * 
    * @param multipartFiles
    * @return result
@@ -63,29 +228,46 @@ public class AwsS3Service {
    */
   public List<String> uploadFiles(List<MultipartFile> multipartFiles, String prefix) {
 
-    List<String> fileNameList = new ArrayList<>();
+    Semaphore permits = new Semaphore(maxConcurrency);
+    List<CompletableFuture<String>> uploads = new ArrayList<>();
 
-    // forEach 구문을 통해 multipartFiles 리스트로 넘어온 파일들을 순차적으로 fileNameList 에 추가
-    multipartFiles.forEach(file -> {
+    for (MultipartFile multipartFile : multipartFiles) {
 
-      String fileName = createFileName(file.getOriginalFilename());
-      String uploadFileName = prefix + "/" + fileName;
+      // 요청 하나가 업로드 스레드를 모두 차지하지 않도록 동시에 올리는 파일 수 제한
+      permits.acquireUninterruptibly();
+      try {
 
-      ObjectMetadata objectMetadata = new ObjectMetadata();
-      objectMetadata.setContentLength(file.getSize());
-      objectMetadata.setContentType(file.getContentType());
+        uploads.add(CompletableFuture.supplyAsync(() -> uploadImage(multipartFile, prefix), uploadExecutor)
+            .whenComplete((fileName, e) -> permits.release()));
+      } catch (RejectedExecutionException e) {
 
-      try (InputStream inputStream = file.getInputStream()) {
-        amazonS3.putObject(new PutObjectRequest(bucket, uploadFileName, inputStream, objectMetadata)
-            .withCannedAcl(CannedAccessControlList.PublicRead));
-      } catch (IOException e) {
-        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "파일 업로드에 실패했습니다.");
+        permits.release();
+        uploads.add(CompletableFuture.failedFuture(e));
       }
+    }
 
-      fileNameList.add(fileName);
-    });
+    List<String> fileNameList = new ArrayList<>();
+    List<String> failedFiles = new ArrayList<>();
+    for (int i = 0; i < uploads.size(); i++) {
+
+      try {
 
-    return fileNameList;
+        fileNameList.add(uploads.get(i).join());
+      } catch (CompletionException e) {
+
+        failedFiles.add(multipartFiles.get(i).getOriginalFilename());
+        log.warn("{} 파일 업로드에 실패했습니다.", multipartFiles.get(i).getOriginalFilename(), e.getCause());
+      }
+    }
+
+    if (failedFiles.isEmpty())
+      return fileNameList;
+
+    // 레이아웃에 반영되지 않을 이미지들이므로 성공한 이미지도 삭제
+    deleteImages(fileNameList, prefix);
+
+    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+        "파일 업로드에 실패했습니다. (" + String.join(", ", failedFiles) + ")");
   }
 
   // 먼저 파일 업로드시, 파일명을 난수화하기 위해 UUID 를 활용하여 난수를 돌린다.
@@ -103,10 +285,259 @@ public class AwsS3Service {
     }
   }
 
+  /**
+   * <pre>
+   * 클라이언트가 서버를 거치지 않고 S3 에 직접 올릴 수 있는 presigned PUT URL 발급
+   * 업로드할 때 서명에 포함된 Content-Type 과 x-amz-acl: public-read 헤더를 그대로 보내야 한다.
+   * </pre>
+   *
+   * @param fileName    createFileName 으로 만든 S3 파일명
+   * @param prefix
+   * @param contentType
+   * @param expiration
+   * @return
+   */
+  public URL createUploadURL(String fileName, String prefix, String contentType, Date expiration) {
+
+    GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucket, prefix + "/" + fileName)
+        .withMethod(HttpMethod.PUT)
+        .withExpiration(expiration)
+        .withContentType(contentType);
+    request.putCustomRequestHeader(Headers.S3_CANNED_ACL, CannedAccessControlList.PublicRead.toString());
+
+    return amazonS3.generatePresignedUrl(request);
+  }
+
+  /**
+   * S3 에 올라간 파일의 크기 조회
+   *
+   * @param fileName
+   * @param prefix
+   * @return 파일이 없다면 null
+   */
+  public Long getFileSize(String fileName, String prefix) {
+
+    try {
+
+      return amazonS3.getObjectMetadata(bucket, prefix + "/" + fileName).getContentLength();
+    } catch (AmazonS3Exception e) {
+
+      if (e.getStatusCode() == HttpStatus.NOT_FOUND.value())
+        return null;
+      throw e;
+    }
+  }
+
+  /**
+   * S3 에 올라간 파일 읽기, 다 읽은 후 호출한 쪽에서 닫아야 함
+   *
+   * @param fileName
+   * @param prefix
+   * @return
+   */
+  public InputStream openFile(String fileName, String prefix) {
+
+    return amazonS3.getObject(bucket, prefix + "/" + fileName).getObjectContent();
+  }
+
+  /**
+   * 서버에서 만든 파일을 S3 에 업로드
+   *
+   * @param fileName
+   * @param prefix
+   * @param content
+   * @param contentType
+   */
+  public void putFile(String fileName, String prefix, byte[] content, String contentType) {
+
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentLength(content.length);
+    objectMetadata.setContentType(contentType);
+
+    amazonS3.putObject(new PutObjectRequest(bucket, prefix + "/" + fileName, new ByteArrayInputStream(content),
+        objectMetadata).withCannedAcl(CannedAccessControlList.PublicRead));
+  }
+
+  /**
+   * 공개 읽기로 올라간 파일의 URL
+   *
+   * @param fileName
+   * @param prefix
+   * @return
+   */
+  public String getFileURL(String fileName, String prefix) {
+
+    return amazonS3.getUrl(bucket, prefix + "/" + fileName).toString();
+  }
+
+  /**
+   * 앨범 이미지 원본 읽기, 내용 기준으로 저장된 이미지라면 연결된 파일을 읽음
+   *
+   * @param albumImageUUID
+   * @param albumUUID
+   * @return
+   */
+  public InputStream openImage(String albumImageUUID, String albumUUID) {
+
+    String contentName = imageContentIndex.getContentName(albumUUID, albumImageUUID);
+
+    return contentName == null
+        ? openFile(albumImageUUID, albumUUID)
+        : openFile(contentName, CONTENT_PREFIX);
+  }
+
+  /**
+   * 앨범 이미지 원본이 남아있는지 확인
+   *
+   * @param albumImageUUID
+   * @param albumUUID
+   * @return
+   */
+  public boolean existsImage(String albumImageUUID, String albumUUID) {
+
+    return imageContentIndex.getContentName(albumUUID, albumImageUUID) != null
+        || getFileSize(albumImageUUID, albumUUID) != null;
+  }
+
+  /**
+   * 앨범 이미지 원본의 URL
+   *
+   * @param albumImageUUID
+   * @param albumUUID
+   * @return
+   */
+  public String getImageURL(String albumImageUUID, String albumUUID) {
+
+    return getImageURL(albumImageUUID, albumUUID, imageContentIndex.getContentName(albumUUID, albumImageUUID));
+  }
+
+  /**
+   * 앨범 이미지 원본의 URL, 앨범 전체를 조회할 때 연결된 파일명을 한 번에 읽어 사용
+   *
+   * @param albumImageUUID
+   * @param albumUUID
+   * @param contentName    연결된 파일명, 없다면 null
+   * @return
+   */
+  public String getImageURL(String albumImageUUID, String albumUUID, String contentName) {
+
+    return contentName == null
+        ? getFileURL(albumImageUUID, albumUUID)
+        : getFileURL(contentName, CONTENT_PREFIX);
+  }
+
+  /**
+   * <pre>
+   * 앨범 이미지들을 백그라운드에서 삭제
+   * 내용 기준으로 저장된 이미지는 연결만 끊고, 마지막 참조였을 때만 S3 파일을 삭제한다.
+   * 색인 도입 전이나 presigned URL 로 올린 이미지는 앨범 경로의 파일을 바로 삭제한다.
+   * </pre>
+   *
+   * @param albumImageUUIDs
+   * @param albumUUID
+   */
+  public void deleteImages(List<String> albumImageUUIDs, String albumUUID) {
+
+    List<String> albumFileNames = new ArrayList<>();
+    List<String> contentNames = new ArrayList<>();
+    for (String albumImageUUID : albumImageUUIDs) {
+
+      String released = imageContentIndex.release(albumUUID, albumImageUUID);
+      if (released == null)
+        albumFileNames.add(albumImageUUID);
+      else if (!released.isEmpty())
+        contentNames.add(released);
+    }
+
+    deleteFiles(albumFileNames, albumUUID);
+    deleteFiles(contentNames, CONTENT_PREFIX);
+  }
+
   public void deleteFile(String fileName, String prefix) {
 
     String uploadFileName = prefix + "/" + fileName;
     amazonS3.deleteObject(new DeleteObjectRequest(bucket, uploadFileName));
-    System.out.println(bucket);
+  }
+
+  /**
+   * <pre>
+   * 여러 파일을 백그라운드에서 삭제
+   * 최대 1000개씩 묶어 DeleteObjects 요청으로 삭제하고, 실패한 파일만 모아 max-retries 번까지 다시 시도한다.
+   * 호출한 쪽은 삭제가 끝나기를 기다리지 않는다.
+   * </pre>
+   *
+   * @param fileNames
+   * @param prefix
+   * @return 모든 재시도가 끝나면 완료, 끝내 삭제하지 못한 파일 경로 목록을 담음
+   */
+  public CompletableFuture<List<String>> deleteFiles(List<String> fileNames, String prefix) {
+
+    CompletableFuture<List<String>> result = new CompletableFuture<>();
+    if (fileNames.isEmpty()) {
+
+      result.complete(List.of());
+      return result;
+    }
+
+    List<String> keys = new ArrayList<>(fileNames.size());
+    for (String fileName : fileNames)
+      keys.add(prefix + "/" + fileName);
+
+    try {
+
+      deleteExecutor.execute(() -> deleteKeys(keys, 0, result));
+    } catch (RejectedExecutionException e) {
+
+      log.warn("S3 파일 {}개를 삭제하지 못했습니다. (종료 중)", keys.size());
+      result.complete(keys);
+    }
+
+    return result;
+  }
+
+  private void deleteKeys(List<String> keys, int attempt, CompletableFuture<List<String>> result) {
+
+    List<String> failedKeys = new ArrayList<>();
+    for (int from = 0; from < keys.size(); from += MAX_DELETE_KEYS) {
+
+      List<String> batch = keys.subList(from, Math.min(from + MAX_DELETE_KEYS, keys.size()));
+      List<KeyVersion> keyVersions = new ArrayList<>(batch.size());
+      for (String key : batch)
+        keyVersions.add(new KeyVersion(key));
+
+      try {
+
+        amazonS3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(keyVersions).withQuiet(true));
+      } catch (MultiObjectDeleteException e) {
+
+        for (DeleteError error : e.getErrors())
+          failedKeys.add(error.getKey());
+      } catch (SdkClientException e) {
+
+        failedKeys.addAll(batch);
+      }
+    }
+
+    if (failedKeys.isEmpty()) {
+
+      result.complete(List.of());
+      return;
+    }
+
+    if (attempt >= deleteMaxRetries) {
+
+      log.warn("S3 파일 {}개를 {}번 시도했지만 삭제하지 못했습니다. {}", failedKeys.size(), attempt + 1, failedKeys);
+      result.complete(failedKeys);
+      return;
+    }
+
+    try {
+
+      deleteExecutor.schedule(() -> deleteKeys(failedKeys, attempt + 1, result),
+          deleteRetryBackoffMs << attempt, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+
+      result.complete(failedKeys);
+    }
   }
 }
@@ -0,0 +1,244 @@
+package com.noyes.jogakbo.global.websocket;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.global.redis.AlbumLayoutCodec;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 앨범 레이아웃 변경 사항을 /sub/edit/{albumUUID} 구독자들에게 전송
+ * cluster 모드에서는 Redis 채널 album:edit:{albumUUID} 로 발행하고,
+ * 해당 앨범의 구독자가 있는 노드만 채널을 구독해 자기 노드의 구독자들에게 전달한다.
+ * 발행한 노드도 같은 채널로 받아 전달하므로, 모든 노드의 구독자가 같은 순서로 받는다.
+ * 인코딩은 구독마다 SUBSCRIBE 의 accept-content-type 헤더로 정하며, 구독자는 JSON, Smile 중 한 형식의 프레임만 받는다.
+ * </pre>
+ */
+@Slf4j
+@Component
+public class AlbumBroadcaster implements MessageListener {
+
+  // SUBSCRIBE 시 받고 싶은 레이아웃 메세지 형식을 담는 헤더
+  public static final String ACCEPT_CONTENT_TYPE_HEADER = "accept-content-type";
+  public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+  private static final String CHANNEL_PREFIX = "album:edit:";
+  private static final String EDIT_DESTINATION_PREFIX = "/sub/edit/";
+  private static final String SMILE_EDIT_DESTINATION_PREFIX = "/sub/edit-smile/";
+
+  private final SimpMessagingTemplate simpMessagingTemplate;
+  private final AlbumLayoutCodec albumLayoutCodec;
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final RedisMessageListenerContainer redisMessageListenerContainer;
+  private final ObjectMapper objectMapper;
+  private final AlbumResumeBuffer albumResumeBuffer;
+  private final MeterRegistry meterRegistry;
+
+  // 이 노드가 구독 중인 album:edit 채널, 구독과 해제는 앨범 key 의 compute 안에서만 처리
+  private final Map<String, ChannelTopic> subscribedAlbums = new ConcurrentHashMap<>();
+
+  // true 면 accept-content-type 으로 Smile 을 요청한 구독에 Smile 형식의 바이너리 프레임을 전송
+  @Value("${album.broadcast.smile:false}")
+  private boolean smileEnabled;
+
+  // true 면 여러 노드의 구독자에게 Redis pub/sub 으로 전달
+  @Value("${album.broadcast.cluster:false}")
+  private boolean clusterEnabled;
+
+  // 앨범 세션 관리자가 채널 인터셉터를 통해 웹소켓 설정보다 먼저 생성되므로, 순환 참조를 피하기 위해 지연 주입
+  public AlbumBroadcaster(@Lazy SimpMessagingTemplate simpMessagingTemplate, AlbumLayoutCodec albumLayoutCodec,
+      RedisTemplate<String, Object> redisTemplate, RedisMessageListenerContainer redisMessageListenerContainer,
+      ObjectMapper objectMapper, AlbumResumeBuffer albumResumeBuffer, MeterRegistry meterRegistry) {
+
+    this.simpMessagingTemplate = simpMessagingTemplate;
+    this.albumLayoutCodec = albumLayoutCodec;
+    this.redisTemplate = redisTemplate;
+    this.redisMessageListenerContainer = redisMessageListenerContainer;
+    this.objectMapper = objectMapper;
+    this.albumResumeBuffer = albumResumeBuffer;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * <pre>
+   * albumUUID 를 구독 중인 편집자들에게 레이아웃 변경 사항 전송
+   * 반영된 변경 사항이 없다면 전송하지 않는다.
+   * </pre>
+   *
+   * @param albumUUID
+   * @param message
+   */
+  @SuppressWarnings("null")
+  public void broadcast(String albumUUID, AlbumLayoutMessage message) {
+
+    if (message == null || !message.hasChanges())
+      return;
+
+    if (!clusterEnabled) {
+
+      deliver(albumUUID, message);
+      return;
+    }
+
+    try {
+
+      redisTemplate.convertAndSend(CHANNEL_PREFIX + albumUUID, objectMapper.writeValueAsString(message));
+    } catch (JsonProcessingException e) {
+
+      // 어느 노드의 구독자도 받지 못하므로 클라이언트는 다음 sequence 의 공백으로 알아채고 다시 받아야 함
+      recordFailure("publish");
+      log.error("앨범 {} 의 DELTA {} 를 발행하지 못했습니다.", albumUUID, message.getSequence(), e);
+    }
+  }
+
+  /**
+   * 한 세션에만 메세지 전송, 클라이언트는 /user{destination} 을 구독해 받는다.
+   *
+   * @param sessionID
+   * @param destination
+   * @param payload
+   */
+  @SuppressWarnings("null")
+  public void sendToSession(String sessionID, String destination, Object payload) {
+
+    // user 자리에 sessionID 를 넣고 같은 sessionID 헤더를 담으면 해당 세션에만 전달됨
+    SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    headerAccessor.setSessionId(sessionID);
+    headerAccessor.setLeaveMutable(true);
+
+    simpMessagingTemplate.convertAndSendToUser(sessionID, destination, payload, headerAccessor.getMessageHeaders());
+  }
+
+  /**
+   * <pre>
+   * SUBSCRIBE 의 accept-content-type 헤더로 구독별 인코딩을 정해 등록할 destination 반환
+   * Smile 을 요청한 /sub/edit/{albumUUID} 구독은 /sub/edit-smile/{albumUUID} 로 바꿔 등록하므로,
+   * 같은 변경 사항을 두 형식으로 보내도 구독자는 자신이 요청한 형식의 프레임 하나만 받는다.
+   * Smile 전송이 꺼져 있거나 편집 경로가 아닌 구독은 그대로 둔다.
+   * </pre>
+   *
+   * @param destination       클라이언트가 구독한 destination
+   * @param acceptContentType accept-content-type 헤더 값, 없다면 null
+   * @return
+   */
+  public String negotiateDestination(String destination, String acceptContentType) {
+
+    if (!smileEnabled || destination == null || !destination.startsWith(EDIT_DESTINATION_PREFIX)
+        || !SMILE_CONTENT_TYPE.equalsIgnoreCase(acceptContentType))
+      return destination;
+
+    return SMILE_EDIT_DESTINATION_PREFIX + destination.substring(EDIT_DESTINATION_PREFIX.length());
+  }
+
+  /**
+   * <pre>
+   * cluster 모드에서 이 노드에 앨범의 첫 구독자가 생기면 앨범 채널 구독
+   * WebSocketSessionHolder 에 구독자를 등록한 뒤 호출해야, 같은 앨범의 unsubscribeAlbum 과 겹쳐도 구독이 남는다.
+   * </pre>
+   *
+   * @param albumUUID
+   */
+  @SuppressWarnings("null")
+  public void subscribeAlbum(String albumUUID) {
+
+    if (!clusterEnabled)
+      return;
+
+    subscribedAlbums.computeIfAbsent(albumUUID, key -> {
+
+      // 구독하지 않던 동안의 DELTA 는 받지 못했으므로 이전 버퍼로는 이어서 보낼 수 없음
+      albumResumeBuffer.clear(albumUUID);
+      ChannelTopic topic = new ChannelTopic(CHANNEL_PREFIX + albumUUID);
+      redisMessageListenerContainer.addMessageListener(this, topic);
+      return topic;
+    });
+  }
+
+  /**
+   * <pre>
+   * cluster 모드에서 이 노드에 앨범의 구독자가 더 이상 없다면 앨범 채널 구독 해제
+   * 구독자 수 확인과 해제를 subscribeAlbum 과 같은 앨범 key 의 compute 안에서 처리하므로,
+   * 호출한 쪽이 구독자가 없다고 본 뒤 새 구독자가 들어왔다면 해제하지 않는다.
+   * </pre>
+   *
+   * @param albumUUID
+   */
+  @SuppressWarnings("null")
+  public void unsubscribeAlbum(String albumUUID) {
+
+    if (!clusterEnabled)
+      return;
+
+    subscribedAlbums.computeIfPresent(albumUUID, (key, topic) -> {
+
+      if (WebSocketSessionHolder.countSessionsByDestination(albumUUID) > 0)
+        return topic;
+
+      redisMessageListenerContainer.removeMessageListener(this, topic);
+      return null;
+    });
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+
+    String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+    String albumUUID = channel.substring(CHANNEL_PREFIX.length());
+
+    try {
+
+      deliver(albumUUID, objectMapper.readValue(message.getBody(), AlbumLayoutMessage.class));
+    } catch (IOException e) {
+
+      recordFailure("receive");
+      log.warn("앨범 {} 의 레이아웃 메세지를 읽지 못했습니다.", albumUUID, e);
+    }
+  }
+
+  // 이 노드의 구독자들에게 전송, JSON 구독과 Smile 구독은 서로 다른 destination 이므로 구독자마다 한 번씩만 받음
+  @SuppressWarnings("null")
+  private void deliver(String albumUUID, AlbumLayoutMessage message) {
+
+    albumResumeBuffer.record(albumUUID, message);
+    simpMessagingTemplate.convertAndSend(EDIT_DESTINATION_PREFIX + albumUUID, message);
+
+    if (!smileEnabled)
+      return;
+
+    try {
+
+      simpMessagingTemplate.convertAndSend(SMILE_EDIT_DESTINATION_PREFIX + albumUUID,
+          albumLayoutCodec.encodeSmile(message));
+    } catch (JsonProcessingException e) {
+
+      recordFailure("smile");
+      log.error("앨범 {} 의 DELTA {} 를 Smile 구독자에게 보내지 못했습니다.", albumUUID, message.getSequence(), e);
+    }
+  }
+
+  // 구독자에게 전달되지 못한 DELTA 수, stage 는 실패한 단계 (publish, receive, smile)
+  private void recordFailure(String stage) {
+
+    meterRegistry.counter("album.broadcast.failed", "stage", stage).increment();
+  }
+}
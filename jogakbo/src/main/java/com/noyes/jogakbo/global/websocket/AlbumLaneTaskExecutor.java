@@ -0,0 +1,177 @@
+package com.noyes.jogakbo.global.websocket;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * <pre>
+ * 클라이언트가 보낸 /pub/{action}/{albumUUID}/... 메세지와 /sub/{topic}/{albumUUID} 구독을 albumUUID 의 hash 로 정해지는 lane 에서 처리하는 실행기
+ * lane 마다 스레드가 하나이므로 같은 앨범의 메세지는 받은 순서대로 하나씩 처리되고, 다른 앨범끼리는 다른 lane 에서 병렬로 처리된다.
+ * 구독도 같은 lane 에서 처리하므로, 구독 직후 보낸 편집이 구독보다 먼저 처리되지 않는다.
+ *
+ * UNSUBSCRIBE, DISCONNECT 는 destination 이 없으므로 FilterChannelInterceptor 가 LANE_ALBUMS_HEADER 에 담아둔 앨범으로 lane 을 정한다.
+ * - 앨범들이 한 lane 에 모이면 그 lane 에서 처리해, 앞서 받은 구독과 편집이 모두 처리된 뒤에 구독을 해제한다.
+ * - 여러 lane 에 걸치면 각 lane 에 앞서 쌓인 메세지가 모두 처리된 뒤 공용 스레드 풀에서 처리한다. (lane 스레드는 기다리지 않음)
+ * 그 외 앨범과 무관한 메세지(CONNECT 등)는 기존처럼 공용 스레드 풀에서 처리한다.
+ *
+ * lane 대기열은 lane-capacity 로 제한하며, 가득 차면 메세지를 거절하고 websocket.inbound.lane.rejected 를 센다.
+ * 단 UNSUBSCRIBE, DISCONNECT 는 버리면 구독이 남으므로 거절되면 공용 스레드 풀에서 처리한다.
+ * 거절은 호출한 스레드에서 실행하는 방식으로 대신하면 순서가 깨지므로 예외로 돌려주고, 클라이언트는 ERROR 프레임을 받고 다시 연결해 SNAPSHOT 으로 맞춘다.
+ *
+ * /pub/edit 는 lane 에서 AlbumEditCoalescer 에 순서대로 넘겨질 뿐, Redis 반영은 window 뒤 coalescer 스레드에서 일어난다.
+ * 따라서 lane 순서는 이미지별 마지막 편집 값까지만 보장하며, 같은 앨범의 다른 /pub 메세지와의 반영 순서는 AlbumEditCoalescer 의 설명을 따른다.
+ * </pre>
+ */
+public class AlbumLaneTaskExecutor extends ThreadPoolTaskExecutor {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String APPLICATION_PREFIX = "/pub/";
+  private static final String SUBSCRIPTION_PREFIX = "/sub/";
+
+  // 구독 해제, 연결 종료 메세지가 정리할 albumUUID 목록을 담는 헤더
+  public static final String LANE_ALBUMS_HEADER = "laneAlbums";
+
+  private final int laneCount;
+  private final int laneCapacity;
+  private final transient MeterRegistry meterRegistry;
+  private transient ThreadPoolExecutor[] lanes;
+
+  public AlbumLaneTaskExecutor(int laneCount, int laneCapacity, MeterRegistry meterRegistry) {
+
+    this.laneCount = laneCount;
+    this.laneCapacity = laneCapacity;
+    this.meterRegistry = meterRegistry;
+    // 앨범 경로가 아닌 메세지는 Spring 기본 설정과 같은 크기의 공용 스레드 풀에서 처리
+    setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+    setAllowCoreThreadTimeOut(true);
+    setThreadNamePrefix("clientInboundChannel-");
+  }
+
+  @Override
+  protected ExecutorService initializeExecutor(ThreadFactory threadFactory,
+      RejectedExecutionHandler rejectedExecutionHandler) {
+
+    RejectedExecutionHandler laneRejectedHandler = (runnable, lane) -> {
+
+      meterRegistry.counter("websocket.inbound.lane.rejected").increment();
+      throw new RejectedExecutionException("앨범 lane 대기열이 가득 찼습니다. (" + laneCapacity + ")");
+    };
+
+    lanes = new ThreadPoolExecutor[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+
+      String threadName = "album-lane-" + i;
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(laneCapacity),
+          runnable -> new Thread(runnable, threadName), laneRejectedHandler);
+
+      // lane 별로 처리를 기다리는 메세지 수
+      meterRegistry.gauge("websocket.inbound.lane.queue", Tags.of("lane", String.valueOf(i)), lanes[i],
+          lane -> lane.getQueue().size());
+    }
+
+    return super.initializeExecutor(threadFactory, rejectedExecutionHandler);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+
+    if (lanes == null || !(task instanceof MessageHandlingRunnable)) {
+
+      super.execute(task);
+      return;
+    }
+
+    MessageHeaders headers = ((MessageHandlingRunnable) task).getMessage().getHeaders();
+    String albumUUID = extractAlbumUUID(headers);
+    if (albumUUID != null) {
+
+      laneOf(albumUUID).execute(task);
+      return;
+    }
+
+    Collection<?> laneAlbums = headers.get(LANE_ALBUMS_HEADER, Collection.class);
+    if (laneAlbums == null || laneAlbums.isEmpty()) {
+
+      super.execute(task);
+      return;
+    }
+
+    ThreadPoolExecutor[] targetLanes = laneAlbums.stream()
+        .map(album -> laneOf(String.valueOf(album)))
+        .distinct()
+        .toArray(ThreadPoolExecutor[]::new);
+    try {
+
+      if (targetLanes.length == 1) {
+
+        targetLanes[0].execute(task);
+        return;
+      }
+
+      // 각 lane 에 앞서 쌓인 메세지가 처리되었음을 빈 작업으로 확인한 뒤 공용 스레드 풀에서 처리
+      CompletableFuture<?>[] drained = new CompletableFuture<?>[targetLanes.length];
+      for (int i = 0; i < targetLanes.length; i++)
+        drained[i] = CompletableFuture.runAsync(() -> {
+        }, targetLanes[i]);
+
+      CompletableFuture.allOf(drained).thenRun(() -> super.execute(task));
+    } catch (RejectedExecutionException e) {
+
+      // 구독 정리는 버리면 브로커에 구독이 남으므로, 순서를 포기하더라도 공용 스레드 풀에서 처리
+      super.execute(task);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+
+    if (lanes != null) {
+
+      for (ThreadPoolExecutor lane : lanes)
+        lane.shutdown();
+    }
+
+    super.shutdown();
+  }
+
+  private ThreadPoolExecutor laneOf(String albumUUID) {
+
+    return lanes[Math.floorMod(albumUUID.hashCode(), laneCount)];
+  }
+
+  // /pub/{action}/{albumUUID}/... 혹은 /sub/{topic}/{albumUUID} 경로의 albumUUID, 아니라면 null
+  private static String extractAlbumUUID(MessageHeaders headers) {
+
+    String destination = SimpMessageHeaderAccessor.getDestination(headers);
+    if (destination == null)
+      return null;
+
+    String path;
+    if (destination.startsWith(APPLICATION_PREFIX))
+      path = destination.substring(APPLICATION_PREFIX.length());
+    else if (destination.startsWith(SUBSCRIPTION_PREFIX))
+      path = destination.substring(SUBSCRIPTION_PREFIX.length());
+    else
+      return null;
+
+    String[] paths = path.split("/");
+
+    return paths.length < 2 || paths[1].isEmpty() ? null : paths[1];
+  }
+}
@@ -0,0 +1,120 @@
+package com.noyes.jogakbo.global.websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <pre>
+ * 이 노드가 구독자들에게 전송한 최근 DELTA 를 앨범별로 buffer-size 개까지 들고 있는 링 버퍼
+ * 다시 연결한 구독자가 마지막으로 받은 sequence 를 알려주면, 그 이후의 DELTA 만 다시 보낼 수 있다.
+ * 버퍼가 그 sequence 바로 다음부터 이어져 있지 않다면 놓친 DELTA 를 알 수 없으므로 null 을 반환하고, SNAPSHOT 으로 대신한다.
+ * 버퍼를 가진 앨범 수는 max-albums 로 제한하며, 가장 오래 사용하지 않은 앨범의 버퍼부터 버린다.
+ * </pre>
+ */
+@Component
+@RequiredArgsConstructor
+public class AlbumResumeBuffer {
+
+  private final MeterRegistry meterRegistry;
+
+  // accessOrder 로 LRU 순서 유지, 접근 시에도 순서가 바뀌므로 항상 동기화해서 사용
+  private final LinkedHashMap<String, ArrayDeque<AlbumLayoutMessage>> buffers = new LinkedHashMap<>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, ArrayDeque<AlbumLayoutMessage>> eldest) {
+
+      return size() > maxAlbums;
+    }
+  };
+
+  @Value("${album.resume.buffer-size:256}")
+  private int bufferSize;
+
+  @Value("${album.resume.max-albums:1000}")
+  private int maxAlbums;
+
+  /**
+   * 전송한 DELTA 기록
+   *
+   * @param albumUUID
+   * @param message
+   */
+  public void record(String albumUUID, AlbumLayoutMessage message) {
+
+    if (bufferSize <= 0)
+      return;
+
+    synchronized (buffers) {
+
+      ArrayDeque<AlbumLayoutMessage> buffer = buffers.computeIfAbsent(albumUUID, key -> new ArrayDeque<>());
+      buffer.addLast(message);
+      if (buffer.size() > bufferSize)
+        buffer.removeFirst();
+    }
+  }
+
+  /**
+   * sequence 이후에 전송된 DELTA 들을 순서대로 반환
+   *
+   * @param albumUUID
+   * @param sequence  구독자가 마지막으로 받은 sequence
+   * @return 버퍼가 sequence 다음부터 이어져 있지 않다면 null
+   */
+  public List<AlbumLayoutMessage> readAfter(String albumUUID, long sequence) {
+
+    List<AlbumLayoutMessage> missed = new ArrayList<>();
+    synchronized (buffers) {
+
+      ArrayDeque<AlbumLayoutMessage> buffer = buffers.get(albumUUID);
+      if (buffer == null || buffer.isEmpty() || buffer.getFirst().getSequence() > sequence + 1
+          || buffer.getLast().getSequence() < sequence) {
+
+        meterRegistry.counter("album.resume", "result", "snapshot").increment();
+        return null;
+      }
+
+      long expected = sequence + 1;
+      for (AlbumLayoutMessage message : buffer) {
+
+        if (message.getSequence() < expected)
+          continue;
+
+        // 중간에 빠진 DELTA 가 있다면 이어서 보낼 수 없음
+        if (message.getSequence() != expected) {
+
+          meterRegistry.counter("album.resume", "result", "snapshot").increment();
+          return null;
+        }
+
+        missed.add(message);
+        expected++;
+      }
+    }
+
+    meterRegistry.counter("album.resume", "result", "replay").increment();
+    return missed;
+  }
+
+  /**
+   * 앨범 버퍼 삭제, 이 노드가 앨범의 DELTA 를 받지 못했던 기간이 있다면 호출
+   *
+   * @param albumUUID
+   */
+  public void clear(String albumUUID) {
+
+    synchronized (buffers) {
+      buffers.remove(albumUUID);
+    }
+  }
+}
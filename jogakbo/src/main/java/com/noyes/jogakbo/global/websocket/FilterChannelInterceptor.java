@@ -1,5 +1,9 @@
 package com.noyes.jogakbo.global.websocket;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
@@ -8,6 +12,7 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -33,6 +38,8 @@ public class FilterChannelInterceptor implements ChannelInterceptor {
   private GrantedAuthoritiesMapper authoritiesMapper = new NullAuthoritiesMapper();
   private final JwtService jwtService;
   private final AlbumService albumService;
+  private final WebSocketSessionReaper webSocketSessionReaper;
+  private final AlbumBroadcaster albumBroadcaster;
 
   @SuppressWarnings("null")
   @Override
@@ -66,24 +73,65 @@ public class FilterChannelInterceptor implements ChannelInterceptor {
     } else if (headerAccessor.getCommand() == StompCommand.SUBSCRIBE) {
 
       // headerAccessor 에서 sessionID와 albumID, 유저 userUUID 추출
+      // (/sub/edit/{albumID}, /user/sub/snapshot/{albumID} 모두 마지막 경로가 albumID)
       String sessionID = headerAccessor.getSessionId();
-      String albumID = headerAccessor.getDestination().split("/")[3];
+      String destination = headerAccessor.getDestination();
+      String albumID = destination.substring(destination.lastIndexOf("/") + 1);
       String userUUID = headerAccessor.getUser().getName();
 
       // 유저가 albumEditors 에 포함되어 있는지 검증
       if (!albumService.isValidAlbumEditor(albumID, userUUID))
         throw new ResponseStatusException(HttpStatus.FORBIDDEN, "권한이 존재하지 않습니다.");
 
-      // sessionID에 구독 albumID를 경로를 업데이트
-      WebSocketSessionHolder.updateSessionWithDestination(sessionID, albumID);
+      // sessionID에 구독 albumID를 경로를 추가
+      WebSocketSessionHolder.updateSessionWithDestination(sessionID, headerAccessor.getSubscriptionId(), albumID);
+
+      // cluster 모드에서 다른 노드가 발행한 레이아웃 변경도 받도록 앨범 채널 구독
+      albumBroadcaster.subscribeAlbum(albumID);
+
+      // Smile 을 요청한 편집 구독은 Smile 전용 destination 으로 바꿔 브로커에 등록
+      String negotiated = albumBroadcaster.negotiateDestination(destination,
+          headerAccessor.getFirstNativeHeader(AlbumBroadcaster.ACCEPT_CONTENT_TYPE_HEADER));
+      if (!destination.equals(negotiated)) {
+
+        StompHeaderAccessor negotiatedAccessor = StompHeaderAccessor.wrap(message);
+        negotiatedAccessor.setDestination(negotiated);
+        message = MessageBuilder.createMessage(message.getPayload(), negotiatedAccessor.getMessageHeaders());
+      }
+
+    } else if (headerAccessor.getCommand() == StompCommand.UNSUBSCRIBE) {
+
+      // 구독 정보가 지워지기 전에 해제할 albumID 를 담아, 앞서 받은 구독과 같은 lane 에서 처리되도록 함
+      String sessionID = headerAccessor.getSessionId();
+      String subscribedAlbumID = WebSocketSessionHolder.getDestination(sessionID, headerAccessor.getSubscriptionId());
+      if (subscribedAlbumID != null)
+        message = withLaneAlbums(message, List.of(subscribedAlbumID));
+
+      // 세션이 더 이상 구독하지 않는 albumID 라면 구독자 정리
+      String albumID = WebSocketSessionHolder.removeSubscription(sessionID, headerAccessor.getSubscriptionId());
+      if (albumID != null)
+        webSocketSessionReaper.removeSubscription(sessionID, albumID);
 
     } else if (headerAccessor.getCommand() == StompCommand.DISCONNECT) {
 
+      // 세션이 구독하던 albumID 를 모두 담아, 각 앨범 lane 에 앞서 쌓인 메세지가 처리된 뒤 연결을 정리하도록 함
+      Set<String> albumIDs = WebSocketSessionHolder.getDestinations(headerAccessor.getSessionId());
+      if (!albumIDs.isEmpty())
+        message = withLaneAlbums(message, new ArrayList<>(albumIDs));
+
       // 관리 대상에서 특정 sessionID 제거
-      String sessionID = headerAccessor.getSessionId();
-      WebSocketSessionHolder.removeSession(sessionID);
+      webSocketSessionReaper.removeSession(headerAccessor.getSessionId());
     }
 
     return message;
   }
+
+  // AlbumLaneTaskExecutor 가 lane 을 정할 수 있도록 albumID 목록을 헤더에 담은 메세지
+  private static Message<?> withLaneAlbums(Message<?> message, List<String> albumIDs) {
+
+    StompHeaderAccessor laneAccessor = StompHeaderAccessor.wrap(message);
+    laneAccessor.setHeader(AlbumLaneTaskExecutor.LANE_ALBUMS_HEADER, albumIDs);
+
+    return MessageBuilder.createMessage(message.getPayload(), laneAccessor.getMessageHeaders());
+  }
 }
\ No newline at end of file
@@ -0,0 +1,254 @@
+package com.noyes.jogakbo.global.websocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.noyes.jogakbo.album.AlbumService;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <pre>
+ * 클라이언트로 나가는 메세지가 세션별로 얼마나 밀려있는지 추적하고, 느린 세션에는 레이아웃 DELTA 를 보내지 않는 인터셉터
+ * 채널에 들어온 MESSAGE 의 바이트를 더하고, decorate 로 감싼 세션이 해당 MESSAGE 프레임을 실제로 소켓에 쓴 뒤에 뺀다.
+ * 세션별 전송 순서가 유지되므로(preservePublishOrder) 프레임은 들어온 순서대로 쓰이며, 먼저 들어온 크기부터 차감한다.
+ * 따라서 전송 버퍼(ConcurrentWebSocketSessionDecorator)에 쌓여 아직 쓰이지 않은 메세지도 밀린 바이트에 포함된다.
+ * 세션에 밀린 바이트가 max-queued-bytes 를 넘으면 /sub/edit, /sub/presence 메세지를 버리고, 절반 아래로 내려가면 다시 보낸다.
+ * 다시 보내기 시작할 때 DELTA 를 버렸던 앨범마다 해당 세션의 /user/sub/snapshot/{albumUUID} 로 SNAPSHOT 을 보내 버려진 변경을 메운다.
+ * 그 전에 다음 DELTA 를 먼저 받더라도, 클라이언트는 sequence 가 비는 것을 보고 SNAPSHOT 을 기다리거나 다시 요청하면 된다.
+ * 그래도 전송이 send-time-limit-ms 이상 걸리거나 send-buffer-size-limit 을 넘는 세션은 전송 계층에서 연결을 끊는다.
+ * </pre>
+ */
+@Component
+public class OutboundBackpressureInterceptor implements ChannelInterceptor {
+
+  private static final String LAYOUT_DESTINATION_PREFIX = "/sub/edit";
+  private static final String PRESENCE_DESTINATION_PREFIX = "/sub/presence";
+  private static final String MESSAGE_FRAME = "MESSAGE\n";
+
+  private final MeterRegistry meterRegistry;
+  private final AlbumService albumService;
+
+  // sessionID -> 아직 전송되지 않은 메세지 바이트
+  private final Map<String, SessionBacklog> backlogs = new ConcurrentHashMap<>();
+  private final AtomicLong totalQueuedBytes = new AtomicLong();
+  private DistributionSummary sessionQueuedBytes;
+
+  // 세션별로 밀려있을 수 있는 최대 바이트, 넘으면 레이아웃 DELTA 를 버림
+  @Value("${album.websocket.max-queued-bytes:262144}")
+  private long maxQueuedBytes;
+
+  // 앨범 서비스는 웹소켓 설정보다 나중에 생성되므로, 순환 참조를 피하기 위해 지연 주입
+  public OutboundBackpressureInterceptor(MeterRegistry meterRegistry, @Lazy AlbumService albumService) {
+
+    this.meterRegistry = meterRegistry;
+    this.albumService = albumService;
+  }
+
+  @PostConstruct
+  public void init() {
+
+    meterRegistry.gauge("websocket.outbound.queued.bytes", totalQueuedBytes);
+    sessionQueuedBytes = DistributionSummary.builder("websocket.outbound.session.queued.bytes")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+
+    String sessionID = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    if (sessionID == null || !isClientMessage(message))
+      return message;
+
+    long bytes = sizeOf(message);
+    SessionBacklog backlog = backlogs.computeIfAbsent(sessionID, key -> new SessionBacklog());
+    long queued = backlog.queuedBytes.get();
+
+    if (backlog.lagging && queued <= maxQueuedBytes / 2) {
+
+      backlog.lagging = false;
+      sendSnapshots(sessionID, backlog);
+    }
+
+    if (isDroppable(message) && (backlog.lagging || queued + bytes > maxQueuedBytes)) {
+
+      backlog.lagging = true;
+      String albumUUID = layoutAlbumOf(message);
+      if (albumUUID != null)
+        backlog.droppedAlbums.add(albumUUID);
+      meterRegistry.counter("album.broadcast.dropped").increment();
+      return null;
+    }
+
+    backlog.pendingFrames.add(bytes);
+    sessionQueuedBytes.record(backlog.queuedBytes.addAndGet(bytes));
+    totalQueuedBytes.addAndGet(bytes);
+
+    return message;
+  }
+
+  @Override
+  public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+
+    // 실행기에 넘기지 못한 메세지는 전송되지 않으므로 바로 차감
+    if (sent && ex == null)
+      return;
+
+    String sessionID = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    if (sessionID == null || !isClientMessage(message))
+      return;
+
+    SessionBacklog backlog = backlogs.get(sessionID);
+    long bytes = sizeOf(message);
+    if (backlog != null && backlog.pendingFrames.removeLastOccurrence(bytes))
+      release(backlog, bytes);
+  }
+
+  /**
+   * 소켓에 MESSAGE 프레임을 쓸 때마다 밀린 바이트를 차감하도록 세션을 감쌈
+   *
+   * @param session 전송 버퍼로 감싸기 전의 세션
+   * @return
+   */
+  public WebSocketSession decorate(WebSocketSession session) {
+
+    return new WebSocketSessionDecorator(session) {
+
+      @Override
+      public void sendMessage(WebSocketMessage<?> message) throws IOException {
+
+        super.sendMessage(message);
+        if (isMessageFrame(message))
+          onFrameWritten(getId());
+      }
+    };
+  }
+
+  @EventListener
+  public void onSessionDisconnect(SessionDisconnectEvent event) {
+
+    SessionBacklog backlog = backlogs.remove(event.getSessionId());
+    if (backlog != null)
+      totalQueuedBytes.addAndGet(-backlog.queuedBytes.get());
+  }
+
+  private void onFrameWritten(String sessionID) {
+
+    SessionBacklog backlog = backlogs.get(sessionID);
+    if (backlog == null)
+      return;
+
+    Long bytes = backlog.pendingFrames.poll();
+    if (bytes != null)
+      release(backlog, bytes);
+  }
+
+  // DELTA 를 버렸던 앨범마다 SNAPSHOT 을 보냄, 커서 위치는 곧 다시 오므로 보내지 않음
+  private void sendSnapshots(String sessionID, SessionBacklog backlog) {
+
+    for (String albumUUID : backlog.droppedAlbums) {
+
+      if (backlog.droppedAlbums.remove(albumUUID)) {
+
+        meterRegistry.counter("album.broadcast.recovered").increment();
+        albumService.sendSnapshotToSession(sessionID, albumUUID);
+      }
+    }
+  }
+
+  private void release(SessionBacklog backlog, long bytes) {
+
+    backlog.queuedBytes.addAndGet(-bytes);
+    totalQueuedBytes.addAndGet(-bytes);
+  }
+
+  private static boolean isClientMessage(Message<?> message) {
+
+    return SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE;
+  }
+
+  // 버려도 클라이언트가 따라잡을 수 있는 레이아웃 DELTA 와 커서 위치
+  private static boolean isDroppable(Message<?> message) {
+
+    String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+
+    return destination != null
+        && (destination.startsWith(LAYOUT_DESTINATION_PREFIX) || destination.startsWith(PRESENCE_DESTINATION_PREFIX));
+  }
+
+  // 레이아웃 DELTA(/sub/edit/{albumUUID}, /sub/edit-smile/{albumUUID})라면 albumUUID, 아니라면 null
+  private static String layoutAlbumOf(Message<?> message) {
+
+    String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    if (destination == null || !destination.startsWith(LAYOUT_DESTINATION_PREFIX))
+      return null;
+
+    return destination.substring(destination.lastIndexOf("/") + 1);
+  }
+
+  // 브로커를 거친 메세지는 byte[] 이지만, 직접 보낸 메세지가 다른 형태라도 0 으로 세지 않음
+  private static long sizeOf(Message<?> message) {
+
+    Object payload = message.getPayload();
+    if (payload instanceof byte[])
+      return ((byte[]) payload).length;
+    if (payload instanceof String)
+      return ((String) payload).getBytes(StandardCharsets.UTF_8).length;
+
+    return String.valueOf(payload).length();
+  }
+
+  // STOMP MESSAGE 프레임인지 여부, heartbeat 나 CONNECTED, RECEIPT 프레임은 세지 않음
+  private static boolean isMessageFrame(WebSocketMessage<?> message) {
+
+    if (message instanceof TextMessage)
+      return ((TextMessage) message).getPayload().startsWith(MESSAGE_FRAME);
+
+    if (message instanceof BinaryMessage) {
+
+      ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+      byte[] command = new byte[Math.min(MESSAGE_FRAME.length(), payload.remaining())];
+      payload.get(command);
+      return MESSAGE_FRAME.equals(new String(command, StandardCharsets.UTF_8));
+    }
+
+    return false;
+  }
+
+  private static class SessionBacklog {
+
+    private final AtomicLong queuedBytes = new AtomicLong();
+    // 아직 쓰이지 않은 MESSAGE 의 크기, 들어온 순서대로
+    private final Deque<Long> pendingFrames = new ConcurrentLinkedDeque<>();
+    private volatile boolean lagging;
+    // 밀려있는 동안 DELTA 를 버린 albumUUID, 다시 보내기 시작할 때 SNAPSHOT 을 보냄
+    private final Set<String> droppedAlbums = ConcurrentHashMap.newKeySet();
+  }
+}
@@ -1,8 +1,14 @@
 package com.noyes.jogakbo.global.websocket;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -12,6 +18,7 @@ import org.springframework.web.socket.config.annotation.WebSocketTransportRegist
 import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 
 @Configuration
@@ -20,12 +27,57 @@ import lombok.RequiredArgsConstructor;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
   private final FilterChannelInterceptor filterChannelInterceptor;
+  private final WebSocketSessionReaper webSocketSessionReaper;
+  private final OutboundBackpressureInterceptor outboundBackpressureInterceptor;
+  private final MeterRegistry meterRegistry;
+
+  // heartbeat 는 브로커가 만들고 정리하는 스케줄러에서 보냄, 설정 중에는 아직 만들어지지 않았으므로 @Lazy 로 주입
+  private TaskScheduler messageBrokerTaskScheduler;
+
+  @Autowired
+  public void setMessageBrokerTaskScheduler(
+      @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+    this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+  }
+
+  // 서버, 클라이언트가 서로 보내는 heartbeat 주기, 두 주기 동안 응답이 없으면 연결을 끊음 (0 이면 사용 안 함)
+  @Value("${album.websocket.heartbeat-ms:10000}")
+  private long heartbeatMs;
+
+  // 한 세션에 메세지를 보내는 데 걸릴 수 있는 최대 시간과 전송 대기 버퍼 크기, 넘으면 연결을 끊음
+  @Value("${album.websocket.send-time-limit-ms:10000}")
+  private int sendTimeLimitMs;
+
+  @Value("${album.websocket.send-buffer-size-limit:524288}")
+  private int sendBufferSizeLimit;
+
+  // 클라이언트가 보낸 앨범 메세지와 구독을 처리하는 lane 수, 같은 앨범은 항상 같은 단일 스레드 lane 에서 순서대로 처리됨
+  @Value("${album.websocket.inbound.lanes:8}")
+  private int inboundLanes;
+
+  // lane 하나가 쌓아둘 수 있는 메세지 수, 넘으면 거절하고 클라이언트는 다시 연결해 SNAPSHOT 으로 맞춤
+  @Value("${album.websocket.inbound.lane-capacity:1000}")
+  private int inboundLaneCapacity;
+
+  // 클라이언트로 메세지를 보내는 전용 스레드 풀 크기와 대기열 크기
+  @Value("${album.websocket.outbound.core-pool-size:4}")
+  private int outboundCorePoolSize;
+
+  @Value("${album.websocket.outbound.max-pool-size:8}")
+  private int outboundMaxPoolSize;
+
+  @Value("${album.websocket.outbound.queue-capacity:10000}")
+  private int outboundQueueCapacity;
 
   @SuppressWarnings("null")
   @Override
   public void configureMessageBroker(MessageBrokerRegistry config) {
-    config.enableSimpleBroker("/sub");
+    config.enableSimpleBroker("/sub")
+        .setHeartbeatValue(new long[] { heartbeatMs, heartbeatMs })
+        .setTaskScheduler(messageBrokerTaskScheduler);
     config.setApplicationDestinationPrefixes("/pub");
+    // 여러 스레드로 보내더라도 세션별 DELTA 순서를 유지, OutboundBackpressureInterceptor 도 이 순서에 기대어 차감
+    config.setPreservePublishOrder(true);
   }
 
   @SuppressWarnings("null")
@@ -38,11 +90,24 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
   @Override
   public void configureClientInboundChannel(ChannelRegistration registration) {
     registration.interceptors(filterChannelInterceptor);
+    registration.taskExecutor(new AlbumLaneTaskExecutor(inboundLanes, inboundLaneCapacity, meterRegistry));
+  }
+
+  @SuppressWarnings("null")
+  @Override
+  public void configureClientOutboundChannel(ChannelRegistration registration) {
+    registration.taskExecutor()
+        .corePoolSize(outboundCorePoolSize)
+        .maxPoolSize(outboundMaxPoolSize)
+        .queueCapacity(outboundQueueCapacity);
+    registration.interceptors(outboundBackpressureInterceptor);
   }
 
   @SuppressWarnings("null")
   @Override
   public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+    registration.setSendTimeLimit(sendTimeLimitMs);
+    registration.setSendBufferSizeLimit(sendBufferSizeLimit);
     registration.addDecoratorFactory(new WebSocketHandlerDecoratorFactory() {
 
       @Override
@@ -55,7 +120,18 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
             // 현재 세션을 WebSocketSessionHolder 에 등록
             WebSocketSessionHolder.registSession(session);
 
-            super.afterConnectionEstablished(session);
+            // 전송 버퍼 안쪽에서 실제로 쓰인 프레임을 세도록 감싸서 넘김
+            super.afterConnectionEstablished(outboundBackpressureInterceptor.decorate(session));
+          }
+
+          @Override
+          public void afterConnectionClosed(final WebSocketSession session, final CloseStatus closeStatus)
+              throws Exception {
+
+            // STOMP 연결 전에 끊긴 세션도 WebSocketSessionHolder 에서 제거
+            webSocketSessionReaper.removeSession(session.getId());
+
+            super.afterConnectionClosed(session, closeStatus);
           }
         };
       }
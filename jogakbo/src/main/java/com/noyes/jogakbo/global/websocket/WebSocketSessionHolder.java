@@ -1,6 +1,10 @@
 package com.noyes.jogakbo.global.websocket;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException;
 
@@ -10,17 +14,21 @@ public class WebSocketSessionHolder {
 
   static {
     userSessions = new ConcurrentHashMap<>();
+    destinationSessions = new ConcurrentHashMap<>();
   }
 
   // Key 값 으로 sessionID, Value로 WebSocketInfo 를 가지는 Map 선언
   private static Map<String, WebSocketSessionInfo> userSessions;
 
+  // Key 값 으로 destination(albumID), Value로 구독 중인 sessionID 집합을 가지는 색인
+  private static Map<String, Set<String>> destinationSessions;
+
   /**
    * <pre>
    * regist session into ConcurrentHashMap, userSessions.
    * expect destination will be updated when client subscribe album.
    * </pre>
-   * 
+   *
    * @param session
    */
   public static void registSession(WebSocketSession session) {
@@ -30,42 +38,164 @@ public class WebSocketSessionHolder {
   }
 
   /**
-   * update WebSocketSessionInfo's destination field with sessionID
-   * 
+   * add subscription of sessionID on destination, and index session by destination
+   *
    * @param sessionID
+   * @param subscriptionID
    * @param destination
    */
-  public static void updateSessionWithDestination(String sessionID, String destination) {
+  public static void updateSessionWithDestination(String sessionID, String subscriptionID, String destination) {
 
-    // sessionID 에 해당하는 WebSocketSessionInfo 객체에 destination 필드 업데이트
+    // sessionID 에 해당하는 WebSocketSessionInfo 객체에 구독 추가
     var webSocketSessionInfo = userSessions.get(sessionID);
-    webSocketSessionInfo.setDestination(destination);
+    webSocketSessionInfo.getSubscriptions().put(subscriptionID, destination);
+
+    // 마지막 구독자가 빠지며 색인이 제거되는 것과 겹치지 않도록 compute 안에서 추가
+    destinationSessions.compute(destination, (key, sessionIDs) -> {
+
+      if (sessionIDs == null)
+        sessionIDs = ConcurrentHashMap.newKeySet();
+      sessionIDs.add(sessionID);
+      return sessionIDs;
+    });
+  }
+
+  /**
+   * remove subscription of sessionID
+   *
+   * @param sessionID
+   * @param subscriptionID
+   * @return destination no longer subscribed by the session, or null if still subscribed or not registered
+   */
+  public static String removeSubscription(String sessionID, String subscriptionID) {
+
+    var webSocketSessionInfo = userSessions.get(sessionID);
+    if (webSocketSessionInfo == null)
+      return null;
+
+    String destination = webSocketSessionInfo.getSubscriptions().remove(subscriptionID);
+    if (destination == null || webSocketSessionInfo.isSubscribing(destination))
+      return null;
+
+    removeFromDestination(destination, sessionID);
+
+    return destination;
+  }
+
+  /**
+   * get destination of subscription of sessionID
+   *
+   * @param sessionID
+   * @param subscriptionID
+   * @return destination of the subscription, or null if not registered
+   */
+  public static String getDestination(String sessionID, String subscriptionID) {
+
+    var webSocketSessionInfo = userSessions.get(sessionID);
+
+    return webSocketSessionInfo == null ? null : webSocketSessionInfo.getSubscriptions().get(subscriptionID);
+  }
+
+  /**
+   * get destinations subscribed by session of sessionID
+   *
+   * @param sessionID
+   * @return distinct destinations, or empty set if not registered
+   */
+  public static Set<String> getDestinations(String sessionID) {
+
+    var webSocketSessionInfo = userSessions.get(sessionID);
+
+    return webSocketSessionInfo == null ? Set.of() : new HashSet<>(webSocketSessionInfo.getSubscriptions().values());
   }
 
   /**
    * remove WebSocketSesssionInfo in ConcurrentHashMap, userSessions
-   * 
+   *
    * @param sessionID
+   * @return removed WebSocketSessionInfo, or null if not registered
    */
-  public static void removeSession(String sessionID) {
+  public static WebSocketSessionInfo removeSession(String sessionID) {
 
-    userSessions.remove(sessionID);
+    WebSocketSessionInfo removed = userSessions.remove(sessionID);
+    if (removed == null)
+      return null;
+
+    for (String destination : new HashSet<>(removed.getSubscriptions().values()))
+      removeFromDestination(destination, sessionID);
+
+    return removed;
+  }
+
+  /**
+   * get snapshot of all registered sessions
+   *
+   * @return
+   */
+  public static List<WebSocketSessionInfo> getSessions() {
+
+    return new ArrayList<>(userSessions.values());
+  }
+
+  /**
+   * check whether session of sessionID is subscribing destination
+   *
+   * @param sessionID
+   * @param destination
+   * @return
+   */
+  public static boolean isSubscribing(String sessionID, String destination) {
+
+    var webSocketSessionInfo = userSessions.get(sessionID);
+
+    return webSocketSessionInfo != null && webSocketSessionInfo.isSubscribing(destination);
+  }
+
+  /**
+   * count sessions subscribing destination
+   *
+   * @param destination
+   * @return
+   */
+  public static int countSessionsByDestination(String destination) {
+
+    Set<String> sessionIDs = destinationSessions.get(destination);
+
+    return sessionIDs == null ? 0 : sessionIDs.size();
   }
 
   /**
    * close WebSocketSession corresponding destination field
-   * 
+   *
    * @param destination
    * @throws IOException
    */
   public static void closeSessionByDestination(String destination) throws IOException {
 
-    // sessionIDs를 순회하며 destination 에 해당하는 WebSocketSession을 close()
-    for (var entry : userSessions.entrySet()) {
+    Set<String> sessionIDs = destinationSessions.get(destination);
+    if (sessionIDs == null)
+      return;
+
+    // 색인에서 destination 을 구독 중인 sessionID 만 순회하며 WebSocketSession을 close()
+    List<WebSocketSession> targetSessions = new ArrayList<>();
+    for (String sessionID : sessionIDs) {
 
-      String targetDest = entry.getValue().getDestination();
-      if (targetDest != null && targetDest.equals(destination))
-        entry.getValue().getSession().close();
+      WebSocketSessionInfo webSocketSessionInfo = userSessions.get(sessionID);
+      if (webSocketSessionInfo != null)
+        targetSessions.add(webSocketSessionInfo.getSession());
     }
+
+    for (WebSocketSession session : targetSessions)
+      session.close();
+  }
+
+  // 마지막 구독자가 빠지면 destination 색인도 제거
+  private static void removeFromDestination(String destination, String sessionID) {
+
+    destinationSessions.computeIfPresent(destination, (key, sessionIDs) -> {
+
+      sessionIDs.remove(sessionID);
+      return sessionIDs.isEmpty() ? null : sessionIDs;
+    });
   }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.noyes.jogakbo.global.websocket;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.web.socket.WebSocketSession;
 
 import lombok.Builder;
@@ -10,5 +13,18 @@ import lombok.Data;
 public class WebSocketSessionInfo {
 
   private WebSocketSession session;
-  private String destination;
+  // subscriptionID -> 구독 중인 albumID, 한 세션이 여러 경로를 구독할 수 있음
+  @Builder.Default
+  private Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+  /**
+   * check whether any subscription of this session is on destination
+   * 
+   * @param destination
+   * @return
+   */
+  public boolean isSubscribing(String destination) {
+
+    return subscriptions.containsValue(destination);
+  }
 }
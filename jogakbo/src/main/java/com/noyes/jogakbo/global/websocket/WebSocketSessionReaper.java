@@ -0,0 +1,127 @@
+package com.noyes.jogakbo.global.websocket;
+
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.noyes.jogakbo.album.AlbumEditSessionManager;
+import com.noyes.jogakbo.album.AlbumPresenceManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <pre>
+ * 끊어진 웹소켓 세션을 WebSocketSessionHolder 에서 정리
+ * STOMP DISCONNECT, 전송 계층 종료(SessionDisconnectEvent, afterConnectionClosed) 시 바로 정리하고,
+ * 그래도 남아있는 닫힌 세션은 reap-interval-ms 마다 찾아서 정리한다.
+ * 응답 없는 연결은 브로커의 heartbeat 로 끊기므로, 결국 이 경로들 중 하나로 정리된다.
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WebSocketSessionReaper {
+
+  private final AlbumEditSessionManager albumEditSessionManager;
+  private final AlbumPresenceManager albumPresenceManager;
+  private final AlbumBroadcaster albumBroadcaster;
+  private final MeterRegistry meterRegistry;
+
+  // 마지막 점검 시점의 열린 세션, 닫혔지만 남아있던 세션 수
+  private final AtomicInteger liveSessions = new AtomicInteger();
+  private final AtomicInteger staleSessions = new AtomicInteger();
+
+  @PostConstruct
+  public void init() {
+
+    meterRegistry.gauge("websocket.sessions", Tags.of("state", "live"), liveSessions);
+    meterRegistry.gauge("websocket.sessions", Tags.of("state", "stale"), staleSessions);
+  }
+
+  /**
+   * 세션을 관리 대상에서 제거하고, 앨범의 마지막 구독자였다면 앨범 정리
+   *
+   * @param sessionID
+   */
+  public void removeSession(String sessionID) {
+
+    WebSocketSessionInfo removed = WebSocketSessionHolder.removeSession(sessionID);
+    if (removed == null)
+      return;
+
+    for (String albumID : new HashSet<>(removed.getSubscriptions().values())) {
+
+      albumPresenceManager.leave(albumID, sessionID);
+      releaseIfLastSubscriber(albumID);
+    }
+  }
+
+  /**
+   * 세션이 더 이상 구독하지 않는 앨범 정리
+   *
+   * @param sessionID
+   * @param albumID
+   */
+  public void removeSubscription(String sessionID, String albumID) {
+
+    albumPresenceManager.leave(albumID, sessionID);
+    releaseIfLastSubscriber(albumID);
+  }
+
+  /**
+   * <pre>
+   * 앨범의 마지막 구독자였다면 메모리의 레이아웃을 Redis 에 반영하고 세션 정리
+   * 확인한 뒤 새 구독자가 들어올 수 있으므로, 채널 구독 해제는 AlbumBroadcaster 가 구독자 수를 다시 확인하며 원자적으로 처리한다.
+   * 새 구독자가 들어온 앨범의 세션은 반영 후 정리되더라도 다음 편집 시 Redis 에서 다시 열린다.
+   * </pre>
+   *
+   * @param albumID
+   */
+  public void releaseIfLastSubscriber(String albumID) {
+
+    if (WebSocketSessionHolder.countSessionsByDestination(albumID) > 0)
+      return;
+
+    albumEditSessionManager.release(albumID);
+    albumBroadcaster.unsubscribeAlbum(albumID);
+  }
+
+  // DISCONNECT 프레임 없이 연결이 끊긴 경우에도 발생
+  @EventListener
+  public void onSessionDisconnect(SessionDisconnectEvent event) {
+
+    removeSession(event.getSessionId());
+  }
+
+  @Scheduled(fixedDelayString = "${album.websocket.reap-interval-ms:60000}")
+  public void reap() {
+
+    int live = 0;
+    int stale = 0;
+    for (WebSocketSessionInfo webSocketSessionInfo : WebSocketSessionHolder.getSessions()) {
+
+      if (webSocketSessionInfo.getSession().isOpen()) {
+
+        live++;
+        continue;
+      }
+
+      stale++;
+      removeSession(webSocketSessionInfo.getSession().getId());
+    }
+
+    liveSessions.set(live);
+    staleSessions.set(stale);
+    if (stale > 0)
+      log.info("닫힌 웹소켓 세션 {}개를 정리했습니다.", stale);
+  }
+}
@@ -16,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.noyes.jogakbo.album.AlbumImageRenditionPipeline;
 import com.noyes.jogakbo.global.jwt.JwtService;
 import com.noyes.jogakbo.global.s3.AwsS3Service;
 import com.noyes.jogakbo.user.DTO.UserSearchResult;
@@ -31,6 +32,7 @@ public class UserService {
   private final UserRepository userRepository;
   private final JwtService jwtService;
   private final AwsS3Service awsS3Service;
+  private final AlbumImageRenditionPipeline albumImageRenditionPipeline;
 
   @SuppressWarnings("null")
   public Optional<User> checkUser(HttpServletResponse response, String accessToken) {
@@ -380,7 +382,7 @@ public class UserService {
   /**
    * socialID에 해당하는 유저의 nickname과 profileImage 수정하기
    * 유저 간 nickname은 중복가능하며
-   * 기존 profileImage는 삭제 처리
+   * 기존 profileImage는 축소본과 함께 삭제 처리하고, 새 profileImage 의 축소본은 백그라운드에서 생성
    * 
    * @param
    * @return 실행 결과
@@ -395,6 +397,7 @@ public class UserService {
 
     // 기존 profileImage와 동일한지 확인 후 수정
     String profileImageOriginalName = user.getProfileImageOriginalName();
+    String oldProfileImageUrl = user.getProfileImageUrl();
     if (profileImage != null && !profileImageOriginalName.equals(profileImage.getOriginalFilename())) {
 
       // S3에 업로드 시도 후, 업로드 된 S3 파일명 리스트로 받아오기
@@ -404,8 +407,15 @@ public class UserService {
       user.setProfileImageUrl(uploadFileName);
       user.setProfileImageOriginalName(profileImage.getOriginalFilename());
 
-      // 기존의 profileImage 삭제
-      awsS3Service.deleteFile(profileImageOriginalName, userUUID);
+      // 기존의 profileImage 와 축소본 삭제 (S3 에는 원본 파일명이 아닌 업로드된 파일명으로 저장되어 있음)
+      if (oldProfileImageUrl != null) {
+
+        awsS3Service.deleteFile(oldProfileImageUrl, userUUID);
+        albumImageRenditionPipeline.remove(userUUID, oldProfileImageUrl);
+      }
+
+      // 친구 목록, 검색 결과에서 쓸 축소본을 백그라운드에서 생성
+      albumImageRenditionPipeline.submit(userUUID, List.of(uploadFileName));
     }
 
     userRepository.save(user);
@@ -0,0 +1,166 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.album.DTO.AlbumSummary;
+import com.noyes.jogakbo.global.redis.AlbumSummaryStore;
+
+@AcceptanceTest
+@DisplayName("앨범 요약 증감 테스트")
+public class AlbumSummaryTest {
+
+  @Autowired
+  AlbumSummaryStore albumSummaryStore;
+
+  String albumUUID = UUID.randomUUID().toString();
+
+  @AfterEach
+  void removeSummary() {
+
+    albumSummaryStore.remove(albumUUID);
+  }
+
+  @Nested
+  @DisplayName("Given: 빈 앨범의 요약이 있는 상태에서 100, 200 바이트 이미지를 올리면")
+  class upload_two_images {
+
+    {
+      albumSummaryStore.init(albumUUID, AlbumSummary.builder()
+          .pageCount(1)
+          .memberCount(1)
+          .build());
+      albumSummaryStore.recordImageBytes(albumUUID, Map.of("a.png", 100L, "b.png", 200L));
+      albumSummaryStore.apply(albumUUID, AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .sequence(1)
+          .addedPages(1)
+          .added(List.of(image("a.png"), image("b.png")))
+          .build());
+    }
+
+    @Test
+    @DisplayName("레이아웃을 읽지 않고 이미지 수, 페이지 수, 전체 크기가 늘어난다.")
+    void increment_summary() {
+
+      AlbumSummary albumSummary = albumSummaryStore.get(albumUUID);
+
+      assertEquals(2, albumSummary.getImageCount());
+      assertEquals(2, albumSummary.getPageCount());
+      assertEquals(300, albumSummary.getTotalBytes());
+    }
+
+    @Test
+    @DisplayName("한 이미지를 지우고 공동 작업자가 늘면 그만큼 줄고 늘어난다.")
+    void decrement_summary() {
+
+      albumSummaryStore.apply(albumUUID, AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .sequence(2)
+          .removed(List.of("a.png"))
+          .build());
+      albumSummaryStore.incrementMemberCount(albumUUID, 1);
+
+      AlbumSummary albumSummary = albumSummaryStore.get(albumUUID);
+
+      assertEquals(1, albumSummary.getImageCount());
+      assertEquals(200, albumSummary.getTotalBytes());
+      assertEquals(2, albumSummary.getMemberCount());
+    }
+
+    @Test
+    @DisplayName("다시 초기화해도 이미 있는 요약을 덮어쓰지 않는다.")
+    void keep_existing_summary() {
+
+      albumSummaryStore.init(albumUUID, AlbumSummary.builder().pageCount(10).build());
+
+      assertEquals(2, albumSummaryStore.get(albumUUID).getPageCount());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 요약이 없는 앨범에")
+  class missing_summary {
+
+    {
+      albumSummaryStore.apply(albumUUID, AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .sequence(5)
+          .addedPages(1)
+          .build());
+      albumSummaryStore.incrementMemberCount(albumUUID, 1);
+    }
+
+    @Test
+    @DisplayName("증감하지 않아 처음 조회할 때 레이아웃으로 다시 만들도록 남겨둔다.")
+    void do_not_create_partial_summary() {
+
+      assertNull(albumSummaryStore.get(albumUUID));
+    }
+
+    @Test
+    @DisplayName("놓친 DELTA 를 담지 못한 오래된 레이아웃으로는 요약을 만들지 않고, 담은 레이아웃으로는 만든다.")
+    void reject_stale_seed() {
+
+      assertFalse(albumSummaryStore.init(albumUUID, AlbumSummary.builder().pageCount(1).version(4).build()));
+      assertNull(albumSummaryStore.get(albumUUID));
+
+      assertTrue(albumSummaryStore.init(albumUUID, AlbumSummary.builder().pageCount(2).version(5).build()));
+      assertEquals(2, albumSummaryStore.get(albumUUID).getPageCount());
+      assertEquals(5, albumSummaryStore.get(albumUUID).getVersion());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: version 3 레이아웃으로 만든 요약에")
+  class seeded_summary {
+
+    {
+      albumSummaryStore.init(albumUUID, AlbumSummary.builder()
+          .pageCount(3)
+          .memberCount(1)
+          .version(3)
+          .build());
+    }
+
+    @Test
+    @DisplayName("레이아웃에 이미 담긴 DELTA 는 건너뛰고, 이후 DELTA 만 반영한다.")
+    void skip_seeded_deltas() {
+
+      for (long sequence = 2; sequence <= 4; sequence++) {
+
+        albumSummaryStore.apply(albumUUID, AlbumLayoutMessage.builder()
+            .type(AlbumLayoutMessageType.DELTA)
+            .sequence(sequence)
+            .addedPages(1)
+            .build());
+      }
+
+      assertEquals(4, albumSummaryStore.get(albumUUID).getPageCount());
+    }
+  }
+
+  private static AlbumImageEditMessage image(String albumImageUUID) {
+
+    AlbumImageEditMessage message = new AlbumImageEditMessage();
+    message.setAlbumImageUUID(albumImageUUID);
+
+    return message;
+  }
+}
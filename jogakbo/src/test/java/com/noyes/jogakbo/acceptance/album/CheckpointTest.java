@@ -0,0 +1,147 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.album.Album;
+import com.noyes.jogakbo.album.AlbumLayoutCheckpointRepository;
+import com.noyes.jogakbo.album.AlbumLayoutCheckpointer;
+import com.noyes.jogakbo.album.AlbumRepository;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+import com.noyes.jogakbo.global.jwt.JwtService;
+import com.noyes.jogakbo.global.redis.AlbumOperationLog;
+import com.noyes.jogakbo.global.redis.RedisService;
+
+@AcceptanceTest
+@DisplayName("앨범 레이아웃 체크포인트 테스트")
+public class CheckpointTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Autowired
+  JwtService jwtService;
+
+  @Autowired
+  AlbumLayoutCheckpointer albumLayoutCheckpointer;
+
+  @Autowired
+  AlbumLayoutCheckpointRepository albumLayoutCheckpointRepository;
+
+  @Autowired
+  AlbumRepository albumRepository;
+
+  @Autowired
+  RedisService redisService;
+
+  @Autowired
+  AlbumOperationLog albumOperationLog;
+
+  @Value("${jwt.access.header}")
+  private String accessHeader;
+
+  @SuppressWarnings("null")
+  @Nested
+  @DisplayName("Given: 3페이지짜리 앨범이 체크포인트된 상태에서")
+  class checkpointed_album_with_three_pages {
+
+    String testToken = jwtService.createLoginTestToken("User_UUID", "Checkpoint_Test");
+
+    {
+      webTestClient
+          .post()
+          .uri("/login")
+          .header(accessHeader, "Bearer " + testToken)
+          .exchange()
+          .expectStatus().isOk();
+    }
+
+    String albumUUID = webTestClient
+        .post()
+        .uri("/album?albumName=CheckpointTestAlbum")
+        .accept(MediaType.TEXT_PLAIN)
+        .header(accessHeader, "Bearer " + testToken)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+
+    {
+      for (int i = 0; i < 2; i++) {
+
+        webTestClient
+            .post()
+            .uri("/album/" + albumUUID + "/page")
+            .accept(MediaType.TEXT_PLAIN)
+            .header(accessHeader, "Bearer " + testToken)
+            .exchange()
+            .expectStatus().isOk();
+      }
+
+      // 주기 작업이 먼저 가져갔을 수 있으므로 체크포인트가 저장될 때까지 기다림
+      for (int retries = 0; retries < 50 && albumLayoutCheckpointRepository.findById(albumUUID).isEmpty(); retries++) {
+
+        albumLayoutCheckpointer.checkpoint();
+        sleep(100);
+      }
+    }
+
+    @Nested
+    @DisplayName("Album 을 다시 저장한 뒤 Redis 의 레이아웃이 사라지면")
+    class save_album_and_lose_redis_layout {
+
+      {
+        Album album = albumRepository.findById(albumUUID).orElseThrow();
+        album.setAlbumName("RenamedCheckpointTestAlbum");
+        albumRepository.save(album);
+
+        // 체크포인트만으로 복구되는지 확인하기 위해 작업 로그도 함께 제거
+        redisService.removeAlbumRedisValue(albumUUID);
+        albumOperationLog.remove(albumUUID);
+      }
+
+      @Test
+      @DisplayName("체크포인트에서 3페이지 레이아웃을 복구한다.")
+      void restore_layout_from_checkpoint() {
+
+        assertTrue(albumLayoutCheckpointRepository.findById(albumUUID).isPresent());
+
+        AlbumPagesInfo albumPagesInfo = webTestClient
+            .get()
+            .uri("/album/" + albumUUID + "/pages?fromPage=0&pageSize=10")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(accessHeader, "Bearer " + testToken)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AlbumPagesInfo.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(3, albumPagesInfo.getPageCount());
+        assertEquals(3, albumPagesInfo.getImagesInfo().size());
+        assertTrue(albumPagesInfo.getSequence() > 0);
+      }
+    }
+  }
+
+  private static void sleep(long millis) {
+
+    try {
+
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+    }
+  }
+}
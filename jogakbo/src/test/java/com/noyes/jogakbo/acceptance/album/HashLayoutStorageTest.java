@@ -0,0 +1,216 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.AlbumLayoutCodec;
+import com.noyes.jogakbo.global.redis.AlbumLayoutHashStore;
+import com.noyes.jogakbo.global.redis.RedisService;
+
+@AcceptanceTest
+@TestPropertySource(properties = "album.layout.storage=hash")
+@DisplayName("앨범 레이아웃 Hash 저장 테스트")
+public class HashLayoutStorageTest {
+
+  @Autowired
+  RedisService redisService;
+
+  @Autowired
+  AlbumLayoutHashStore albumLayoutHashStore;
+
+  @Autowired
+  AlbumLayoutCodec albumLayoutCodec;
+
+  @Autowired
+  RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+  String albumUUID = UUID.randomUUID().toString();
+
+  @AfterEach
+  void removeLayout() {
+
+    redisService.removeAlbumRedisValue(albumUUID);
+  }
+
+  @Nested
+  @DisplayName("Given: 3페이지짜리 빈 레이아웃에")
+  class three_empty_pages {
+
+    {
+      redisService.setAlbumRedisValue(albumUUID, new AlbumImagesInfo());
+      redisService.applyAlbumLayoutDelta(albumUUID, AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .addedPages(2)
+          .build());
+    }
+
+    @Nested
+    @DisplayName("1페이지에 이미지 둘, 2페이지에 이미지 하나를 추가하면")
+    class add_images {
+
+      AlbumLayoutMessage added = apply(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .added(List.of(image("first", 0), image("second", 0), image("third", 1)))
+          .build());
+
+      @Test
+      @DisplayName("추가한 이미지가 페이지별로 순서대로 저장되고 version 이 1 증가한다.")
+      void add() {
+
+        AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+
+        assertEquals(3, added.getAdded().size());
+        assertEquals(2, added.getSequence());
+        assertEquals(List.of("first", "second"), uuids(albumImagesInfo.getImagesInfo().get(0)));
+        assertEquals(List.of("third"), uuids(albumImagesInfo.getImagesInfo().get(1)));
+        assertEquals(2, albumImagesInfo.getVersion());
+      }
+
+      @Test
+      @DisplayName("이미지를 편집하면 같은 페이지의 맨 위로 올리고, 다른 페이지를 가리킨 편집은 반영하지 않는다.")
+      void move() {
+
+        AlbumLayoutMessage moved = apply(AlbumLayoutMessage.builder()
+            .type(AlbumLayoutMessageType.DELTA)
+            .moved(List.of(image("first", 0), image("third", 2)))
+            .build());
+
+        AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+
+        assertEquals(1, moved.getMoved().size());
+        assertEquals(List.of("second", "first"), uuids(albumImagesInfo.getImagesInfo().get(0)));
+        assertEquals(List.of("third"), uuids(albumImagesInfo.getImagesInfo().get(1)));
+        assertEquals(0, albumImagesInfo.getImagesInfo().get(2).size());
+      }
+
+      @Test
+      @DisplayName("이미지를 제거하면 해당 페이지에서만 빠지고, 없는 이미지의 제거는 반영되지 않는다.")
+      void remove() {
+
+        AlbumLayoutMessage removed = apply(AlbumLayoutMessage.builder()
+            .type(AlbumLayoutMessageType.DELTA)
+            .removed(List.of("second", "unknown"))
+            .build());
+
+        AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+
+        assertEquals(List.of("second"), removed.getRemoved());
+        assertEquals(List.of("first"), uuids(albumImagesInfo.getImagesInfo().get(0)));
+        assertEquals(List.of("third"), uuids(albumImagesInfo.getImagesInfo().get(1)));
+      }
+
+      @Test
+      @DisplayName("페이지 단위로 읽으면 요청한 페이지만 현재 version 과 함께 반환한다.")
+      void read_pages() {
+
+        AlbumPagesInfo albumPagesInfo = redisService.getAlbumPages(albumUUID, 1, 1);
+
+        assertEquals(2, albumPagesInfo.getSequence());
+        assertEquals(3, albumPagesInfo.getPageCount());
+        assertEquals(1, albumPagesInfo.getFromPage());
+        assertEquals(1, albumPagesInfo.getImagesInfo().size());
+        assertEquals(List.of("third"), uuids(albumPagesInfo.getImagesInfo().get(0)));
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 레이아웃이 기존 방식대로 하나의 JSON 값으로 남아있을 때")
+  class legacy_json_layout {
+
+    {
+      AlbumImagesInfo legacy = new AlbumImagesInfo();
+      legacy.applyDelta(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .addedPages(1)
+          .added(List.of(image("first", 0), image("second", 1)))
+          .build());
+
+      try {
+
+        binaryRedisTemplate.opsForValue().set(albumUUID, albumLayoutCodec.encode(legacy));
+      } catch (JsonProcessingException e) {
+
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Test
+    @DisplayName("처음 조회할 때 Hash 구조로 옮기고 기존 값은 지운다.")
+    void migrate_on_read() {
+
+      assertFalse(albumLayoutHashStore.exists(albumUUID));
+
+      AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+
+      assertTrue(albumLayoutHashStore.exists(albumUUID));
+      assertNull(binaryRedisTemplate.opsForValue().get(albumUUID));
+      assertEquals(1, albumImagesInfo.getVersion());
+      assertEquals(List.of("first"), uuids(albumImagesInfo.getImagesInfo().get(0)));
+      assertEquals(List.of("second"), uuids(albumImagesInfo.getImagesInfo().get(1)));
+    }
+
+    @Test
+    @DisplayName("옮기기 전에 편집이 들어와도 기존 레이아웃 위에 적용한다.")
+    void migrate_before_edit() {
+
+      AlbumLayoutMessage applied = apply(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .removed(List.of("first"))
+          .build());
+
+      AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+
+      assertEquals(2, applied.getSequence());
+      assertEquals(0, albumImagesInfo.getImagesInfo().get(0).size());
+      assertEquals(List.of("second"), uuids(albumImagesInfo.getImagesInfo().get(1)));
+    }
+  }
+
+  private AlbumLayoutMessage apply(AlbumLayoutMessage request) {
+
+    return redisService.applyAlbumLayoutDelta(albumUUID, request);
+  }
+
+  private static AlbumImageEditMessage image(String albumImageUUID, int pageNum) {
+
+    AlbumImageEditInfo albumImageEditInfo = new AlbumImageEditInfo();
+    albumImageEditInfo.setPageNum(pageNum);
+
+    AlbumImageEditMessage albumImageEditMessage = new AlbumImageEditMessage();
+    albumImageEditMessage.setAlbumImageUUID(albumImageUUID);
+    albumImageEditMessage.setAlbumImageEditInfo(albumImageEditInfo);
+
+    return albumImageEditMessage;
+  }
+
+  private static List<String> uuids(List<AlbumImageInfo> page) {
+
+    return page.stream()
+        .map(AlbumImageInfo::getAlbumImageUUID)
+        .collect(Collectors.toList());
+  }
+}
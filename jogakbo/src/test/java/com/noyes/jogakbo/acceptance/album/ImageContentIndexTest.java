@@ -0,0 +1,93 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.global.redis.ImageContentIndex;
+
+@AcceptanceTest
+@DisplayName("이미지 내용 색인 참조 수 테스트")
+public class ImageContentIndexTest {
+
+  @Autowired
+  ImageContentIndex imageContentIndex;
+
+  // 테스트마다 다른 내용으로 취급되도록 64자리 sha256 자리에 임의 값 사용
+  String sha256 = (UUID.randomUUID().toString() + UUID.randomUUID().toString()).replace("-", "").substring(0, 64);
+  String firstAlbumUUID = UUID.randomUUID().toString();
+  String secondAlbumUUID = UUID.randomUUID().toString();
+  String contentName = sha256 + "-first.png";
+
+  @Nested
+  @DisplayName("Given: 한 앨범에 올린 사진을 다른 앨범에도 올리면")
+  class same_content_in_two_albums {
+
+    String firstLinked;
+    String secondLinked;
+
+    {
+      assertTrue(imageContentIndex.isEnabled());
+      assertNull(imageContentIndex.acquire(firstAlbumUUID, "first.png", sha256));
+      firstLinked = imageContentIndex.register(firstAlbumUUID, "first.png", sha256, contentName);
+      secondLinked = imageContentIndex.acquire(secondAlbumUUID, "second.png", sha256);
+    }
+
+    @Test
+    @DisplayName("두 번째 앨범 이미지는 먼저 저장된 파일에 연결된다.")
+    void link_to_first_content() {
+
+      assertEquals(contentName, firstLinked);
+      assertEquals(contentName, secondLinked);
+      assertEquals(contentName, imageContentIndex.getContentName(secondAlbumUUID, "second.png"));
+    }
+
+    @Test
+    @DisplayName("한쪽을 지우면 참조가 남아 파일을 지우지 않고, 마지막 참조를 지울 때 파일명을 돌려준다.")
+    void release_last_reference() {
+
+      assertEquals("", imageContentIndex.release(firstAlbumUUID, "first.png"));
+      assertEquals(contentName, imageContentIndex.getContentName(secondAlbumUUID, "second.png"));
+
+      assertEquals(contentName, imageContentIndex.release(secondAlbumUUID, "second.png"));
+      assertNull(imageContentIndex.acquire(firstAlbumUUID, "again.png", sha256));
+    }
+
+    @Test
+    @DisplayName("이미 끊긴 연결을 다시 지우면 참조 수를 줄이지 않는다.")
+    void release_twice() {
+
+      assertEquals("", imageContentIndex.release(firstAlbumUUID, "first.png"));
+      assertNull(imageContentIndex.release(firstAlbumUUID, "first.png"));
+
+      assertEquals(contentName, imageContentIndex.release(secondAlbumUUID, "second.png"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 같은 내용을 두 요청이 동시에 처음 올려 각자 등록하면")
+  class concurrent_first_uploads {
+
+    String firstLinked = imageContentIndex.register(firstAlbumUUID, "first.png", sha256, contentName);
+    String secondLinked = imageContentIndex.register(secondAlbumUUID, "second.png", sha256, sha256 + "-second.png");
+
+    @Test
+    @DisplayName("나중 요청은 먼저 등록된 파일에 연결되고, 참조는 두 개로 센다.")
+    void keep_first_registration() {
+
+      assertEquals(contentName, firstLinked);
+      assertEquals(contentName, secondLinked);
+
+      assertEquals("", imageContentIndex.release(secondAlbumUUID, "second.png"));
+      assertEquals(contentName, imageContentIndex.release(firstAlbumUUID, "first.png"));
+    }
+  }
+}
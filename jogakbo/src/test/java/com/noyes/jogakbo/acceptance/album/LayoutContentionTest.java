@@ -0,0 +1,112 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.RedisService;
+
+@AcceptanceTest
+@DisplayName("앨범 레이아웃 동시 편집 테스트")
+public class LayoutContentionTest {
+
+  private static final int EDITORS = 8;
+
+  @Autowired
+  RedisService redisService;
+
+  String albumUUID = UUID.randomUUID().toString();
+
+  @AfterEach
+  void removeLayout() {
+
+    redisService.removeAlbumRedisValue(albumUUID);
+  }
+
+  @Nested
+  @DisplayName("Given: 빈 앨범 레이아웃에")
+  class empty_layout {
+
+    {
+      redisService.setAlbumRedisValue(albumUUID, new AlbumImagesInfo());
+    }
+
+    @Nested
+    @DisplayName(EDITORS + "명이 동시에 페이지를 하나씩 추가하면")
+    class add_pages_concurrently {
+
+      List<Long> sequences = new ArrayList<>();
+
+      {
+        ExecutorService executor = Executors.newFixedThreadPool(EDITORS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<AlbumLayoutMessage>> results = new ArrayList<>();
+
+        for (int i = 0; i < EDITORS; i++) {
+
+          results.add(executor.submit(() -> {
+
+            start.await();
+            return redisService.applyAlbumLayoutDelta(albumUUID, AlbumLayoutMessage.builder()
+                .type(AlbumLayoutMessageType.DELTA)
+                .addedPages(1)
+                .build());
+          }));
+        }
+
+        start.countDown();
+        try {
+
+          for (Future<AlbumLayoutMessage> result : results)
+            sequences.add(result.get(30, TimeUnit.SECONDS).getSequence());
+        } catch (Exception e) {
+
+          throw new IllegalStateException(e);
+        } finally {
+
+          executor.shutdownNow();
+        }
+      }
+
+      @Test
+      @DisplayName("충돌한 편집은 다시 읽어 재시도하므로 모든 페이지가 추가된다.")
+      void apply_every_edit() {
+
+        AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+
+        assertEquals(1 + EDITORS, albumImagesInfo.getImagesInfo().size());
+        assertEquals(EDITORS, albumImagesInfo.getVersion());
+      }
+
+      @Test
+      @DisplayName("편집마다 서로 다른 sequence 를 1부터 빠짐없이 받는다.")
+      void assign_distinct_sequences() {
+
+        Set<Long> expected = new TreeSet<>();
+        for (long sequence = 1; sequence <= EDITORS; sequence++)
+          expected.add(sequence);
+
+        assertEquals(expected, new TreeSet<>(sequences));
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.album.DTO.AlbumInitInfo;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+import com.noyes.jogakbo.global.jwt.JwtService;
+import com.noyes.jogakbo.user.DTO.UserProfile;
+
+@AcceptanceTest
+@DisplayName("앨범 페이지 단위 초기화 테스트")
+public class PagedInitTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Autowired
+  JwtService jwtService;
+
+  @Value("${jwt.access.header}")
+  private String accessHeader;
+
+  @SuppressWarnings("null")
+  @Nested
+  @DisplayName("Given: 유저가 3페이지짜리 앨범을 생성한 상태에서")
+  class album_with_three_pages {
+
+    String testToken = jwtService.createLoginTestToken("User_UUID", "PagedInit_Test");
+
+    UserProfile userProfile = webTestClient
+        .post()
+        .uri("/login")
+        .header(accessHeader, "Bearer " + testToken)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(UserProfile.class)
+        .returnResult()
+        .getResponseBody();
+
+    String albumUUID = webTestClient
+        .post()
+        .uri("/album?albumName=PagedInitTestAlbum")
+        .accept(MediaType.TEXT_PLAIN)
+        .header(accessHeader, "Bearer " + testToken)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+
+    {
+      for (int i = 0; i < 2; i++) {
+
+        webTestClient
+            .post()
+            .uri("/album/" + albumUUID + "/page")
+            .accept(MediaType.TEXT_PLAIN)
+            .header(accessHeader, "Bearer " + testToken)
+            .exchange()
+            .expectStatus().isOk();
+      }
+    }
+
+    @Nested
+    @DisplayName("pageSize 를 주고 앨범에 입장하면")
+    class request_init_with_page_size {
+
+      AlbumInitInfo albumInitInfo = webTestClient
+          .get()
+          .uri("/album/" + albumUUID + "/init?pageSize=1")
+          .accept(MediaType.APPLICATION_JSON)
+          .header(accessHeader, "Bearer " + testToken)
+          .exchange()
+          .expectStatus().isOk()
+          .expectBody(AlbumInitInfo.class)
+          .returnResult()
+          .getResponseBody();
+
+      @Test
+      @DisplayName("요청한 페이지만 담고, 전체 페이지 수를 함께 반환한다.")
+      void response_with_requested_pages_and_page_count() {
+
+        assertEquals(3, albumInitInfo.getPageCount());
+        assertEquals(0, albumInitInfo.getFromPage());
+        assertEquals(1, albumInitInfo.getImagesInfo().size());
+      }
+
+      @Test
+      @DisplayName("나머지 페이지를 요청하면, 남은 페이지만 반환한다.")
+      void response_with_remaining_pages() {
+
+        AlbumPagesInfo albumPagesInfo = webTestClient
+            .get()
+            .uri("/album/" + albumUUID + "/pages?fromPage=1&pageSize=10")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(accessHeader, "Bearer " + testToken)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AlbumPagesInfo.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(3, albumPagesInfo.getPageCount());
+        assertEquals(1, albumPagesInfo.getFromPage());
+        assertEquals(2, albumPagesInfo.getImagesInfo().size());
+        assertEquals(albumInitInfo.getSequence(), albumPagesInfo.getSequence());
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.global.redis.RedisService;
+
+@AcceptanceTest
+@DisplayName("presigned 업로드 대기 목록 테스트")
+public class PendingUploadTest {
+
+  @Autowired
+  RedisService redisService;
+
+  String albumUUID = UUID.randomUUID().toString();
+  String otherAlbumUUID = UUID.randomUUID().toString();
+
+  @AfterEach
+  void removePendingUploads() {
+
+    redisService.removeAlbumRedisValue(albumUUID);
+    redisService.removeAlbumRedisValue(otherAlbumUUID);
+  }
+
+  @Nested
+  @DisplayName("Given: 앨범에 두 파일의 업로드 URL 을 발급한 상태에서")
+  class two_pending_uploads {
+
+    {
+      redisService.addPendingUploads(albumUUID, List.of("a.png", "b.png"), Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("같은 파일의 완료 요청이 여러 번 와도 한 번만 등록할 수 있다.")
+    void claim_once() {
+
+      assertTrue(redisService.removePendingUpload(albumUUID, "a.png"));
+      assertFalse(redisService.removePendingUpload(albumUUID, "a.png"));
+      assertTrue(redisService.removePendingUpload(albumUUID, "b.png"));
+    }
+
+    @Test
+    @DisplayName("다른 앨범에 발급한 파일이나 발급하지 않은 파일은 등록할 수 없다.")
+    void reject_unknown_file() {
+
+      assertFalse(redisService.removePendingUpload(otherAlbumUUID, "a.png"));
+      assertFalse(redisService.removePendingUpload(albumUUID, "c.png"));
+    }
+
+    @Test
+    @DisplayName("완료 요청이 실패해 되돌린 파일은 다시 등록할 수 있다.")
+    void claim_after_rollback() {
+
+      assertTrue(redisService.removePendingUpload(albumUUID, "a.png"));
+      redisService.addPendingUploads(albumUUID, List.of("a.png"), Duration.ofMinutes(1));
+
+      assertTrue(redisService.removePendingUpload(albumUUID, "a.png"));
+    }
+
+    @Test
+    @DisplayName("앨범을 삭제하면 대기 목록도 함께 사라진다.")
+    void remove_with_album() {
+
+      redisService.removeAlbumRedisValue(albumUUID);
+
+      assertFalse(redisService.removePendingUpload(albumUUID, "a.png"));
+    }
+  }
+}
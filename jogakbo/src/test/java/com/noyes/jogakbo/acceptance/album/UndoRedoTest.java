@@ -0,0 +1,170 @@
+package com.noyes.jogakbo.acceptance.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.noyes.jogakbo.acceptance.global.AcceptanceTest;
+import com.noyes.jogakbo.album.AlbumService;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumImageLocationInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageSizeInfo;
+import com.noyes.jogakbo.album.DTO.AlbumPagesInfo;
+import com.noyes.jogakbo.global.jwt.JwtService;
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.RedisService;
+
+@AcceptanceTest
+@DisplayName("앨범 작업 되돌리기, 다시 실행 테스트")
+public class UndoRedoTest {
+
+  private static final String IMAGE_UUID = "UndoRedoTestImage.jpg";
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Autowired
+  JwtService jwtService;
+
+  @Autowired
+  RedisService redisService;
+
+  @Autowired
+  AlbumService albumService;
+
+  @Value("${jwt.access.header}")
+  private String accessHeader;
+
+  @SuppressWarnings("null")
+  @Nested
+  @DisplayName("Given: x 가 10 인 이미지를 50 으로 옮긴 상태에서")
+  class moved_image {
+
+    String testToken = jwtService.createLoginTestToken("User_UUID", "UndoRedo_Test");
+
+    {
+      webTestClient
+          .post()
+          .uri("/login")
+          .header(accessHeader, "Bearer " + testToken)
+          .exchange()
+          .expectStatus().isOk();
+    }
+
+    String albumUUID = webTestClient
+        .post()
+        .uri("/album?albumName=UndoRedoTestAlbum")
+        .accept(MediaType.TEXT_PLAIN)
+        .header(accessHeader, "Bearer " + testToken)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+
+    {
+      // S3 를 거치지 않도록 이미지가 올라간 레이아웃을 직접 저장
+      AlbumImagesInfo albumImagesInfo = redisService.getAlbumImagesInfo(albumUUID);
+      albumImagesInfo.addImage(editMessage(10));
+      redisService.setAlbumRedisValue(albumUUID, albumImagesInfo);
+
+      albumService.editImage(albumUUID, List.of(editMessage(50)));
+    }
+
+    @Nested
+    @DisplayName("되돌리면")
+    class undo {
+
+      {
+        post("undo").expectStatus().isOk();
+      }
+
+      @Test
+      @DisplayName("이미지가 이전 위치로 돌아가고, 더 되돌릴 작업은 없다.")
+      void restore_previous_location() {
+
+        assertEquals(10, imageX());
+        post("undo").expectStatus().isBadRequest();
+      }
+
+      @Test
+      @DisplayName("다시 실행하면 옮긴 위치로 돌아가고, 한 번 더 다시 실행할 작업은 없다.")
+      void redo_edit() {
+
+        post("redo").expectStatus().isOk();
+
+        assertEquals(50, imageX());
+        post("redo").expectStatus().isBadRequest();
+
+        post("undo").expectStatus().isOk();
+        assertEquals(10, imageX());
+      }
+
+      @Test
+      @DisplayName("새로 편집하면 되돌렸던 작업은 다시 실행할 수 없다.")
+      void discard_redo_on_new_edit() {
+
+        albumService.editImage(albumUUID, List.of(editMessage(70)));
+
+        post("redo").expectStatus().isBadRequest();
+        assertEquals(70, imageX());
+      }
+    }
+
+    private WebTestClient.ResponseSpec post(String action) {
+
+      return webTestClient
+          .post()
+          .uri("/album/" + albumUUID + "/" + action)
+          .accept(MediaType.TEXT_PLAIN)
+          .header(accessHeader, "Bearer " + testToken)
+          .exchange();
+    }
+
+    private double imageX() {
+
+      AlbumPagesInfo albumPagesInfo = webTestClient
+          .get()
+          .uri("/album/" + albumUUID + "/pages?fromPage=0&pageSize=1")
+          .accept(MediaType.APPLICATION_JSON)
+          .header(accessHeader, "Bearer " + testToken)
+          .exchange()
+          .expectStatus().isOk()
+          .expectBody(AlbumPagesInfo.class)
+          .returnResult()
+          .getResponseBody();
+
+      return albumPagesInfo.getImagesInfo().get(0).get(0).getLocation().getX();
+    }
+  }
+
+  private static AlbumImageEditMessage editMessage(double x) {
+
+    AlbumImageSizeInfo size = new AlbumImageSizeInfo();
+    size.setWidth(100);
+    size.setHeight(100);
+
+    AlbumImageLocationInfo location = new AlbumImageLocationInfo();
+    location.setX(x);
+
+    AlbumImageEditInfo albumImageEditInfo = new AlbumImageEditInfo();
+    albumImageEditInfo.setPageNum(0);
+    albumImageEditInfo.setSize(size);
+    albumImageEditInfo.setLocation(location);
+
+    AlbumImageEditMessage message = new AlbumImageEditMessage();
+    message.setAlbumImageUUID(IMAGE_UUID);
+    message.setAlbumImageEditInfo(albumImageEditInfo);
+
+    return message;
+  }
+}
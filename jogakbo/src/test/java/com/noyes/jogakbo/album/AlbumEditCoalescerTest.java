@@ -0,0 +1,187 @@
+package com.noyes.jogakbo.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.noyes.jogakbo.album.DTO.AlbumImageEditInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumImageLocationInfo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("이미지 편집 모으기 테스트")
+public class AlbumEditCoalescerTest {
+
+  private static final String ALBUM_UUID = "album";
+
+  AlbumService albumService = mock(AlbumService.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumEditCoalescer coalescer = new AlbumEditCoalescer(albumService, meterRegistry);
+
+  // editImage 로 반영된 편집 묶음
+  List<List<AlbumImageEditMessage>> flushed = Collections.synchronizedList(new ArrayList<>());
+
+  {
+    ReflectionTestUtils.setField(coalescer, "coalesceWindowMs", 100L);
+    ReflectionTestUtils.setField(coalescer, "coalesceThreads", 2);
+    coalescer.init();
+  }
+
+  @AfterEach
+  void shutdown() throws InterruptedException {
+
+    coalescer.shutdown();
+  }
+
+  @Nested
+  @DisplayName("Given: window 안에 같은 이미지를 여러 번 움직이면")
+  class edit_same_image_in_window {
+
+    CountDownLatch flushedOnce = new CountDownLatch(1);
+
+    {
+      doAnswer(invocation -> {
+
+        List<AlbumImageEditMessage> edits = invocation.getArgument(1);
+        flushed.add(new ArrayList<>(edits));
+        flushedOnce.countDown();
+        return null;
+      }).when(albumService).editImage(eq(ALBUM_UUID), anyList());
+
+      coalescer.submit(ALBUM_UUID, List.of(edit("A", 10)));
+      coalescer.submit(ALBUM_UUID, List.of(edit("B", 10)));
+      coalescer.submit(ALBUM_UUID, List.of(edit("A", 20)));
+      coalescer.submit(ALBUM_UUID, List.of(edit("A", 30)));
+    }
+
+    @Test
+    @DisplayName("이미지마다 마지막 값만, 마지막으로 움직인 순서대로 한 번에 반영한다.")
+    void flush_last_edit_per_image() throws InterruptedException {
+
+      assertTrue(flushedOnce.await(5, TimeUnit.SECONDS));
+      Thread.sleep(200);
+
+      assertEquals(1, flushed.size());
+      assertEquals(List.of("B", "A"), uuids(flushed.get(0)));
+      assertEquals(30, flushed.get(0).get(1).getAlbumImageEditInfo().getLocation().getX());
+      assertEquals(2, meterRegistry.counter("album.edit.coalesced").count());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 앞선 반영이 window 보다 오래 걸리는 동안 편집이 들어오면")
+  class edit_while_flushing {
+
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger overlapped = new AtomicInteger();
+    CountDownLatch flushedTwice = new CountDownLatch(2);
+
+    {
+      doAnswer(invocation -> {
+
+        if (running.incrementAndGet() > 1)
+          overlapped.incrementAndGet();
+        Thread.sleep(300);
+        List<AlbumImageEditMessage> edits = invocation.getArgument(1);
+        flushed.add(new ArrayList<>(edits));
+        running.decrementAndGet();
+        flushedTwice.countDown();
+        return null;
+      }).when(albumService).editImage(eq(ALBUM_UUID), anyList());
+
+      coalescer.submit(ALBUM_UUID, List.of(edit("A", 10)));
+      sleep(150);
+      coalescer.submit(ALBUM_UUID, List.of(edit("A", 20)));
+    }
+
+    @Test
+    @DisplayName("같은 앨범의 반영은 겹치지 않고 받은 순서대로 실행된다.")
+    void serialize_flushes() throws InterruptedException {
+
+      assertTrue(flushedTwice.await(5, TimeUnit.SECONDS));
+
+      assertEquals(0, overlapped.get());
+      assertEquals(10, flushed.get(0).get(0).getAlbumImageEditInfo().getLocation().getX());
+      assertEquals(20, flushed.get(1).get(0).getAlbumImageEditInfo().getLocation().getX());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 편집을 받은 뒤 window 안에 같은 앨범의 다른 메세지가 lane 에서 처리되면")
+  class direct_message_in_window {
+
+    // lane 과 coalescer 에서 레이아웃에 적용된 순서
+    List<String> applied = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch flushedOnce = new CountDownLatch(1);
+
+    {
+      doAnswer(invocation -> {
+
+        applied.add("edit");
+        flushedOnce.countDown();
+        return null;
+      }).when(albumService).editImage(eq(ALBUM_UUID), anyList());
+
+      coalescer.submit(ALBUM_UUID, List.of(edit("A", 10)));
+      applied.add("remove");
+    }
+
+    @Test
+    @DisplayName("편집은 window 뒤에 반영되므로 나중에 받은 메세지보다 늦게 적용된다.")
+    void apply_edit_after_direct_message() throws InterruptedException {
+
+      assertTrue(flushedOnce.await(5, TimeUnit.SECONDS));
+
+      assertEquals(List.of("remove", "edit"), applied);
+    }
+  }
+
+  private static AlbumImageEditMessage edit(String albumImageUUID, double x) {
+
+    AlbumImageLocationInfo location = new AlbumImageLocationInfo();
+    location.setX(x);
+
+    AlbumImageEditInfo albumImageEditInfo = new AlbumImageEditInfo();
+    albumImageEditInfo.setLocation(location);
+
+    AlbumImageEditMessage message = new AlbumImageEditMessage();
+    message.setAlbumImageUUID(albumImageUUID);
+    message.setAlbumImageEditInfo(albumImageEditInfo);
+
+    return message;
+  }
+
+  private static List<String> uuids(List<AlbumImageEditMessage> messages) {
+
+    return messages.stream().map(AlbumImageEditMessage::getAlbumImageUUID).collect(Collectors.toList());
+  }
+
+  private static void sleep(long millis) {
+
+    try {
+
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.noyes.jogakbo.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.global.redis.AlbumImagesInfo;
+import com.noyes.jogakbo.global.redis.RedisService;
+import com.noyes.jogakbo.global.websocket.AlbumBroadcaster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("앨범 편집 세션 테스트")
+public class AlbumEditSessionManagerTest {
+
+  private static final String ALBUM_UUID = "album";
+
+  RedisService redisService = mock(RedisService.class);
+  AlbumBroadcaster albumBroadcaster = mock(AlbumBroadcaster.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumEditSessionManager sessionManager = new AlbumEditSessionManager(redisService, albumBroadcaster, meterRegistry);
+
+  {
+    ReflectionTestUtils.setField(sessionManager, "workerThreads", 2);
+    sessionManager.init();
+
+    // 세션이 처음 불러올 때와 rebase 후 다시 불러올 때 각각 Redis 의 레이아웃을 새로 읽음
+    when(redisService.getAlbumImagesInfo(ALBUM_UUID)).thenAnswer(invocation -> new AlbumImagesInfo());
+  }
+
+  @AfterEach
+  void shutdown() throws InterruptedException {
+
+    sessionManager.shutdown();
+  }
+
+  @Nested
+  @DisplayName("Given: 세션에서 페이지를 두 번 추가한 상태에서")
+  class two_pages_added {
+
+    List<AlbumLayoutMessage> applied = List.of(
+        sessionManager.apply(ALBUM_UUID, addPage()),
+        sessionManager.apply(ALBUM_UUID, addPage()));
+
+    @Test
+    @DisplayName("적용 즉시 sequence 순서대로 브로드캐스트하고, Redis 에는 아직 쓰지 않는다.")
+    void broadcast_before_flush() {
+
+      assertEquals(List.of(1L, 2L), applied.stream().map(AlbumLayoutMessage::getSequence).collect(Collectors.toList()));
+      verify(albumBroadcaster, times(2)).broadcast(eq(ALBUM_UUID), any(AlbumLayoutMessage.class));
+      verify(redisService, never()).compareAndSetAlbumRedisValue(any(), anyLong(), any());
+      assertEquals(3, sessionManager.getPageCount(ALBUM_UUID));
+    }
+
+    @Test
+    @DisplayName("반영 주기가 되면 세션이 읽은 version 을 기대값으로 CAS 반영한다.")
+    void flush_with_cas() {
+
+      when(redisService.compareAndSetAlbumRedisValue(eq(ALBUM_UUID), eq(0L), any())).thenReturn(true);
+
+      sessionManager.flushAll();
+
+      ArgumentCaptor<AlbumImagesInfo> layout = ArgumentCaptor.forClass(AlbumImagesInfo.class);
+      verify(redisService, timeout(1000)).compareAndSetAlbumRedisValue(eq(ALBUM_UUID), eq(0L), layout.capture());
+      assertEquals(2, layout.getValue().getVersion());
+      verify(redisService, never()).applyAlbumLayoutDelta(any(), any());
+    }
+
+    @Test
+    @DisplayName("그 사이 다른 노드가 레이아웃을 바꿨다면 덮어쓰지 않고 두 변경을 다시 적용한 뒤 SNAPSHOT 을 보낸다.")
+    void rebase_on_conflict() {
+
+      when(redisService.compareAndSetAlbumRedisValue(eq(ALBUM_UUID), eq(0L), any())).thenReturn(false);
+
+      sessionManager.flushAll();
+
+      verify(redisService, timeout(1000).times(2)).applyAlbumLayoutDelta(eq(ALBUM_UUID), any(AlbumLayoutMessage.class));
+
+      ArgumentCaptor<AlbumLayoutMessage> broadcast = ArgumentCaptor.forClass(AlbumLayoutMessage.class);
+      verify(albumBroadcaster, timeout(1000).times(3)).broadcast(eq(ALBUM_UUID), broadcast.capture());
+      assertEquals(AlbumLayoutMessageType.SNAPSHOT, broadcast.getAllValues().get(2).getType());
+      assertEquals(1, meterRegistry.counter("album.session.conflicts").count());
+    }
+  }
+
+  private static AlbumLayoutMessage addPage() {
+
+    return AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.DELTA)
+        .addedPages(1)
+        .build();
+  }
+}
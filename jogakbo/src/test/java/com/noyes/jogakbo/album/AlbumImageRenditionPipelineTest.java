@@ -0,0 +1,105 @@
+package com.noyes.jogakbo.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("축소본 EXIF Orientation 테스트")
+public class AlbumImageRenditionPipelineTest {
+
+  private static final int RED = 0xFFFF0000;
+
+  @Nested
+  @DisplayName("Given: Orientation 이 6(시계 방향 90도)으로 기록된 JPEG 에서")
+  class jpeg_with_orientation_six {
+
+    @Test
+    @DisplayName("big endian, little endian 모두 Orientation 을 읽는다.")
+    void read_orientation() {
+
+      assertEquals(6, AlbumImageRenditionPipeline.readOrientation(jpegWithOrientation(6, true)));
+      assertEquals(6, AlbumImageRenditionPipeline.readOrientation(jpegWithOrientation(6, false)));
+    }
+
+    @Test
+    @DisplayName("가로, 세로를 바꾸고 좌상단 픽셀을 우상단으로 옮긴다.")
+    void rotate_clockwise() {
+
+      BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, RED);
+
+      BufferedImage oriented = AlbumImageRenditionPipeline.applyOrientation(image, 6);
+
+      assertEquals(2, oriented.getWidth());
+      assertEquals(4, oriented.getHeight());
+      assertEquals(RED, oriented.getRGB(1, 0));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: EXIF 가 없는 파일에서")
+  class file_without_exif {
+
+    @Test
+    @DisplayName("Orientation 은 1 이고 이미지를 그대로 사용한다.")
+    void keep_image() {
+
+      BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+
+      assertEquals(1, AlbumImageRenditionPipeline.readOrientation(new byte[] { (byte) 0x89, 'P', 'N', 'G' }));
+      assertEquals(image, AlbumImageRenditionPipeline.applyOrientation(image, 1));
+    }
+  }
+
+  // SOI, Orientation 하나만 담긴 APP1(Exif), EOI 로 이루어진 JPEG 헤더
+  private static byte[] jpegWithOrientation(int orientation, boolean bigEndian) {
+
+    byte[] tiff = new byte[8 + 2 + 12 + 4];
+    tiff[0] = tiff[1] = (byte) (bigEndian ? 'M' : 'I');
+    putShort(tiff, 2, 42, bigEndian);
+    // IFD0 은 TIFF 헤더 바로 뒤, entry 하나 (tag, type=SHORT, count=1, value)
+    putInt(tiff, 4, 8, bigEndian);
+    putShort(tiff, 8, 1, bigEndian);
+    putShort(tiff, 10, 0x0112, bigEndian);
+    putShort(tiff, 12, 3, bigEndian);
+    putInt(tiff, 14, 1, bigEndian);
+    putShort(tiff, 18, orientation, bigEndian);
+
+    int length = 2 + 6 + tiff.length;
+    byte[] jpeg = new byte[2 + 2 + length + 2];
+    jpeg[0] = (byte) 0xFF;
+    jpeg[1] = (byte) 0xD8;
+    jpeg[2] = (byte) 0xFF;
+    jpeg[3] = (byte) 0xE1;
+    putShort(jpeg, 4, length, true);
+    System.arraycopy("Exif\0\0".getBytes(), 0, jpeg, 6, 6);
+    System.arraycopy(tiff, 0, jpeg, 12, tiff.length);
+    jpeg[jpeg.length - 2] = (byte) 0xFF;
+    jpeg[jpeg.length - 1] = (byte) 0xD9;
+
+    return jpeg;
+  }
+
+  private static void putInt(byte[] bytes, int pos, int value, boolean bigEndian) {
+
+    putShort(bytes, bigEndian ? pos : pos + 2, value >> 16, bigEndian);
+    putShort(bytes, bigEndian ? pos + 2 : pos, value, bigEndian);
+  }
+
+  private static void putShort(byte[] bytes, int pos, int value, boolean bigEndian) {
+
+    if (bigEndian) {
+
+      bytes[pos] = (byte) (value >> 8);
+      bytes[pos + 1] = (byte) value;
+    } else {
+
+      bytes[pos] = (byte) value;
+      bytes[pos + 1] = (byte) (value >> 8);
+    }
+  }
+}
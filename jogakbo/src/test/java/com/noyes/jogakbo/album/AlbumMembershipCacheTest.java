@@ -0,0 +1,149 @@
+package com.noyes.jogakbo.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("앨범 구성원 캐시 테스트")
+public class AlbumMembershipCacheTest {
+
+  private static final String ALBUM_UUID = "album";
+
+  MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+  @SuppressWarnings("unchecked")
+  RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumMembershipCache membershipCache = new AlbumMembershipCache(mongoTemplate, redisTemplate,
+      mock(RedisMessageListenerContainer.class), meterRegistry);
+
+  // Mongo 에 저장된 공동 작업자 목록
+  List<String> albumEditors = new ArrayList<>(List.of("editor"));
+
+  {
+    ReflectionTestUtils.setField(membershipCache, "maxSize", 10);
+    ReflectionTestUtils.setField(membershipCache, "ttlMs", 60000L);
+    membershipCache.init();
+
+    when(mongoTemplate.findOne(any(Query.class), eq(Album.class))).thenAnswer(invocation -> Album.builder()
+        .albumUUID(ALBUM_UUID)
+        .albumOwner("owner")
+        .albumEditors(new ArrayList<>(albumEditors))
+        .build());
+  }
+
+  @Nested
+  @DisplayName("Given: 구성원을 한 번 확인한 상태에서")
+  class loaded_membership {
+
+    {
+      membershipCache.isMember(ALBUM_UUID, "owner");
+    }
+
+    @Test
+    @DisplayName("다시 확인할 때는 Mongo 를 읽지 않는다.")
+    void hit_cache() {
+
+      assertTrue(membershipCache.isMember(ALBUM_UUID, "editor"));
+      assertFalse(membershipCache.isMember(ALBUM_UUID, "stranger"));
+
+      verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Album.class));
+      assertEquals(2, meterRegistry.counter("album.membership.cache", "result", "hit").count());
+    }
+
+    @Test
+    @DisplayName("초대를 수락해 무효화하면 새 구성원을 읽고, 다른 노드에도 무효화를 발행한다.")
+    void invalidate_on_change() {
+
+      albumEditors.add("invitee");
+      assertFalse(membershipCache.isMember(ALBUM_UUID, "invitee"));
+
+      membershipCache.invalidate(ALBUM_UUID);
+
+      assertTrue(membershipCache.isMember(ALBUM_UUID, "invitee"));
+      verify(redisTemplate).convertAndSend("album:membership:invalidate", ALBUM_UUID);
+    }
+
+    @Test
+    @DisplayName("다른 노드가 발행한 무효화를 받으면 캐시에서 버린다.")
+    void evict_on_message() {
+
+      albumEditors.remove("editor");
+      membershipCache.onMessage(message(ALBUM_UUID), null);
+
+      assertFalse(membershipCache.isMember(ALBUM_UUID, "editor"));
+      verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(Album.class));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 구성원을 읽는 도중 무효화가 도착하면")
+  class invalidated_while_loading {
+
+    Message invalidation = message(ALBUM_UUID);
+
+    {
+      doAnswer(invocation -> {
+
+        Album album = Album.builder()
+            .albumUUID(ALBUM_UUID)
+            .albumOwner("owner")
+            .albumEditors(new ArrayList<>(albumEditors))
+            .build();
+        membershipCache.onMessage(invalidation, null);
+        return album;
+      }).when(mongoTemplate).findOne(any(Query.class), eq(Album.class));
+
+      membershipCache.isMember(ALBUM_UUID, "owner");
+    }
+
+    @Test
+    @DisplayName("읽은 값을 캐시에 넣지 않아 다음 확인에서 다시 읽는다.")
+    void do_not_cache_stale_membership() {
+
+      membershipCache.isMember(ALBUM_UUID, "owner");
+
+      verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(Album.class));
+    }
+  }
+
+  @Test
+  @DisplayName("없는 앨범이라면 null 을 돌려준다.")
+  void missing_album() {
+
+    when(mongoTemplate.findOne(any(Query.class), eq(Album.class))).thenReturn(null);
+
+    assertNull(membershipCache.isMember("missing", "owner"));
+  }
+
+  private static Message message(String albumUUID) {
+
+    Message message = mock(Message.class);
+    when(message.getBody()).thenReturn(albumUUID.getBytes(StandardCharsets.UTF_8));
+
+    return message;
+  }
+}
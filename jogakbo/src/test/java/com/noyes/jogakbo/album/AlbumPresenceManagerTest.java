@@ -0,0 +1,113 @@
+package com.noyes.jogakbo.album;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.noyes.jogakbo.album.DTO.AlbumCursorMessage;
+import com.noyes.jogakbo.album.DTO.AlbumPresenceMessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("앨범 커서 전송 테스트")
+public class AlbumPresenceManagerTest {
+
+  private static final String ALBUM_UUID = "album";
+
+  SimpMessagingTemplate simpMessagingTemplate = mock(SimpMessagingTemplate.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumPresenceManager albumPresenceManager = new AlbumPresenceManager(simpMessagingTemplate, meterRegistry);
+
+  {
+    // 테스트 중에는 같은 연결의 두 번째 커서가 항상 너무 이르게 들어온 것으로 취급
+    ReflectionTestUtils.setField(albumPresenceManager, "minIntervalMs", 60_000L);
+  }
+
+  @Nested
+  @DisplayName("Given: 한 연결이 커서를 연달아 보내고 다른 연결도 커서를 보내면")
+  class cursors_in_one_interval {
+
+    {
+      albumPresenceManager.update(ALBUM_UUID, "first", "user", cursor(1));
+      albumPresenceManager.update(ALBUM_UUID, "first", "user", cursor(2));
+      albumPresenceManager.update(ALBUM_UUID, "second", "user", cursor(3));
+      albumPresenceManager.flush();
+    }
+
+    @Test
+    @DisplayName("최소 간격보다 이른 커서는 버리고, 연결별 커서를 한 메세지로 모아 보낸다.")
+    void throttle_and_batch() {
+
+      AlbumPresenceMessage message = sent(1).get(0);
+
+      assertEquals(2, message.getCursors().size());
+      assertEquals(1, message.getCursors().get(0).getX());
+      assertEquals("first", message.getCursors().get(0).getCursorID());
+      assertEquals(1, meterRegistry.counter("album.presence.dropped").count());
+    }
+
+    @Test
+    @DisplayName("움직인 커서가 없으면 보내지 않고, 떠난 연결은 다음 전송에 left 로 알린다.")
+    void send_left_once() {
+
+      albumPresenceManager.flush();
+      albumPresenceManager.leave(ALBUM_UUID, "first");
+      albumPresenceManager.flush();
+      albumPresenceManager.flush();
+
+      List<AlbumPresenceMessage> messages = sent(2);
+
+      assertEquals(List.of("first"), messages.get(1).getLeft());
+      assertEquals(0, messages.get(1).getCursors().size());
+    }
+
+    @Test
+    @DisplayName("모든 연결이 떠난 앨범은 left 를 보낸 뒤 정리하고, 다시 들어온 연결의 커서는 새로 받아 보낸다.")
+    void prune_empty_album() {
+
+      albumPresenceManager.leave(ALBUM_UUID, "first");
+      albumPresenceManager.leave(ALBUM_UUID, "second");
+      albumPresenceManager.flush();
+      albumPresenceManager.flush();
+
+      albumPresenceManager.update(ALBUM_UUID, "first", "user", cursor(4));
+      albumPresenceManager.flush();
+
+      List<AlbumPresenceMessage> messages = sent(3);
+
+      assertEquals(4, messages.get(2).getCursors().get(0).getX());
+    }
+  }
+
+  private List<AlbumPresenceMessage> sent(int times) {
+
+    ArgumentCaptor<AlbumPresenceMessage> captor = ArgumentCaptor.forClass(AlbumPresenceMessage.class);
+    verify(simpMessagingTemplate, times(times)).convertAndSend(eq("/sub/presence/" + ALBUM_UUID), captor.capture());
+    verify(simpMessagingTemplate, times(times)).convertAndSend(anyString(), any(Object.class));
+
+    return captor.getAllValues();
+  }
+
+  private static AlbumCursorMessage cursor(double x) {
+
+    AlbumCursorMessage cursor = new AlbumCursorMessage();
+    cursor.setPageNum(0);
+    cursor.setX(x);
+    cursor.setY(0);
+
+    return cursor;
+  }
+}
@@ -0,0 +1,208 @@
+package com.noyes.jogakbo.global.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import com.noyes.jogakbo.album.DTO.AlbumImageEditInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageEditMessage;
+import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageLocationInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageSizeInfo;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+
+@DisplayName("앨범 레이아웃 DELTA 적용 테스트")
+public class AlbumImagesInfoTest {
+
+  @Nested
+  @DisplayName("Given: 첫 페이지에 이미지 A, B 가 있는 레이아웃에서")
+  class layout_with_two_images {
+
+    AlbumImagesInfo albumImagesInfo = new AlbumImagesInfo();
+
+    {
+      albumImagesInfo.applyDelta(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .added(List.of(editMessage("A", 0, 10), editMessage("B", 0, 20)))
+          .build());
+    }
+
+    @Nested
+    @DisplayName("페이지 추가, 이미지 추가, 이동, 삭제를 한 번에 적용하면")
+    class apply_delta {
+
+      AlbumLayoutMessage applied = albumImagesInfo.applyDelta(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .addedPages(1)
+          .added(List.of(editMessage("C", 1, 30), editMessage("A", 0, 40), editMessage("D", 5, 50)))
+          .moved(List.of(editMessage("A", 0, 60), editMessage("X", 0, 70)))
+          .removed(List.of("B", "Y"))
+          .build());
+
+      @Test
+      @DisplayName("실제로 반영된 항목만 돌려주고 version 을 1 증가시킨다.")
+      void return_only_applied_items() {
+
+        assertEquals(2, albumImagesInfo.getVersion());
+        assertEquals(2, applied.getSequence());
+        assertEquals(1, applied.getAddedPages());
+        assertEquals(List.of("C"), uuids(applied.getAdded()));
+        assertEquals(List.of("A"), uuids(applied.getMoved()));
+        assertEquals(List.of("B"), applied.getRemoved());
+      }
+
+      @Test
+      @DisplayName("레이아웃에는 이동한 이미지가 페이지 맨 위에 놓인다.")
+      void apply_to_layout() {
+
+        List<List<AlbumImageInfo>> imagesInfo = albumImagesInfo.getImagesInfo();
+
+        assertEquals(2, imagesInfo.size());
+        assertEquals(1, imagesInfo.get(0).size());
+        assertEquals("A", imagesInfo.get(0).get(0).getAlbumImageUUID());
+        assertEquals(60, imagesInfo.get(0).get(0).getLocation().getX());
+        assertEquals("C", imagesInfo.get(1).get(0).getAlbumImageUUID());
+        assertFalse(albumImagesInfo.containsImage("B"));
+      }
+
+      @Test
+      @DisplayName("inverse 는 추가된 이미지를 지우고 이동한 이미지를 이전 값으로 되돌린다.")
+      void build_inverse() {
+
+        AlbumLayoutMessage inverse = applied.getInverse();
+
+        assertEquals(List.of("C"), inverse.getRemoved());
+        assertEquals(1, inverse.getMoved().size());
+        assertEquals("A", inverse.getMoved().get(0).getAlbumImageUUID());
+        assertEquals(10, inverse.getMoved().get(0).getAlbumImageEditInfo().getLocation().getX());
+
+        albumImagesInfo.applyDelta(inverse);
+
+        assertFalse(albumImagesInfo.containsImage("C"));
+        assertEquals(10, albumImagesInfo.getImagesInfo().get(0).get(0).getLocation().getX());
+        assertEquals(3, albumImagesInfo.getVersion());
+      }
+    }
+
+    @Nested
+    @DisplayName("반영될 항목이 없는 DELTA 를 적용하면")
+    class apply_empty_delta {
+
+      AlbumLayoutMessage applied = albumImagesInfo.applyDelta(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .moved(List.of(editMessage("A", 1, 10)))
+          .removed(List.of("Z"))
+          .build());
+
+      @Test
+      @DisplayName("version 을 올리지 않고 변경 없음으로 돌려준다.")
+      void keep_version() {
+
+        assertFalse(applied.hasChanges());
+        assertEquals(1, albumImagesInfo.getVersion());
+        assertEquals(1, applied.getSequence());
+        assertTrue(albumImagesInfo.containsImage("A"));
+      }
+    }
+
+    @Nested
+    @DisplayName("이미지를 지운 뒤 지우기 전에 받은 편집이 늦게 반영되면")
+    class edit_after_remove {
+
+      AlbumLayoutMessage removed = albumImagesInfo.applyDelta(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .removed(List.of("A"))
+          .build());
+
+      AlbumLayoutMessage edited = albumImagesInfo.applyDelta(AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .moved(List.of(editMessage("A", 0, 90)))
+          .build());
+
+      @Test
+      @DisplayName("지워진 이미지를 되살리지 않고 변경 없음으로 돌려준다.")
+      void ignore_removed_image() {
+
+        assertFalse(edited.hasChanges());
+        assertFalse(albumImagesInfo.containsImage("A"));
+        assertEquals(removed.getSequence(), edited.getSequence());
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 한 페이지에 이미지 5개가 있는 레이아웃에서 가운데 이미지를 지우고 첫 이미지를 옮기면")
+  class reindex_after_remove_and_move {
+
+    AlbumImagesInfo albumImagesInfo = new AlbumImagesInfo();
+
+    {
+      for (String albumImageUUID : List.of("A", "B", "C", "D", "E"))
+        albumImagesInfo.addImage(editMessage(albumImageUUID, 0, 0));
+
+      albumImagesInfo.removeImage("C");
+      albumImagesInfo.editImage(editMessage("A", 0, 10));
+    }
+
+    @Test
+    @DisplayName("색인이 바뀐 위치를 따라가 뒤쪽 이미지도 찾아 편집하고 지울 수 있다.")
+    void follow_shifted_positions() {
+
+      assertTrue(albumImagesInfo.editImage(editMessage("E", 0, 20)));
+      assertTrue(albumImagesInfo.removeImage("D"));
+      assertFalse(albumImagesInfo.removeImage("C"));
+
+      assertEquals(List.of("B", "A", "E"), albumImagesInfo.getImagesInfo().get(0).stream()
+          .map(AlbumImageInfo::getAlbumImageUUID)
+          .collect(Collectors.toList()));
+      assertEquals(20, albumImagesInfo.getImagesInfo().get(0).get(2).getLocation().getX());
+    }
+
+    @Test
+    @DisplayName("레이아웃을 통째로 바꾸면 색인을 새 레이아웃으로 다시 만든다.")
+    void rebuild_after_replace() {
+
+      AlbumImagesInfo other = new AlbumImagesInfo();
+      other.addImage(editMessage("X", 0, 0));
+      albumImagesInfo.setImagesInfo(other.copyImagesInfo());
+
+      assertTrue(albumImagesInfo.containsImage("X"));
+      assertFalse(albumImagesInfo.containsImage("A"));
+    }
+  }
+
+  private static AlbumImageEditMessage editMessage(String albumImageUUID, int pageNum, double x) {
+
+    AlbumImageSizeInfo size = new AlbumImageSizeInfo();
+    size.setWidth(100);
+    size.setHeight(100);
+
+    AlbumImageLocationInfo location = new AlbumImageLocationInfo();
+    location.setX(x);
+    location.setY(0);
+
+    AlbumImageEditInfo albumImageEditInfo = new AlbumImageEditInfo();
+    albumImageEditInfo.setPageNum(pageNum);
+    albumImageEditInfo.setSize(size);
+    albumImageEditInfo.setLocation(location);
+
+    AlbumImageEditMessage message = new AlbumImageEditMessage();
+    message.setAlbumImageUUID(albumImageUUID);
+    message.setAlbumImageEditInfo(albumImageEditInfo);
+
+    return message;
+  }
+
+  private static List<String> uuids(List<AlbumImageEditMessage> messages) {
+
+    return messages.stream().map(AlbumImageEditMessage::getAlbumImageUUID).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,100 @@
+package com.noyes.jogakbo.global.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.noyes.jogakbo.album.DTO.AlbumImageInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageLocationInfo;
+import com.noyes.jogakbo.album.DTO.AlbumImageSizeInfo;
+
+@DisplayName("앨범 레이아웃 코덱 테스트")
+public class AlbumLayoutCodecTest {
+
+  AlbumLayoutCodec codec = new AlbumLayoutCodec(jacksonObjectMapperBuilder().build(), jacksonObjectMapperBuilder());
+
+  AlbumImagesInfo albumImagesInfo = layoutWithImages(50);
+
+  @Nested
+  @DisplayName("Given: 기존 JSON 형식으로 저장된 레이아웃이 있는 상태에서 smile 로 설정하면")
+  class json_value_and_smile_encoding {
+
+    byte[] jsonValue;
+
+    {
+      ReflectionTestUtils.setField(codec, "encoding", "json");
+      try {
+
+        jsonValue = codec.encode(albumImagesInfo);
+      } catch (Exception e) {
+
+        throw new IllegalStateException(e);
+      }
+      ReflectionTestUtils.setField(codec, "encoding", "smile");
+    }
+
+    @Test
+    @DisplayName("Smile 로 인코딩한 값을 같은 레이아웃으로 디코딩한다.")
+    void round_trip_smile() throws Exception {
+
+      byte[] smileValue = codec.encode(albumImagesInfo);
+
+      assertEquals(albumImagesInfo, codec.decode(smileValue, AlbumImagesInfo.class));
+    }
+
+    @Test
+    @DisplayName("기존 JSON 값도 헤더로 판별해 그대로 읽는다.")
+    void read_legacy_json() throws Exception {
+
+      assertEquals(albumImagesInfo, codec.decode(jsonValue, AlbumImagesInfo.class));
+    }
+
+    @Test
+    @DisplayName("Smile 값은 JSON 값보다 작다.")
+    void smile_is_smaller() throws Exception {
+
+      assertTrue(codec.encode(albumImagesInfo).length < jsonValue.length);
+    }
+  }
+
+  // Spring Boot 가 구성하는 builder 처럼 생성자 parameter 이름으로 DTO 를 만들 수 있게 함
+  private static Jackson2ObjectMapperBuilder jacksonObjectMapperBuilder() {
+
+    return Jackson2ObjectMapperBuilder.json().modulesToInstall(new ParameterNamesModule());
+  }
+
+  private static AlbumImagesInfo layoutWithImages(int count) {
+
+    AlbumImagesInfo albumImagesInfo = new AlbumImagesInfo();
+    albumImagesInfo.setVersion(count);
+
+    for (int i = 0; i < count; i++) {
+
+      AlbumImageSizeInfo size = new AlbumImageSizeInfo();
+      size.setWidth(100 + i);
+      size.setHeight(200 + i);
+
+      AlbumImageLocationInfo location = new AlbumImageLocationInfo();
+      location.setX(i * 1.5);
+      location.setY(i * 2.5);
+
+      albumImagesInfo.getImagesInfo().get(0).add(AlbumImageInfo.builder()
+          .albumImageUUID("image-" + i + ".jpg")
+          .size(size)
+          .location(location)
+          .rotation(i % 360)
+          .build());
+    }
+    albumImagesInfo.getImagesInfo().add(List.of());
+
+    return albumImagesInfo;
+  }
+}
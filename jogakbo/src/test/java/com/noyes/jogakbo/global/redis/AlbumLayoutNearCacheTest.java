@@ -0,0 +1,129 @@
+package com.noyes.jogakbo.global.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("앨범 레이아웃 near cache 테스트")
+public class AlbumLayoutNearCacheTest {
+
+  private static final String ALBUM_UUID = "album";
+
+  @SuppressWarnings("unchecked")
+  RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+  AlbumLayoutNearCache nearCache = new AlbumLayoutNearCache(redisTemplate,
+      mock(RedisMessageListenerContainer.class), new SimpleMeterRegistry());
+
+  // 호출될 때마다 새 레이아웃을 읽어오는 loader
+  AtomicInteger loads = new AtomicInteger();
+  Supplier<AlbumImagesInfo> loader = () -> {
+
+    loads.incrementAndGet();
+    return new AlbumImagesInfo();
+  };
+
+  {
+    ReflectionTestUtils.setField(nearCache, "maxSize", 2);
+    ReflectionTestUtils.setField(nearCache, "ttlMs", 60000L);
+    nearCache.init();
+  }
+
+  @Nested
+  @DisplayName("Given: 레이아웃을 한 번 읽은 상태에서")
+  class loaded_layout {
+
+    AlbumImagesInfo loaded = nearCache.get(ALBUM_UUID, loader);
+
+    @Test
+    @DisplayName("다시 읽을 때는 같은 값을 돌려주고 Redis 를 읽지 않는다.")
+    void hit_cache() {
+
+      assertSame(loaded, nearCache.get(ALBUM_UUID, loader));
+      assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("레이아웃을 쓴 노드가 무효화하면 다시 읽고, 다른 노드에도 발행한다.")
+    void invalidate_on_write() {
+
+      nearCache.invalidate(ALBUM_UUID);
+
+      assertNotSame(loaded, nearCache.get(ALBUM_UUID, loader));
+      assertEquals(2, loads.get());
+      verify(redisTemplate).convertAndSend("album:layout:invalidate", ALBUM_UUID);
+    }
+
+    @Test
+    @DisplayName("다른 노드가 발행한 무효화를 받으면 캐시에서 버린다.")
+    void evict_on_message() {
+
+      nearCache.onMessage(message(ALBUM_UUID), null);
+
+      assertNotSame(loaded, nearCache.get(ALBUM_UUID, loader));
+      assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("max-size 를 넘으면 가장 오래 읽지 않은 앨범부터 버린다.")
+    void evict_least_recently_used() {
+
+      nearCache.get("album-2", loader);
+      nearCache.get(ALBUM_UUID, loader);
+      nearCache.get("album-3", loader);
+
+      assertSame(loaded, nearCache.get(ALBUM_UUID, loader));
+      nearCache.get("album-2", loader);
+      assertEquals(4, loads.get());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 레이아웃을 읽는 도중 무효화가 도착하면")
+  class invalidated_while_loading {
+
+    Message invalidation = message(ALBUM_UUID);
+
+    {
+      nearCache.get(ALBUM_UUID, () -> {
+
+        AlbumImagesInfo layout = loader.get();
+        nearCache.onMessage(invalidation, null);
+        return layout;
+      });
+    }
+
+    @Test
+    @DisplayName("읽은 값을 캐시에 넣지 않아 다음에 다시 읽는다.")
+    void do_not_cache_stale_layout() {
+
+      nearCache.get(ALBUM_UUID, loader);
+
+      assertEquals(2, loads.get());
+    }
+  }
+
+  private static Message message(String albumUUID) {
+
+    Message message = mock(Message.class);
+    when(message.getBody()).thenReturn(albumUUID.getBytes(StandardCharsets.UTF_8));
+
+    return message;
+  }
+}
@@ -0,0 +1,359 @@
+package com.noyes.jogakbo.global.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.noyes.jogakbo.global.redis.ImageContentIndex;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("S3 업로드, 삭제 테스트")
+public class AwsS3ServiceTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String ALBUM_UUID = "album";
+
+  AmazonS3 amazonS3 = mock(AmazonS3.class);
+  ImageContentIndex imageContentIndex = mock(ImageContentIndex.class);
+  AwsS3Service awsS3Service = new AwsS3Service(amazonS3, imageContentIndex, new SimpleMeterRegistry());
+
+  // S3 에 올라간 파일 경로
+  List<String> putKeys = Collections.synchronizedList(new ArrayList<>());
+
+  {
+    ReflectionTestUtils.setField(awsS3Service, "bucket", BUCKET);
+    ReflectionTestUtils.setField(awsS3Service, "uploadThreads", 4);
+    ReflectionTestUtils.setField(awsS3Service, "maxConcurrency", 2);
+    ReflectionTestUtils.setField(awsS3Service, "deleteMaxRetries", 2);
+    ReflectionTestUtils.setField(awsS3Service, "deleteRetryBackoffMs", 10L);
+    awsS3Service.init();
+  }
+
+  @AfterEach
+  void shutdown() {
+
+    awsS3Service.shutdown();
+  }
+
+  @Nested
+  @DisplayName("Given: 색인 없이 앨범 경로에 올리는 상태에서 첫 파일의 업로드가 가장 늦게 끝나면")
+  class slow_first_upload {
+
+    List<MultipartFile> multipartFiles = List.of(file("a.png"), file("b.jpg"), file("c.gif"));
+
+    {
+      when(imageContentIndex.isEnabled()).thenReturn(false);
+      doAnswer(invocation -> {
+
+        PutObjectRequest request = invocation.getArgument(0);
+        if (request.getKey().endsWith(".png"))
+          Thread.sleep(200);
+        putKeys.add(request.getKey());
+        return null;
+      }).when(amazonS3).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    @DisplayName("반환하는 파일명은 완료 순서가 아니라 요청한 파일 순서를 따른다.")
+    void keep_request_order() {
+
+      List<String> fileNames = awsS3Service.uploadFiles(multipartFiles, ALBUM_UUID);
+
+      assertEquals(List.of(".png", ".jpg", ".gif"), extensions(fileNames));
+      assertTrue(putKeys.get(putKeys.size() - 1).endsWith(".png"));
+      for (String fileName : fileNames)
+        assertTrue(putKeys.contains(ALBUM_UUID + "/" + fileName));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 여러 파일 중 하나의 업로드가 실패하면")
+  class partial_failure {
+
+    List<MultipartFile> multipartFiles = List.of(file("a.png"), file("b.jpg"), file("c.gif"));
+
+    {
+      when(imageContentIndex.isEnabled()).thenReturn(false);
+      doAnswer(invocation -> {
+
+        PutObjectRequest request = invocation.getArgument(0);
+        if (request.getKey().endsWith(".jpg"))
+          throw new SdkClientException("upload failed");
+        putKeys.add(request.getKey());
+        return null;
+      }).when(amazonS3).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    @DisplayName("실패한 파일명을 담아 예외를 던지고, 성공한 파일은 삭제한다.")
+    void delete_uploaded_files() {
+
+      ResponseStatusException e = assertThrows(ResponseStatusException.class,
+          () -> awsS3Service.uploadFiles(multipartFiles, ALBUM_UUID));
+      assertTrue(e.getReason().contains("b.jpg"));
+
+      ArgumentCaptor<DeleteObjectsRequest> request = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+      verify(amazonS3, timeout(1000)).deleteObjects(request.capture());
+
+      List<String> deletedKeys = deletedKeys(request.getValue());
+      assertEquals(2, putKeys.size());
+      assertTrue(deletedKeys.containsAll(putKeys) && putKeys.containsAll(deletedKeys));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 2500개 파일을 지우는데 첫 시도에서 두 파일의 삭제가 실패하면")
+  class delete_with_partial_errors {
+
+    List<String> fileNames = fileNames(2500);
+    // DeleteObjects 요청마다 담긴 파일 경로
+    List<List<String>> requestedKeys = Collections.synchronizedList(new ArrayList<>());
+
+    {
+      AtomicBoolean failed = new AtomicBoolean();
+      doAnswer(invocation -> {
+
+        DeleteObjectsRequest request = invocation.getArgument(0);
+        List<String> keys = deletedKeys(request);
+        requestedKeys.add(keys);
+        if (keys.contains(ALBUM_UUID + "/file-10") && failed.compareAndSet(false, true))
+          throw new MultiObjectDeleteException(
+              List.of(deleteError(ALBUM_UUID + "/file-10"), deleteError(ALBUM_UUID + "/file-20")), List.of());
+        return null;
+      }).when(amazonS3).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    @DisplayName("1000개씩 나눠 요청하고, 실패한 파일만 다시 요청해 모두 삭제한다.")
+    void retry_failed_keys() throws Exception {
+
+      List<String> undeleted = awsS3Service.deleteFiles(fileNames, ALBUM_UUID).get(5, TimeUnit.SECONDS);
+
+      assertTrue(undeleted.isEmpty());
+      assertEquals(List.of(1000, 1000, 500, 2),
+          requestedKeys.stream().map(List::size).collect(Collectors.toList()));
+      assertEquals(List.of(ALBUM_UUID + "/file-10", ALBUM_UUID + "/file-20"), requestedKeys.get(3));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: S3 에 계속 연결할 수 없는 상태에서 파일을 지우면")
+  class delete_while_unreachable {
+
+    {
+      when(amazonS3.deleteObjects(any(DeleteObjectsRequest.class))).thenThrow(new SdkClientException("unreachable"));
+    }
+
+    @Test
+    @DisplayName("max-retries 번까지 다시 시도한 뒤 삭제하지 못한 파일 경로를 돌려준다.")
+    void give_up_after_max_retries() throws Exception {
+
+      List<String> undeleted = awsS3Service.deleteFiles(fileNames(3), ALBUM_UUID).get(5, TimeUnit.SECONDS);
+
+      assertEquals(albumKeys(fileNames(3)), undeleted);
+      verify(amazonS3, times(3)).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 내용 색인을 사용하는 상태에서 앨범 이미지를 올리면")
+  class upload_with_content_index {
+
+    MultipartFile multipartFile = file("a.png");
+    String sha256 = sha256(multipartFile);
+
+    {
+      when(imageContentIndex.isEnabled()).thenReturn(true);
+      doAnswer(invocation -> {
+
+        PutObjectRequest request = invocation.getArgument(0);
+        request.getInputStream().transferTo(OutputStream.nullOutputStream());
+        putKeys.add(request.getKey());
+        return null;
+      }).when(amazonS3).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    @DisplayName("처음 보는 내용이라면 SHA-256 경로로 바로 올려 등록하고, 복사나 삭제는 하지 않는다.")
+    void put_new_content() {
+
+      when(imageContentIndex.register(any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(3));
+
+      String albumImageUUID = awsS3Service.uploadImage(multipartFile, ALBUM_UUID);
+      String contentName = sha256 + "-" + albumImageUUID;
+
+      assertEquals(List.of("images/" + contentName), putKeys);
+      verify(imageContentIndex).register(ALBUM_UUID, albumImageUUID, sha256, contentName);
+      verify(amazonS3, never()).copyObject(any(CopyObjectRequest.class));
+      verify(amazonS3, after(200).never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    @DisplayName("이미 저장된 내용이라면 S3 에 올리지 않고 기존 파일에 연결한다.")
+    void link_existing_content() {
+
+      when(imageContentIndex.acquire(any(), any(), any())).thenReturn(sha256 + "-existing.png");
+
+      String albumImageUUID = awsS3Service.uploadImage(multipartFile, ALBUM_UUID);
+
+      verify(imageContentIndex).acquire(ALBUM_UUID, albumImageUUID, sha256);
+      verify(amazonS3, never()).putObject(any(PutObjectRequest.class));
+      verify(imageContentIndex, never()).register(any(), any(), any(), any());
+      verify(amazonS3, after(200).never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    @DisplayName("올리는 사이 같은 내용이 먼저 등록되었다면 방금 올린 파일을 지운다.")
+    void delete_lost_registration() {
+
+      when(imageContentIndex.register(any(), any(), any(), any())).thenReturn(sha256 + "-winner.png");
+
+      String albumImageUUID = awsS3Service.uploadImage(multipartFile, ALBUM_UUID);
+
+      ArgumentCaptor<DeleteObjectsRequest> request = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+      verify(amazonS3, timeout(1000)).deleteObjects(request.capture());
+      assertEquals(List.of("images/" + sha256 + "-" + albumImageUUID), deletedKeys(request.getValue()));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 클라이언트가 S3 에 직접 올리는 경우")
+  class presigned_upload {
+
+    @Test
+    @DisplayName("앨범 경로의 PUT URL 에 Content-Type 과 public-read ACL 헤더를 서명에 포함한다.")
+    void sign_content_type_and_acl() throws MalformedURLException {
+
+      Date expiration = new Date(System.currentTimeMillis() + 60_000);
+      when(amazonS3.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+          .thenReturn(new URL("https://bucket/album/a.png"));
+
+      awsS3Service.createUploadURL("a.png", ALBUM_UUID, "image/png", expiration);
+
+      ArgumentCaptor<GeneratePresignedUrlRequest> request = ArgumentCaptor.forClass(GeneratePresignedUrlRequest.class);
+      verify(amazonS3).generatePresignedUrl(request.capture());
+      assertEquals(ALBUM_UUID + "/a.png", request.getValue().getKey());
+      assertEquals(HttpMethod.PUT, request.getValue().getMethod());
+      assertEquals("image/png", request.getValue().getContentType());
+      assertEquals(expiration, request.getValue().getExpiration());
+      assertEquals(CannedAccessControlList.PublicRead.toString(),
+          request.getValue().getCustomRequestHeaders().get(Headers.S3_CANNED_ACL));
+    }
+
+    @Test
+    @DisplayName("업로드되지 않은 파일의 크기는 null 이고, 그 외 S3 오류는 그대로 던진다.")
+    void file_size_of_missing_file() {
+
+      AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+      notFound.setStatusCode(404);
+      AmazonS3Exception forbidden = new AmazonS3Exception("Forbidden");
+      forbidden.setStatusCode(403);
+      when(amazonS3.getObjectMetadata(BUCKET, ALBUM_UUID + "/missing.png")).thenThrow(notFound);
+      when(amazonS3.getObjectMetadata(BUCKET, ALBUM_UUID + "/denied.png")).thenThrow(forbidden);
+
+      assertNull(awsS3Service.getFileSize("missing.png", ALBUM_UUID));
+      assertThrows(AmazonS3Exception.class, () -> awsS3Service.getFileSize("denied.png", ALBUM_UUID));
+    }
+  }
+
+  private static String sha256(MultipartFile multipartFile) {
+
+    try {
+
+      StringBuilder hex = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(multipartFile.getBytes()))
+        hex.append(String.format("%02x", b));
+
+      return hex.toString();
+    } catch (Exception e) {
+
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static List<String> fileNames(int count) {
+
+    List<String> fileNames = new ArrayList<>(count);
+    for (int i = 0; i < count; i++)
+      fileNames.add("file-" + i);
+
+    return fileNames;
+  }
+
+  private static List<String> albumKeys(List<String> fileNames) {
+
+    return fileNames.stream().map(fileName -> ALBUM_UUID + "/" + fileName).collect(Collectors.toList());
+  }
+
+  private static List<String> deletedKeys(DeleteObjectsRequest request) {
+
+    return request.getKeys().stream().map(KeyVersion::getKey).collect(Collectors.toList());
+  }
+
+  private static DeleteError deleteError(String key) {
+
+    DeleteError deleteError = new DeleteError();
+    deleteError.setKey(key);
+    deleteError.setCode("InternalError");
+
+    return deleteError;
+  }
+
+  private static MultipartFile file(String originalFilename) {
+
+    return new MockMultipartFile("images", originalFilename, "image/*", originalFilename.getBytes());
+  }
+
+  private static List<String> extensions(List<String> fileNames) {
+
+    return fileNames.stream()
+        .map(fileName -> fileName.substring(fileName.lastIndexOf(".")))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,372 @@
+package com.noyes.jogakbo.global.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+import com.noyes.jogakbo.global.redis.AlbumLayoutCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("앨범 레이아웃 브로드캐스트 테스트")
+public class AlbumBroadcasterTest {
+
+  private static final String ALBUM_UUID = "album";
+  private static final String CHANNEL = "album:edit:" + ALBUM_UUID;
+
+  SimpMessagingTemplate simpMessagingTemplate = mock(SimpMessagingTemplate.class);
+  @SuppressWarnings("unchecked")
+  RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+  RedisMessageListenerContainer redisMessageListenerContainer = mock(RedisMessageListenerContainer.class);
+  AlbumLayoutCodec albumLayoutCodec = mock(AlbumLayoutCodec.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumResumeBuffer albumResumeBuffer = new AlbumResumeBuffer(meterRegistry);
+  AlbumBroadcaster albumBroadcaster = new AlbumBroadcaster(simpMessagingTemplate, albumLayoutCodec,
+      redisTemplate, redisMessageListenerContainer, new ObjectMapper(), albumResumeBuffer, meterRegistry);
+
+  {
+    ReflectionTestUtils.setField(albumResumeBuffer, "bufferSize", 16);
+    ReflectionTestUtils.setField(albumResumeBuffer, "maxAlbums", 16);
+  }
+
+  @Nested
+  @DisplayName("Given: cluster 모드에서 앨범 채널을 구독한 노드가")
+  class cluster_mode {
+
+    {
+      ReflectionTestUtils.setField(albumBroadcaster, "clusterEnabled", true);
+      albumBroadcaster.subscribeAlbum(ALBUM_UUID);
+      albumBroadcaster.subscribeAlbum(ALBUM_UUID);
+    }
+
+    @Test
+    @DisplayName("앨범 채널은 한 번만 구독한다.")
+    void subscribe_once() {
+
+      verify(redisMessageListenerContainer, times(1)).addMessageListener(albumBroadcaster, new ChannelTopic(CHANNEL));
+
+      albumBroadcaster.unsubscribeAlbum(ALBUM_UUID);
+      verify(redisMessageListenerContainer).removeMessageListener(albumBroadcaster, new ChannelTopic(CHANNEL));
+    }
+
+    @Test
+    @DisplayName("DELTA 를 직접 보내지 않고 채널로 발행한 뒤, 채널에서 받은 DELTA 를 구독자에게 전달한다.")
+    void publish_then_deliver() {
+
+      albumBroadcaster.broadcast(ALBUM_UUID, delta(7));
+
+      ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+      verify(redisTemplate).convertAndSend(eq(CHANNEL), published.capture());
+      verify(simpMessagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+
+      albumBroadcaster.onMessage(message((String) published.getValue()), null);
+
+      ArgumentCaptor<AlbumLayoutMessage> delivered = ArgumentCaptor.forClass(AlbumLayoutMessage.class);
+      verify(simpMessagingTemplate).convertAndSend(eq("/sub/edit/" + ALBUM_UUID), delivered.capture());
+      assertEquals(7, delivered.getValue().getSequence());
+      assertEquals(1, delivered.getValue().getAddedPages());
+      assertEquals(1, albumResumeBuffer.readAfter(ALBUM_UUID, 6).size());
+    }
+
+    @Test
+    @DisplayName("구독을 해제했다가 다시 구독하면, 그 사이 받지 못한 DELTA 가 있을 수 있어 재연결 버퍼를 비운다.")
+    void clear_resume_buffer_on_resubscribe() {
+
+      albumBroadcaster.onMessage(message("{\"type\":\"DELTA\",\"sequence\":1,\"addedPages\":1}"), null);
+      albumBroadcaster.unsubscribeAlbum(ALBUM_UUID);
+      albumBroadcaster.subscribeAlbum(ALBUM_UUID);
+
+      assertNull(albumResumeBuffer.readAfter(ALBUM_UUID, 0));
+    }
+
+    @Test
+    @DisplayName("채널에서 읽을 수 없는 메세지는 전달하지 않고 실패 횟수로 기록한다.")
+    void count_unreadable_message() {
+
+      albumBroadcaster.onMessage(message("not json"), null);
+
+      verify(simpMessagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+      assertEquals(1, meterRegistry.counter("album.broadcast.failed", "stage", "receive").count());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: cluster 모드에서 마지막 구독자가 나가는 동안 새 구독자가 들어오면")
+  class subscribe_while_releasing {
+
+    // 정적 저장소를 공유하므로 다른 테스트와 겹치지 않는 앨범 사용
+    String albumID = UUID.randomUUID().toString();
+    ChannelTopic topic = new ChannelTopic("album:edit:" + albumID);
+    List<WebSocketSession> sessions = new ArrayList<>();
+
+    {
+      ReflectionTestUtils.setField(albumBroadcaster, "clusterEnabled", true);
+    }
+
+    @AfterEach
+    void removeSessions() {
+
+      for (WebSocketSession session : sessions)
+        WebSocketSessionHolder.removeSession(session.getId());
+    }
+
+    @Test
+    @DisplayName("구독자가 없다고 본 뒤에 새 구독자가 등록되었다면 채널 구독을 해제하지 않는다.")
+    void keep_channel_for_new_subscriber() {
+
+      subscribe(session());
+      WebSocketSessionHolder.removeSession(sessions.get(0).getId());
+
+      // 나가는 쪽이 구독자 수를 확인한 뒤, 채널을 해제하기 전에 새 구독자가 등록됨
+      WebSocketSession joining = session();
+      WebSocketSessionHolder.updateSessionWithDestination(joining.getId(), "sub-0", albumID);
+      albumBroadcaster.unsubscribeAlbum(albumID);
+      albumBroadcaster.subscribeAlbum(albumID);
+
+      verify(redisMessageListenerContainer, times(1)).addMessageListener(albumBroadcaster, topic);
+      verify(redisMessageListenerContainer, never()).removeMessageListener(albumBroadcaster, topic);
+    }
+
+    @Test
+    @DisplayName("구독과 해제가 동시에 반복되어도, 구독자가 남아있다면 채널 구독도 남아있다.")
+    void subscribe_and_release_concurrently() throws Exception {
+
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+
+        for (int round = 0; round < 200; round++) {
+
+          WebSocketSession leaving = session();
+          subscribe(leaving);
+          WebSocketSession joining = session();
+          CountDownLatch start = new CountDownLatch(1);
+
+          Future<?> leave = executor.submit(() -> {
+
+            start.await();
+            WebSocketSessionHolder.removeSession(leaving.getId());
+            albumBroadcaster.unsubscribeAlbum(albumID);
+            return null;
+          });
+          Future<?> join = executor.submit(() -> {
+
+            start.await();
+            subscribe(joining);
+            return null;
+          });
+
+          start.countDown();
+          leave.get(10, TimeUnit.SECONDS);
+          join.get(10, TimeUnit.SECONDS);
+
+          assertEquals(1, WebSocketSessionHolder.countSessionsByDestination(albumID));
+          assertEquals(1, listening());
+
+          // 다음 라운드를 위해 남은 구독자도 정리
+          WebSocketSessionHolder.removeSession(joining.getId());
+          albumBroadcaster.unsubscribeAlbum(albumID);
+          assertEquals(0, listening());
+        }
+      } finally {
+
+        executor.shutdownNow();
+      }
+    }
+
+    // FilterChannelInterceptor 와 같은 순서로 구독자를 등록한 뒤 채널 구독
+    private void subscribe(WebSocketSession session) {
+
+      WebSocketSessionHolder.updateSessionWithDestination(session.getId(), "sub-0", albumID);
+      albumBroadcaster.subscribeAlbum(albumID);
+    }
+
+    private WebSocketSession session() {
+
+      WebSocketSession session = mock(WebSocketSession.class);
+      when(session.getId()).thenReturn(UUID.randomUUID().toString());
+      WebSocketSessionHolder.registSession(session);
+      sessions.add(session);
+
+      return session;
+    }
+
+    // 채널 구독 횟수에서 해제 횟수를 뺀 값, 구독 중이라면 1
+    private long listening() {
+
+      return mockingDetails(redisMessageListenerContainer).getInvocations().stream()
+          .filter(invocation -> topic.equals(invocation.getArguments()[1]))
+          .mapToLong(invocation -> "addMessageListener".equals(invocation.getMethod().getName()) ? 1 : -1)
+          .sum();
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 단일 노드 모드에서")
+  class single_node_mode {
+
+    @Test
+    @DisplayName("반영된 DELTA 는 바로 전달하고, 변경이 없는 DELTA 는 보내지 않는다.")
+    void deliver_directly() {
+
+      albumBroadcaster.broadcast(ALBUM_UUID, delta(1));
+      albumBroadcaster.broadcast(ALBUM_UUID, AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.DELTA)
+          .sequence(1)
+          .removed(List.of())
+          .build());
+
+      verify(simpMessagingTemplate, times(1)).convertAndSend(eq("/sub/edit/" + ALBUM_UUID), any(Object.class));
+      verify(redisTemplate, never()).convertAndSend(anyString(), any());
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 한 세션에만 SNAPSHOT 을 보내면")
+  class send_to_session {
+
+    @Test
+    @DisplayName("sessionID 를 user 자리와 sessionId 헤더에 담아 그 세션의 /user 경로로만 보낸다.")
+    void target_single_session() {
+
+      AlbumLayoutMessage snapshot = AlbumLayoutMessage.builder()
+          .type(AlbumLayoutMessageType.SNAPSHOT)
+          .sequence(3)
+          .build();
+
+      albumBroadcaster.sendToSession("session", "/sub/snapshot/" + ALBUM_UUID, snapshot);
+
+      @SuppressWarnings("unchecked")
+      ArgumentCaptor<Map<String, Object>> headers = ArgumentCaptor.forClass(Map.class);
+      verify(simpMessagingTemplate).convertAndSendToUser(eq("session"), eq("/sub/snapshot/" + ALBUM_UUID),
+          eq(snapshot), headers.capture());
+      assertEquals("session", SimpMessageHeaderAccessor.getSessionId(headers.getValue()));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: Smile 전송을 켜면")
+  class smile_negotiation {
+
+    private final byte[] smileFrame = { ':', ')', '\n' };
+
+    {
+      ReflectionTestUtils.setField(albumBroadcaster, "smileEnabled", true);
+      try {
+
+        when(albumLayoutCodec.encodeSmile(any())).thenReturn(smileFrame);
+      } catch (JsonProcessingException e) {
+
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Test
+    @DisplayName("accept-content-type 으로 Smile 을 요청한 편집 구독만 Smile 전용 destination 으로 등록한다.")
+    void negotiate_per_subscription() {
+
+      assertEquals("/sub/edit-smile/" + ALBUM_UUID,
+          albumBroadcaster.negotiateDestination("/sub/edit/" + ALBUM_UUID, AlbumBroadcaster.SMILE_CONTENT_TYPE));
+      assertEquals("/sub/edit/" + ALBUM_UUID,
+          albumBroadcaster.negotiateDestination("/sub/edit/" + ALBUM_UUID, null));
+      assertEquals("/sub/edit/" + ALBUM_UUID,
+          albumBroadcaster.negotiateDestination("/sub/edit/" + ALBUM_UUID, "application/json"));
+      assertEquals("/user/sub/snapshot/" + ALBUM_UUID,
+          albumBroadcaster.negotiateDestination("/user/sub/snapshot/" + ALBUM_UUID, AlbumBroadcaster.SMILE_CONTENT_TYPE));
+    }
+
+    @Test
+    @DisplayName("Smile 로 인코딩하지 못하면 JSON 구독자에게만 보내고 실패 횟수로 기록한다.")
+    void count_smile_failure() throws JsonProcessingException {
+
+      when(albumLayoutCodec.encodeSmile(any())).thenThrow(new JsonProcessingException("broken") {
+      });
+
+      albumBroadcaster.broadcast(ALBUM_UUID, delta(1));
+
+      verify(simpMessagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+      assertEquals(1, meterRegistry.counter("album.broadcast.failed", "stage", "smile").count());
+    }
+
+    @Test
+    @DisplayName("DELTA 하나를 JSON, Smile destination 에 한 번씩만 보내므로 구독자는 요청한 형식의 프레임 하나만 받는다.")
+    void one_frame_per_encoding() {
+
+      albumBroadcaster.broadcast(ALBUM_UUID, delta(1));
+
+      verify(simpMessagingTemplate, times(1)).convertAndSend(eq("/sub/edit/" + ALBUM_UUID), any(AlbumLayoutMessage.class));
+      verify(simpMessagingTemplate, times(1)).convertAndSend("/sub/edit-smile/" + ALBUM_UUID, smileFrame);
+      verify(simpMessagingTemplate, times(2)).convertAndSend(anyString(), any(Object.class));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: Smile 전송이 꺼져 있으면")
+  class smile_disabled {
+
+    @Test
+    @DisplayName("Smile 을 요청한 구독도 JSON destination 그대로 등록하고, Smile 프레임은 만들지 않는다.")
+    void ignore_accept_content_type() throws JsonProcessingException {
+
+      albumBroadcaster.broadcast(ALBUM_UUID, delta(1));
+
+      assertEquals("/sub/edit/" + ALBUM_UUID,
+          albumBroadcaster.negotiateDestination("/sub/edit/" + ALBUM_UUID, AlbumBroadcaster.SMILE_CONTENT_TYPE));
+      verify(albumLayoutCodec, never()).encodeSmile(any());
+    }
+  }
+
+  private static AlbumLayoutMessage delta(long sequence) {
+
+    return AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.DELTA)
+        .sequence(sequence)
+        .addedPages(1)
+        .build();
+  }
+
+  private static Message message(String body) {
+
+    Message message = mock(Message.class);
+    when(message.getChannel()).thenReturn(CHANNEL.getBytes(StandardCharsets.UTF_8));
+    when(message.getBody()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+
+    return message;
+  }
+}
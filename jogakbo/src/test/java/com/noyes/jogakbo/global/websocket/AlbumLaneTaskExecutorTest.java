@@ -0,0 +1,267 @@
+package com.noyes.jogakbo.global.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("앨범별 순서 보장 실행기 테스트")
+public class AlbumLaneTaskExecutorTest {
+
+  private static final int TASKS = 100;
+  private static final int LANES = 4;
+
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumLaneTaskExecutor executor = new AlbumLaneTaskExecutor(LANES, 1000, meterRegistry);
+
+  // destination 별로 처리된 순서와 처리한 스레드 이름
+  Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+  Map<String, String> threadNames = new ConcurrentHashMap<>();
+
+  {
+    executor.initialize();
+  }
+
+  @AfterEach
+  void shutdown() {
+
+    executor.shutdown();
+  }
+
+  @Nested
+  @DisplayName("Given: 한 앨범을 구독하고 편집 메세지를 연달아 보내고, 앨범 경로가 아닌 메세지도 보내면")
+  class album_and_other_messages {
+
+    {
+      CountDownLatch done = new CountDownLatch(TASKS + 2);
+      executor.execute(task("/sub/edit/album", 0, done));
+      for (int i = 0; i < TASKS; i++)
+        executor.execute(task("/pub/edit/album/image", i, done));
+      executor.execute(task(null, 0, done));
+
+      try {
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Test
+    @DisplayName("구독과 편집은 같은 앨범 lane 에서 받은 순서대로 처리된다.")
+    void same_lane_in_order() {
+
+      assertTrue(threadNames.get("/sub/edit/album").startsWith("album-lane-"));
+      assertEquals(threadNames.get("/sub/edit/album"), threadNames.get("/pub/edit/album/image"));
+      assertEquals(IntStream.range(0, TASKS).boxed().collect(Collectors.toList()),
+          processed.get("/pub/edit/album/image"));
+    }
+
+    @Test
+    @DisplayName("앨범 경로가 아닌 메세지는 공용 스레드 풀에서 처리된다.")
+    void other_on_shared_pool() {
+
+      assertTrue(threadNames.get("none").startsWith("clientInboundChannel-"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 앨범 lane 에 구독과 편집이 쌓여있을 때 구독 해제가 들어오면")
+  class unsubscribe_after_album_messages {
+
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+
+    {
+      executor.execute(blocking("/sub/edit/album", release));
+      executor.execute(task("/pub/edit/album/image", null, "edit", 0, done));
+      executor.execute(task(null, List.of("album"), "unsubscribe", 0, done));
+    }
+
+    @Test
+    @DisplayName("앨범 lane 에서 앞선 메세지가 모두 처리된 뒤에 처리된다.")
+    void unsubscribe_on_album_lane() throws InterruptedException {
+
+      Thread.sleep(100);
+      assertFalse(processed.containsKey("unsubscribe"));
+
+      release.countDown();
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertEquals(threadNames.get("edit"), threadNames.get("unsubscribe"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 서로 다른 lane 의 두 앨범을 구독한 세션의 연결이 끊기면")
+  class disconnect_across_lanes {
+
+    String first = "album";
+    String second = albumOnOtherLane(first);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+
+    {
+      executor.execute(blocking("/sub/edit/" + second, release));
+      executor.execute(task(null, List.of(first, second), "disconnect", 0, done));
+    }
+
+    @Test
+    @DisplayName("두 lane 에 앞서 쌓인 메세지가 모두 처리된 뒤 공용 스레드 풀에서 처리된다.")
+    void disconnect_after_all_lanes() throws InterruptedException {
+
+      Thread.sleep(100);
+      assertFalse(processed.containsKey("disconnect"));
+
+      release.countDown();
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertTrue(threadNames.get("disconnect").startsWith("clientInboundChannel-"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: lane 대기열이 가득 찼을 때")
+  class full_lane {
+
+    AlbumLaneTaskExecutor smallExecutor = new AlbumLaneTaskExecutor(LANES, 1, meterRegistry);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+
+    {
+      smallExecutor.initialize();
+      smallExecutor.execute(blocking("/pub/edit/album/image", release));
+      smallExecutor.execute(blocking("/pub/edit/album/image", release));
+    }
+
+    @AfterEach
+    void shutdownSmallExecutor() {
+
+      release.countDown();
+      smallExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("앨범 메세지는 거절하고 거절 수를 센다.")
+    void reject_album_message() {
+
+      assertThrows(RejectedExecutionException.class,
+          () -> smallExecutor.execute(task("/pub/edit/album/image", null, "edit", 0, done)));
+      assertEquals(1, meterRegistry.counter("websocket.inbound.lane.rejected").count());
+    }
+
+    @Test
+    @DisplayName("구독 해제는 버리지 않고 공용 스레드 풀에서 처리한다.")
+    void fallback_unsubscribe() throws InterruptedException {
+
+      smallExecutor.execute(task(null, List.of("album"), "unsubscribe", 0, done));
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertTrue(threadNames.get("unsubscribe").startsWith("clientInboundChannel-"));
+    }
+  }
+
+  // albumUUID 와 다른 lane 으로 가는 albumUUID
+  private static String albumOnOtherLane(String albumUUID) {
+
+    int lane = Math.floorMod(albumUUID.hashCode(), LANES);
+    for (int i = 0;; i++) {
+
+      String other = albumUUID + i;
+      if (Math.floorMod(other.hashCode(), LANES) != lane)
+        return other;
+    }
+  }
+
+  private MessageHandlingRunnable task(String destination, int order, CountDownLatch done) {
+
+    return task(destination, null, destination == null ? "none" : destination, order, done);
+  }
+
+  private MessageHandlingRunnable task(String destination, List<String> laneAlbums, String key, int order,
+      CountDownLatch done) {
+
+    return runnable(message(destination, laneAlbums), () -> {
+
+      // 같은 key 는 한 스레드에서만 처리된다고 가정하므로 리스트는 동기화하지 않음
+      processed.computeIfAbsent(key, k -> new ArrayList<>()).add(order);
+      threadNames.merge(key, Thread.currentThread().getName(),
+          (previous, current) -> previous.equals(current) ? previous : "mixed");
+      done.countDown();
+    });
+  }
+
+  // release 될 때까지 lane 을 붙잡아두는 메세지
+  private MessageHandlingRunnable blocking(String destination, CountDownLatch release) {
+
+    return runnable(message(destination, null), () -> {
+
+      try {
+
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  private static Message<byte[]> message(String destination, List<String> laneAlbums) {
+
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+    if (destination != null)
+      accessor.setDestination(destination);
+    if (laneAlbums != null)
+      accessor.setHeader(AlbumLaneTaskExecutor.LANE_ALBUMS_HEADER, laneAlbums);
+
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+
+  private static MessageHandlingRunnable runnable(Message<byte[]> message, Runnable body) {
+
+    return new MessageHandlingRunnable() {
+
+      @Override
+      public Message<?> getMessage() {
+
+        return message;
+      }
+
+      @Override
+      public MessageHandler getMessageHandler() {
+
+        return received -> {
+        };
+      }
+
+      @Override
+      public void run() {
+
+        body.run();
+      }
+    };
+  }
+}
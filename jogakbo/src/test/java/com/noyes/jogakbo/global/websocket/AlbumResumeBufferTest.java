@@ -0,0 +1,120 @@
+package com.noyes.jogakbo.global.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessage;
+import com.noyes.jogakbo.album.DTO.AlbumLayoutMessageType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("재연결 DELTA 버퍼 테스트")
+public class AlbumResumeBufferTest {
+
+  private static final String ALBUM_UUID = "album";
+
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AlbumResumeBuffer resumeBuffer = new AlbumResumeBuffer(meterRegistry);
+
+  {
+    ReflectionTestUtils.setField(resumeBuffer, "bufferSize", 4);
+    ReflectionTestUtils.setField(resumeBuffer, "maxAlbums", 2);
+  }
+
+  @Nested
+  @DisplayName("Given: sequence 1 ~ 6 을 전송해 버퍼에 3 ~ 6 만 남은 상태에서")
+  class buffer_with_three_to_six {
+
+    {
+      for (long sequence = 1; sequence <= 6; sequence++)
+        resumeBuffer.record(ALBUM_UUID, delta(sequence));
+    }
+
+    @Test
+    @DisplayName("버퍼 안에서 이어지는 sequence 라면 그 이후 DELTA 만 순서대로 돌려준다.")
+    void replay_after_sequence() {
+
+      assertEquals(List.of(4L, 5L, 6L), sequences(resumeBuffer.readAfter(ALBUM_UUID, 3)));
+      assertEquals(List.of(3L, 4L, 5L, 6L), sequences(resumeBuffer.readAfter(ALBUM_UUID, 2)));
+      assertTrue(resumeBuffer.readAfter(ALBUM_UUID, 6).isEmpty());
+    }
+
+    @Test
+    @DisplayName("버퍼에서 밀려난 DELTA 가 필요하다면 SNAPSHOT 을 받도록 null 을 돌려준다.")
+    void snapshot_when_evicted() {
+
+      assertNull(resumeBuffer.readAfter(ALBUM_UUID, 1));
+      assertEquals(1, meterRegistry.counter("album.resume", "result", "snapshot").count());
+    }
+
+    @Test
+    @DisplayName("구독자가 버퍼보다 앞선 sequence 를 알려주면 null 을 돌려준다.")
+    void snapshot_when_ahead() {
+
+      assertNull(resumeBuffer.readAfter(ALBUM_UUID, 8));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: 중간 sequence 를 받지 못해 3 다음에 5 가 기록된 상태에서")
+  class buffer_with_gap {
+
+    {
+      resumeBuffer.record(ALBUM_UUID, delta(2));
+      resumeBuffer.record(ALBUM_UUID, delta(3));
+      resumeBuffer.record(ALBUM_UUID, delta(5));
+    }
+
+    @Test
+    @DisplayName("빠진 DELTA 를 지나야 한다면 null 을, 빠진 곳 이후부터라면 이어서 돌려준다.")
+    void detect_gap() {
+
+      assertNull(resumeBuffer.readAfter(ALBUM_UUID, 2));
+      assertEquals(List.of(5L), sequences(resumeBuffer.readAfter(ALBUM_UUID, 4)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Given: max-albums 보다 많은 앨범의 DELTA 를 기록하면")
+  class more_albums_than_max {
+
+    {
+      resumeBuffer.record("album-1", delta(1));
+      resumeBuffer.record("album-2", delta(1));
+      resumeBuffer.readAfter("album-1", 0);
+      resumeBuffer.record("album-3", delta(1));
+    }
+
+    @Test
+    @DisplayName("가장 오래 사용하지 않은 앨범의 버퍼부터 버린다.")
+    void evict_least_recently_used() {
+
+      assertNull(resumeBuffer.readAfter("album-2", 0));
+      assertEquals(List.of(1L), sequences(resumeBuffer.readAfter("album-1", 0)));
+      assertEquals(List.of(1L), sequences(resumeBuffer.readAfter("album-3", 0)));
+    }
+  }
+
+  private static AlbumLayoutMessage delta(long sequence) {
+
+    return AlbumLayoutMessage.builder()
+        .type(AlbumLayoutMessageType.DELTA)
+        .sequence(sequence)
+        .addedPages(1)
+        .build();
+  }
+
+  private static List<Long> sequences(List<AlbumLayoutMessage> messages) {
+
+    return messages.stream().map(AlbumLayoutMessage::getSequence).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,162 @@
+package com.noyes.jogakbo.global.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import com.noyes.jogakbo.album.AlbumService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("클라이언트 전송 backpressure 테스트")
+public class OutboundBackpressureInterceptorTest {
+
+  private static final String SESSION_ID = "slow-session";
+  private static final int MESSAGE_BYTES = 300;
+
+  @SuppressWarnings("null")
+  @Nested
+  @DisplayName("Given: 소켓 쓰기가 멈춘 느린 세션에 max-queued-bytes 가 1000 인 상태에서")
+  class slow_consumer {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    AlbumService albumService = mock(AlbumService.class);
+    OutboundBackpressureInterceptor interceptor = new OutboundBackpressureInterceptor(meterRegistry, albumService);
+    MessageChannel channel = mock(MessageChannel.class);
+
+    // 첫 프레임을 쓰는 동안 latch 가 열릴 때까지 멈추는 세션
+    CountDownLatch consumerResumed = new CountDownLatch(1);
+    CountDownLatch firstFrameStarted = new CountDownLatch(1);
+    WebSocketSession rawSession = mock(WebSocketSession.class);
+    WebSocketSession session;
+
+    {
+      ReflectionTestUtils.setField(interceptor, "maxQueuedBytes", 1000L);
+      interceptor.init();
+
+      when(rawSession.getId()).thenReturn(SESSION_ID);
+      when(rawSession.isOpen()).thenReturn(true);
+      try {
+
+        doAnswer(invocation -> {
+
+          firstFrameStarted.countDown();
+          consumerResumed.await(5, TimeUnit.SECONDS);
+          return null;
+        }).when(rawSession).sendMessage(any());
+      } catch (Exception e) {
+
+        throw new IllegalStateException(e);
+      }
+
+      session = new ConcurrentWebSocketSessionDecorator(interceptor.decorate(rawSession), 60000, 1024 * 1024);
+    }
+
+    @Nested
+    @DisplayName("DELTA 를 계속 보내면")
+    class send_deltas {
+
+      @Test
+      @DisplayName("전송 버퍼에 밀린 바이트가 한도를 넘는 DELTA 는 버리고, 버퍼가 비워지면 다시 보낸다.")
+      void drop_while_lagging_and_resume_after_drain() throws Exception {
+
+        // 첫 프레임은 다른 스레드에서 쓰다가 멈춤
+        Thread writer = new Thread(() -> send(delta()));
+        writer.start();
+        assertTrue(firstFrameStarted.await(5, TimeUnit.SECONDS));
+
+        // 이후 프레임은 전송 버퍼에 쌓임
+        send(delta());
+        send(delta());
+        assertEquals(3 * MESSAGE_BYTES, queuedBytes());
+
+        assertNull(interceptor.preSend(delta(), channel));
+        assertEquals(1.0, meterRegistry.counter("album.broadcast.dropped").count());
+
+        // 소비자가 다시 읽기 시작하면 밀린 프레임이 모두 쓰이며 차감됨
+        consumerResumed.countDown();
+        writer.join(5000);
+        assertEquals(0, queuedBytes());
+
+        assertNotNull(interceptor.preSend(delta(), channel));
+      }
+
+      @Test
+      @DisplayName("다시 보내기 시작하면 DELTA 를 버렸던 앨범의 SNAPSHOT 을 그 세션에 한 번만 보낸다.")
+      void send_snapshot_after_recovery() throws Exception {
+
+        Thread writer = new Thread(() -> send(delta()));
+        writer.start();
+        assertTrue(firstFrameStarted.await(5, TimeUnit.SECONDS));
+        send(delta());
+        send(delta());
+
+        // 밀려있는 동안에는 SNAPSHOT 을 보내지 않음
+        assertNull(interceptor.preSend(delta(), channel));
+        assertNull(interceptor.preSend(delta(), channel));
+        verify(albumService, never()).sendSnapshotToSession(anyString(), anyString());
+
+        consumerResumed.countDown();
+        writer.join(5000);
+
+        assertNotNull(interceptor.preSend(delta(), channel));
+        assertNotNull(interceptor.preSend(delta(), channel));
+        verify(albumService, times(1)).sendSnapshotToSession(SESSION_ID, "album");
+        assertEquals(1.0, meterRegistry.counter("album.broadcast.recovered").count());
+      }
+    }
+
+    private void send(Message<byte[]> message) {
+
+      try {
+
+        if (interceptor.preSend(message, channel) != null)
+          session.sendMessage(new TextMessage("MESSAGE\ndestination:/sub/edit/album\n\n"
+              + new String(message.getPayload(), StandardCharsets.UTF_8) + "\0"));
+      } catch (Exception e) {
+
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private double queuedBytes() {
+
+      return meterRegistry.get("websocket.outbound.queued.bytes").gauge().value();
+    }
+  }
+
+  private static Message<byte[]> delta() {
+
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setSessionId(SESSION_ID);
+    accessor.setDestination("/sub/edit/album");
+
+    return MessageBuilder.createMessage(new byte[MESSAGE_BYTES], accessor.getMessageHeaders());
+  }
+}
@@ -0,0 +1,102 @@
+package com.noyes.jogakbo.global.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+@DisplayName("웹소켓 세션 색인 테스트")
+public class WebSocketSessionHolderTest {
+
+  // 정적 저장소를 공유하므로 테스트마다 다른 앨범, 세션 사용
+  String albumID = UUID.randomUUID().toString();
+  String otherAlbumID = UUID.randomUUID().toString();
+  WebSocketSession first = session();
+  WebSocketSession second = session();
+
+  {
+    WebSocketSessionHolder.registSession(first);
+    WebSocketSessionHolder.registSession(second);
+  }
+
+  @AfterEach
+  void removeSessions() {
+
+    WebSocketSessionHolder.removeSession(first.getId());
+    WebSocketSessionHolder.removeSession(second.getId());
+  }
+
+  @Nested
+  @DisplayName("Given: 두 세션이 같은 앨범을, 첫 세션은 다른 구독으로 한 번 더 구독하면")
+  class two_sessions_on_album {
+
+    {
+      WebSocketSessionHolder.updateSessionWithDestination(first.getId(), "sub-0", albumID);
+      WebSocketSessionHolder.updateSessionWithDestination(first.getId(), "sub-1", albumID);
+      WebSocketSessionHolder.updateSessionWithDestination(second.getId(), "sub-0", albumID);
+    }
+
+    @Test
+    @DisplayName("앨범 구독 세션 수는 구독 수가 아닌 세션 수로 센다.")
+    void count_sessions() {
+
+      assertEquals(2, WebSocketSessionHolder.countSessionsByDestination(albumID));
+      assertEquals(0, WebSocketSessionHolder.countSessionsByDestination(otherAlbumID));
+    }
+
+    @Test
+    @DisplayName("한 구독을 해제해도 다른 구독이 남아있으면 색인에서 빠지지 않는다.")
+    void keep_while_subscribing() {
+
+      assertNull(WebSocketSessionHolder.removeSubscription(first.getId(), "sub-0"));
+      assertEquals(2, WebSocketSessionHolder.countSessionsByDestination(albumID));
+
+      assertEquals(albumID, WebSocketSessionHolder.removeSubscription(first.getId(), "sub-1"));
+      assertEquals(1, WebSocketSessionHolder.countSessionsByDestination(albumID));
+    }
+
+    @Test
+    @DisplayName("세션을 제거하면 색인에서도 빠지고, 마지막 세션이 빠지면 색인이 사라진다.")
+    void remove_from_index() {
+
+      assertEquals(2, WebSocketSessionHolder.removeSession(first.getId()).getSubscriptions().size());
+      assertEquals(1, WebSocketSessionHolder.countSessionsByDestination(albumID));
+
+      WebSocketSessionHolder.removeSession(second.getId());
+      assertEquals(0, WebSocketSessionHolder.countSessionsByDestination(albumID));
+      assertNull(WebSocketSessionHolder.removeSession(second.getId()));
+    }
+
+    @Test
+    @DisplayName("앨범을 삭제하면 그 앨범을 구독 중인 세션만 닫는다.")
+    void close_subscribing_sessions() throws IOException {
+
+      WebSocketSessionHolder.updateSessionWithDestination(second.getId(), "sub-1", otherAlbumID);
+      WebSocketSessionHolder.removeSubscription(second.getId(), "sub-0");
+
+      WebSocketSessionHolder.closeSessionByDestination(albumID);
+
+      verify(first).close();
+      verify(second, never()).close();
+    }
+  }
+
+  private static WebSocketSession session() {
+
+    WebSocketSession session = mock(WebSocketSession.class);
+    when(session.getId()).thenReturn(UUID.randomUUID().toString());
+
+    return session;
+  }
+}
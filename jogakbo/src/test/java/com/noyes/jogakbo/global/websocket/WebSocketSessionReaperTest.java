@@ -0,0 +1,101 @@
+package com.noyes.jogakbo.global.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.noyes.jogakbo.album.AlbumEditSessionManager;
+import com.noyes.jogakbo.album.AlbumPresenceManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("끊어진 웹소켓 세션 정리 테스트")
+public class WebSocketSessionReaperTest {
+
+  AlbumEditSessionManager albumEditSessionManager = mock(AlbumEditSessionManager.class);
+  AlbumPresenceManager albumPresenceManager = mock(AlbumPresenceManager.class);
+  AlbumBroadcaster albumBroadcaster = mock(AlbumBroadcaster.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  WebSocketSessionReaper webSocketSessionReaper = new WebSocketSessionReaper(albumEditSessionManager,
+      albumPresenceManager, albumBroadcaster, meterRegistry);
+
+  // 정적 저장소를 공유하므로 테스트마다 다른 앨범, 세션 사용
+  String albumID = UUID.randomUUID().toString();
+  WebSocketSession open = session(true);
+  WebSocketSession closed = session(false);
+
+  {
+    webSocketSessionReaper.init();
+    WebSocketSessionHolder.registSession(open);
+    WebSocketSessionHolder.registSession(closed);
+    WebSocketSessionHolder.updateSessionWithDestination(open.getId(), "sub-0", albumID);
+    WebSocketSessionHolder.updateSessionWithDestination(closed.getId(), "sub-0", albumID);
+  }
+
+  @AfterEach
+  void removeSessions() {
+
+    WebSocketSessionHolder.removeSession(open.getId());
+    WebSocketSessionHolder.removeSession(closed.getId());
+  }
+
+  @Nested
+  @DisplayName("Given: 같은 앨범의 열린 세션과, DISCONNECT 없이 닫힌 세션이 남아있을 때")
+  class one_stale_session {
+
+    {
+      webSocketSessionReaper.reap();
+    }
+
+    @Test
+    @DisplayName("닫힌 세션만 정리하고, 열린 세션이 남아있어 앨범은 정리하지 않는다.")
+    void reap_stale_session() {
+
+      assertTrue(WebSocketSessionHolder.isSubscribing(open.getId(), albumID));
+      assertFalse(WebSocketSessionHolder.isSubscribing(closed.getId(), albumID));
+      verify(albumPresenceManager).leave(albumID, closed.getId());
+      verify(albumEditSessionManager, never()).release(anyString());
+      verify(albumBroadcaster, never()).unsubscribeAlbum(anyString());
+    }
+
+    @Test
+    @DisplayName("점검 시점의 열린 세션, 닫힌 세션 수를 기록한다.")
+    void record_gauges() {
+
+      assertEquals(1, meterRegistry.get("websocket.sessions").tag("state", "stale").gauge().value());
+      assertTrue(meterRegistry.get("websocket.sessions").tag("state", "live").gauge().value() >= 1);
+    }
+
+    @Test
+    @DisplayName("마지막 세션이 끊기면 레이아웃을 반영하고 앨범 채널 구독을 해제한다.")
+    void release_album_after_last_session() {
+
+      webSocketSessionReaper.removeSession(open.getId());
+
+      verify(albumEditSessionManager).release(albumID);
+      verify(albumBroadcaster).unsubscribeAlbum(albumID);
+    }
+  }
+
+  private static WebSocketSession session(boolean open) {
+
+    WebSocketSession session = mock(WebSocketSession.class);
+    when(session.getId()).thenReturn(UUID.randomUUID().toString());
+    when(session.isOpen()).thenReturn(open);
+
+    return session;
+  }
+}